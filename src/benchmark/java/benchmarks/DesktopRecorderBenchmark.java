@@ -0,0 +1,135 @@
+package benchmarks;
+
+import core.video.JpegFrameWriter;
+import org.monte.media.Format;
+import org.monte.media.FormatKeys.MediaType;
+import org.monte.media.avi.AVIWriter;
+import org.monte.media.math.Rational;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.monte.media.FormatKeys.EncodingKey;
+import static org.monte.media.FormatKeys.FrameRateKey;
+import static org.monte.media.FormatKeys.MediaTypeKey;
+import static org.monte.media.VideoFormatKeys.*;
+
+/**
+ * Encoding time per frame of the desktop recorder settings, on 1280x720 frames of a text page
+ * that changes once per second at 15 fps, the case of the encoder comparison in config.properties.
+ * tscc, mjpg and png write every frame with Monte's encoders like TestRecorder; adaptive is the
+ * DesktopFrameSource path, which hashes each frame and JPEG encodes only the changed ones. The
+ * grab itself needs a display and is left out. Each trial prints the video size per minute.
+ * <p>
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Djava.awt.headless=true -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main DesktopRecorderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx1g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class DesktopRecorderBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int FRAME_RATE = 15;
+
+    @Param({"tscc", "mjpg", "png", "adaptive"})
+    public String encoding;
+
+    private final BufferedImage[] pages = new BufferedImage[2];
+    private File video;
+    private AVIWriter writer;
+    private int track;
+    private long frames;
+    private long jpegBytes;
+    private long lastChecksum;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        pages[0] = page(1);
+        pages[1] = page(2);
+        frames = 0;
+        jpegBytes = 0;
+        if (encoding.equals("adaptive")) {
+            return;
+        }
+        String compression = encoding.equals("tscc") ? ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE
+                : encoding.equals("mjpg") ? ENCODING_AVI_MJPG : ENCODING_AVI_PNG;
+        video = File.createTempFile("desktop-recorder-benchmark", ".avi");
+        writer = new AVIWriter(video);
+        track = writer.addTrack(new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, compression,
+                CompressorNameKey, compression, WidthKey, WIDTH, HeightKey, HEIGHT, DepthKey, 24,
+                FrameRateKey, Rational.valueOf(FRAME_RATE), QualityKey, 0.7f, KeyFrameIntervalKey, FRAME_RATE * 60));
+    }
+
+    @Benchmark
+    public void frame() throws IOException {
+        BufferedImage image = pages[(int) (frames++ / FRAME_RATE % 2)];
+        if (writer != null) {
+            writer.write(track, image, 1);
+            return;
+        }
+        long checksum = Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        if (frames == 1 || checksum != lastChecksum) {
+            lastChecksum = checksum;
+            jpegBytes += JpegFrameWriter.encode(image, 0.7f).length;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        long bytes = jpegBytes;
+        if (writer != null) {
+            writer.close();
+            bytes = video.length();
+            video.delete();
+        }
+        double minutes = frames / (double) FRAME_RATE / 60;
+        System.out.printf("%n%s: %d frames, %.0f KB per minute of video%n", encoding, frames, bytes / 1024.0 / minutes);
+    }
+
+    // Lines of text-like blocks, a different layout for each seed
+    private static BufferedImage page(int seed) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(new Color(40, 40, 40));
+        graphics.fillRect(0, 0, WIDTH, 60);
+        Random random = new Random(seed);
+        graphics.setColor(Color.DARK_GRAY);
+        for (int y = 100; y < HEIGHT - 20; y += 22) {
+            for (int x = 40; x < WIDTH - 40; ) {
+                int length = 15 + random.nextInt(70);
+                graphics.fillRect(x, y, Math.min(length, WIDTH - 40 - x), 11);
+                x += length + 8;
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+}
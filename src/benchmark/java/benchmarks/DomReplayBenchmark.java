@@ -0,0 +1,151 @@
+package benchmarks;
+
+import core.video.DomEventRecorder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JVM time and disk use of the DOM session replay for one recorded minute, to set against the
+ * desktop recorder's per frame encoding time of {@link DesktopRecorderBenchmark} (15 fps, so 900
+ * frames a minute). A stub driver returns what session-recorder.js would: a snapshot of a page of
+ * {@code pageKb} KB, then per second of the test a few changed elements, attribute changes, an
+ * input and a click. Each operation is one test: the recording is started with the snapshot, the
+ * events of {@code seconds} seconds are fetched and written by the poll when it stops, and the
+ * replay page is written. Polls are throttled in real time, so the test's events come in one poll;
+ * the browser's share (the mutation observer, serializing the page) and the WebDriver round trip
+ * of each poll are not part of it. Each trial prints the files written per recorded minute.
+ * <p>
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main DomReplayBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@State(Scope.Benchmark)
+public class DomReplayBenchmark {
+    private static final int CHANGED_ELEMENTS_PER_SECOND = 5;
+    private static final int ATTRIBUTE_CHANGES_PER_SECOND = 10;
+
+    @Param({"200"})
+    public int pageKb;
+
+    @Param({"60"})
+    public int seconds;
+
+    private Path dir;
+    private String snapshot;
+    private String testEvents;
+    private long tests;
+    private long bytes;
+    private PrintStream out;
+
+    /** Returns the snapshot on the first call and the rest of the test's events on the next. */
+    private class StubDriver implements JavascriptExecutor {
+        private boolean loaded;
+
+        @Override
+        public Object executeScript(String script, Object... args) {
+            if (!loaded) {
+                loaded = true;
+                return snapshot;
+            }
+            return testEvents;
+        }
+
+        @Override
+        public Object executeAsyncScript(String script, Object... args) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createEvents() throws IOException {
+        dir = Files.createTempDirectory("dom-replay-benchmark");
+        StringBuilder page = new StringBuilder("<head><title>Orders</title></head><body><table>");
+        for (int row = 0; page.length() < pageKb * 1024; row++) {
+            page.append(row(row));
+        }
+        page.append("</table></body>");
+        long now = System.currentTimeMillis();
+        snapshot = "[{\"type\":\"snapshot\",\"url\":\"https://app.example/orders\",\"html\":\"" + page
+                + "\",\"w\":1280,\"h\":720,\"t\":" + now + "}]";
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < CHANGED_ELEMENTS_PER_SECOND; i++) {
+            StringBuilder rows = new StringBuilder();
+            for (int row = 0; row < 10; row++) {
+                rows.append(row(i * 10 + row));
+            }
+            second.append("{\"type\":\"html\",\"path\":\"1/0/").append(i).append("\",\"html\":\"").append(rows)
+                    .append("\",\"t\":").append(now).append("},");
+        }
+        for (int i = 0; i < ATTRIBUTE_CHANGES_PER_SECOND; i++) {
+            second.append("{\"type\":\"attr\",\"path\":\"1/0/").append(i).append("/2\",\"name\":\"class\",\"value\":\"cell selected\",\"t\":")
+                    .append(now).append("},");
+        }
+        second.append("{\"type\":\"input\",\"path\":\"1/1/0\",\"value\":\"ACME Corporation\",\"t\":").append(now).append("},");
+        second.append("{\"type\":\"click\",\"path\":\"1/1/1\",\"x\":640,\"y\":360,\"t\":").append(now).append("}");
+        testEvents = "[" + String.join(",", Collections.nCopies(seconds, second)) + "]";
+        tests = 0;
+        bytes = 0;
+        // Every recording prints its size and CPU share when it stops
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public long recordTest() throws IOException {
+        String name = "test" + tests++;
+        DomEventRecorder recorder = new DomEventRecorder(new StubDriver(), name, dir.toFile(), false);
+        recorder.start();
+        recorder.stop();
+        File events = dir.resolve(name + ".events.jsonl").toFile();
+        File replay = dir.resolve(name + ".replay.html").toFile();
+        long written = events.length() + replay.length();
+        bytes += written;
+        events.delete();
+        replay.delete();
+        return written;
+    }
+
+    @TearDown(Level.Trial)
+    public void removeFiles() throws IOException {
+        System.setOut(out);
+        double minutes = tests * seconds / 60.0;
+        System.out.printf("%ndom: %d tests, %.0f KB per minute of recording%n", tests, bytes / 1024.0 / minutes);
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static String row(int row) {
+        return "<tr class=\\\"order\\\"><td>" + (10000 + row) + "</td><td>ACME Corporation</td><td>2026-10-19</td>"
+                + "<td class=\\\"amount\\\">1,234.56 USD</td><td><button>Details</button></td></tr>";
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import core.visual.ImageComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to compare two full-HD (1920x1080) screenshots with the tiled {@link ImageComparator}, by
+ * tile size. The actual image has a changed panel and a one pixel shift of some text, so both the
+ * mismatch path and the anti-aliasing neighbourhood check run. A tile size of 2048 is one tile,
+ * the comparison then runs on a single thread.
+ * <p>
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -Djava.awt.headless=true -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main ImageComparatorBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx1g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class ImageComparatorBenchmark {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"64", "128", "256", "2048"})
+    public int tileSize;
+
+    @Param({"none", "header"})
+    public String ignore;
+
+    private BufferedImage baseline;
+    private BufferedImage actual;
+    private ImageComparator comparator;
+    private List<Rectangle> ignoreRegions;
+
+    @Setup(Level.Trial)
+    public void createImages() {
+        baseline = page(0);
+        actual = page(1);
+        Graphics2D graphics = actual.createGraphics();
+        graphics.setColor(new Color(200, 40, 40));
+        graphics.fillRect(700, 400, 500, 200);
+        graphics.dispose();
+        comparator = new ImageComparator(tileSize, 16);
+        ignoreRegions = ignore.equals("header")
+                ? List.of(new Rectangle(0, 0, WIDTH, 80))
+                : Collections.emptyList();
+    }
+
+    @Benchmark
+    public ImageComparator.Result compare() {
+        return comparator.compare(baseline, actual, ignoreRegions);
+    }
+
+    // A page with a header and lines of text-like blocks; the lower half is moved right by shift pixels
+    private static BufferedImage page(int shift) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(new Color(40, 40, 40));
+        graphics.fillRect(0, 0, WIDTH, 80);
+        Random random = new Random(1);
+        graphics.setColor(Color.DARK_GRAY);
+        for (int y = 120; y < HEIGHT - 20; y += 24) {
+            int offset = y > HEIGHT / 2 ? shift : 0;
+            for (int x = 60; x < WIDTH - 60; ) {
+                int length = 20 + random.nextInt(80);
+                graphics.fillRect(x + offset, y, Math.min(length, WIDTH - 60 - x), 12);
+                x += length + 10;
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+}
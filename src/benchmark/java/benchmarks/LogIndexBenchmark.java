@@ -0,0 +1,187 @@
+package benchmarks;
+
+import core.logging.LogIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Time to get one test's logs out of a large log: a generated log of logMegabytes MB with
+ * {@code tests} tests, whose lines are interleaved over 4 driver ids like parallel workers write them.
+ * <ul>
+ *     <li>firstLookup: the first lookup on the file, which builds the whole index</li>
+ *     <li>indexedLookup: a lookup once the index is built, what every further test pays</li>
+ *     <li>fullRescan: the extraction before LogIndex, which read the whole file and ran regexes on
+ *     every line for every test</li>
+ * </ul>
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main LogIndexBenchmark
+ * </pre>
+ * The full rescan holds the whole log in memory, hence the large heap; {@code -p logMegabytes=50}
+ * gives a quicker run.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LogIndexBenchmark {
+    private static final int DRIVERS = 4;
+    private static final String START_MARKER = "Test case started";
+    private static final String END_PASS_MARKER = "Test case pass";
+    private static final String END_FAIL_MARKER = "Test case fail";
+    private static final int MAX_CAPTURE_LINES = 500;
+
+    @Param({"500"})
+    public int logMegabytes;
+
+    @Param({"5000"})
+    public int tests;
+
+    private Path dir;
+    private Path log;
+    private int next;
+
+    /** A new path to the log for every call, so each gets a new, empty index. */
+    @State(Scope.Thread)
+    public static class FreshLog {
+        private Path link;
+
+        @Setup(Level.Invocation)
+        public void link(LogIndexBenchmark benchmark) throws IOException {
+            link = benchmark.dir.resolve("Logs-" + System.nanoTime() + ".log");
+            Files.createLink(link, benchmark.log);
+        }
+
+        @TearDown(Level.Invocation)
+        public void unlink() throws IOException {
+            Files.delete(link);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void writeLog() throws IOException {
+        dir = Files.createTempDirectory("log-index-benchmark");
+        log = dir.resolve("Logs.log");
+        long bytesPerTest = (long) logMegabytes * 1024 * 1024 / tests;
+        // Each round writes one line of every running test, DRIVERS tests run at a time
+        try (BufferedWriter writer = Files.newBufferedWriter(log, StandardCharsets.UTF_8)) {
+            for (int first = 0; first < tests; first += DRIVERS) {
+                int running = Math.min(DRIVERS, tests - first);
+                long[] written = new long[running];
+                for (int i = 0; i < running; i++) {
+                    written[i] += line(writer, first + i, START_MARKER);
+                }
+                for (int step = 1; written[0] < bytesPerTest; step++) {
+                    for (int i = 0; i < running; i++) {
+                        written[i] += line(writer, first + i, "step " + step
+                                + ": clicked the element and waited for the page to settle");
+                    }
+                }
+                for (int i = 0; i < running; i++) {
+                    line(writer, first + i, (first + i) % 10 == 0 ? END_FAIL_MARKER : END_PASS_MARKER);
+                }
+            }
+        }
+        System.out.println("\nlog: " + Files.size(log) / (1024 * 1024) + " MB, " + tests + " tests");
+        // Builds the index of the log the indexed lookups use
+        LogIndex.forFile(log).extract("test0", "d0");
+    }
+
+    @TearDown(Level.Trial)
+    public void removeLog() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public String firstLookup(FreshLog fresh) throws IOException {
+        return LogIndex.forFile(fresh.link).extract(nextTest(), driver(next));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public String indexedLookup() throws IOException {
+        return LogIndex.forFile(log).extract(nextTest(), driver(next));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public String fullRescan() throws IOException {
+        return rescan(log, nextTest(), driver(next));
+    }
+
+    // Spread over the file, so lookups do not all hit the same cached pages
+    private String nextTest() {
+        next = (next + 997) % tests;
+        return "test" + next;
+    }
+
+    private static String driver(int test) {
+        return "d" + test % DRIVERS;
+    }
+
+    private static int line(BufferedWriter writer, int test, String message) throws IOException {
+        String line = "2026-10-19 10:00:00.000 INFO  [" + driver(test) + "] test" + test + " " + message + "\n";
+        writer.write(line);
+        return line.length();
+    }
+
+    // LogExtractorUtil before LogIndex: the whole file is read and matched for every test
+    private static String rescan(Path file, String testCaseName, String driverID) throws IOException {
+        String driverIdPattern = ".*\\[" + Pattern.quote(driverID) + "\\].*";
+        String testCaseNamePattern = ".*" + Pattern.quote(testCaseName) + ".*";
+        String startMarkerPattern = ".*" + Pattern.quote(START_MARKER) + ".*";
+        String endPassMarkerPattern = ".*" + Pattern.quote(END_PASS_MARKER) + ".*";
+        String endFailMarkerPattern = ".*" + Pattern.quote(END_FAIL_MARKER) + ".*";
+        List<String> logs = new ArrayList<>();
+        boolean capturing = false;
+        int captured = 0;
+        for (String line : Files.readAllLines(file)) {
+            if (!capturing) {
+                if (line.matches(driverIdPattern) && line.matches(testCaseNamePattern) && line.matches(startMarkerPattern)) {
+                    capturing = true;
+                    logs.add(line);
+                }
+                continue;
+            }
+            captured++;
+            if (line.matches(driverIdPattern) || line.matches(testCaseNamePattern)) {
+                logs.add(line);
+                if (line.matches(endPassMarkerPattern) || line.matches(endFailMarkerPattern)) {
+                    break;
+                }
+            }
+            if (captured >= MAX_CAPTURE_LINES) {
+                break;
+            }
+        }
+        return String.join("\n", logs);
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time a test thread spends in one {@code log.info} call with the default (log4j2.xml) and the
+ * async (log4j2-async.xml) logging profile. The console appender is removed so the figures show
+ * the file, JSON and capture path rather than the speed of the terminal.
+ * <p>
+ * Run with the thread counts of interest, e.g.:
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main LoggingProfileBenchmark -t 3
+ * </pre>
+ * and again with {@code -t 8} and {@code -t 16}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingProfileBenchmark {
+
+    @Param({"log4j2.xml", "log4j2-async.xml"})
+    public String configuration;
+
+    private Logger log;
+
+    @Setup(Level.Trial)
+    public void configure() throws Exception {
+        Configurator.reconfigure(getClass().getClassLoader().getResource(configuration).toURI());
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        context.getConfiguration().getRootLogger().removeAppender("STDOUT");
+        context.updateLoggers();
+        log = LogManager.getLogger("Steps");
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        LogManager.shutdown();
+    }
+
+    /** Each benchmark thread stands for a test thread with its own driver. */
+    @State(Scope.Thread)
+    public static class TestThread {
+        private static final AtomicInteger ids = new AtomicInteger();
+        private int step;
+
+        @Setup(Level.Trial)
+        public void start() {
+            int id = ids.incrementAndGet();
+            ThreadContext.put("driverId", String.valueOf(1000 + id));
+            ThreadContext.put("testName", "benchmarkTest" + id);
+        }
+    }
+
+    @Benchmark
+    public void logCall(TestThread thread) {
+        log.info("Clicked element {} on page {}", thread.step++, "checkout");
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import core.report.PagedReportWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to write a report of 10k and 100k synthetic tests (20 per class, every 10th failing) with
+ * the paged report writer and with the Extent Spark reporter. Each run also prints the peak heap
+ * use during the run, next to the time.
+ * <p>
+ * <pre>
+ * mvn -B -Pbenchmark test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main PagedReportBenchmark
+ * </pre>
+ * Spark at 100k tests needs a large heap; add {@code -jvmArgs -Xmx4g} or leave it out with {@code -p writer=paged}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PagedReportBenchmark {
+    private static final int TESTS_PER_CLASS = 20;
+    private static final String STEP = "Clicked the element and waited for the page to settle";
+
+    @Param({"10000", "100000"})
+    public int tests;
+
+    @Param({"paged", "spark"})
+    public String writer;
+
+    private Path dir;
+
+    @Setup(Level.Invocation)
+    public void createFolder() throws IOException {
+        dir = Files.createTempDirectory("paged-report-benchmark");
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeFolder() throws IOException {
+        long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        System.out.println("peak heap during the run: " + peak / (1024 * 1024) + " MB");
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Object write() throws IOException {
+        return writer.equals("paged") ? writePaged() : writeSpark();
+    }
+
+    private Object writePaged() throws IOException {
+        PagedReportWriter report = new PagedReportWriter(dir.toFile(), 500);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < tests; i++) {
+            String className = "tests.SyntheticTest" + i / TESTS_PER_CLASS;
+            boolean failed = i % 10 == 0;
+            report.addResult(className, "test" + i, failed ? "fail" : "pass", start + i, start + i + 250,
+                    null, "worker-" + i % 3, failed ? new AssertionError("expected [true] but found [false]") : null);
+            if (i % TESTS_PER_CLASS == TESTS_PER_CLASS - 1) {
+                report.finishClass(className);
+            }
+        }
+        report.flush();
+        return report;
+    }
+
+    private Object writeSpark() {
+        ExtentReports extent = new ExtentReports();
+        extent.attachReporter(new ExtentSparkReporter(dir.resolve("ExtentReport.html").toFile()));
+        ExtentTest classNode = null;
+        for (int i = 0; i < tests; i++) {
+            if (i % TESTS_PER_CLASS == 0) {
+                classNode = extent.createTest("SyntheticTest" + i / TESTS_PER_CLASS);
+            }
+            ExtentTest test = classNode.createNode("test" + i);
+            test.info(STEP);
+            if (i % 10 == 0) {
+                test.fail(new AssertionError("expected [true] but found [false]"));
+            } else {
+                test.pass("passed");
+            }
+        }
+        extent.flush();
+        return extent;
+    }
+}
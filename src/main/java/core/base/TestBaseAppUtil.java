@@ -1,14 +1,22 @@
 package core.base;
 
+import core.history.DurationHistory;
+import core.logging.LogProfile;
+import core.timeline.ExecutionTimeline;
 import io.github.bonigarcia.wdm.WebDriverManager;
+import managers.DisplayManager;
 import managers.DriverManager;
+import managers.RecorderManager;
 import org.apache.logging.log4j.ThreadContext;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeDriverService;
 import org.openqa.selenium.edge.EdgeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.GeckoDriverService;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.safari.SafariOptions;
@@ -17,6 +25,7 @@ import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeTest;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
@@ -101,6 +110,9 @@ public class TestBaseAppUtil {
      * @return The initialized WebDriver instance.
      */
     private WebDriver initDriverCore(String BrowserName, String driverPath, String customOptions) {
+        // LOG_PROFILE has to be in place before the test starts logging
+        LogProfile.apply();
+        long launchStart = System.currentTimeMillis();
         WebDriver driver;
         // Map to hold preferences (for Chrome, Edge, Firefox)
         Map<String, Object> prefs = new HashMap<>();
@@ -163,7 +175,9 @@ public class TestBaseAppUtil {
             }
             // Apply arguments and capabilities
             applyOptions(options, customOptions, caps);
-            driver = new EdgeDriver(options);
+            Map<String, String> environment = getDisplayEnvironment(BrowserName);
+            driver = environment.isEmpty() ? new EdgeDriver(options)
+                    : new EdgeDriver(new EdgeDriverService.Builder().withEnvironment(environment).build(), options);
         } else if (BrowserName.contains("chrome")) {
             if (driverPath != null && !driverPath.isEmpty()) {
                 System.setProperty("webdriver.chrome.driver", driverPath);
@@ -180,8 +194,9 @@ public class TestBaseAppUtil {
             }
             // Apply arguments and capabilities
             applyOptions(options, customOptions, caps);
-
-            driver = new ChromeDriver(options);
+            Map<String, String> environment = getDisplayEnvironment(BrowserName);
+            driver = environment.isEmpty() ? new ChromeDriver(options)
+                    : new ChromeDriver(new ChromeDriverService.Builder().withEnvironment(environment).build(), options);
         } else if (BrowserName.contains("firefox")) {
             if (driverPath != null && !driverPath.isEmpty()) {
                 System.setProperty("webdriver.gecko.driver", driverPath);
@@ -196,7 +211,9 @@ public class TestBaseAppUtil {
             }
             // Apply arguments and capabilities
             applyOptions(options, customOptions, caps);
-            driver = new FirefoxDriver(options);
+            Map<String, String> environment = getDisplayEnvironment(BrowserName);
+            driver = environment.isEmpty() ? new FirefoxDriver(options)
+                    : new FirefoxDriver(new GeckoDriverService.Builder().withEnvironment(environment).build(), options);
         } else if (BrowserName.contains("safari")) {
             // Safari driver is managed by the OS and WebDriverManager setup is redundant
             if (driverPath != null && !driverPath.isEmpty()) {
@@ -211,10 +228,32 @@ public class TestBaseAppUtil {
             throw new IllegalArgumentException("Unsupported browser specified: " + BrowserName +
                     ". Supported browsers are: edge, chrome, firefox, safari, edge headless, chrome headless, firefox headless");
         }
+        driver = RecorderManager.prepareDriver(driver);
         DriverManager.setDriver(driver);
+        long launchEnd = System.currentTimeMillis();
+        ExecutionTimeline.record(ExecutionTimeline.LAUNCH, BrowserName, launchStart, launchEnd);
+        DurationHistory.launchFinished(launchEnd - launchStart);
         ThreadContext.put("driverId",String.valueOf(System.identityHashCode(DriverManager.getDriver())));
         return driver;
     }
+    /**
+     * Returns the DISPLAY variable of the current worker's virtual display for the driver service,
+     * or an empty map when virtual displays are off or the browser runs headless.
+     */
+    private Map<String, String> getDisplayEnvironment(String browserName) {
+        if (browserName.contains("headless") || !DisplayManager.isEnabled()) {
+            return new HashMap<>();
+        }
+        try {
+            DisplayManager.VirtualDisplay display = DisplayManager.getOrStartDisplay();
+            Map<String, String> environment = new HashMap<>();
+            environment.put("DISPLAY", display.getName());
+            return environment;
+        } catch (IOException e) {
+            System.err.println("Virtual display could not be started, using the default display: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
     /**
      * Helper method to apply command-line arguments and capabilities to the browser options.
      * This method assumes the options object has a compatible method (like addArguments/setCapability).
@@ -0,0 +1,302 @@
+package core.history;
+
+import core.history.DurationStore.Invocation;
+import core.logging.LogStore;
+import managers.ExtentManager;
+import org.testng.ITestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * <b>Remembers how long every test took in earlier runs.</b> The listeners record each invocation
+ * in a {@link DurationStore} (DURATION_HISTORY_FILE): its duration, the browser launch time charged
+ * to it, its status and the size of its screenshots, logs and videos, keyed by class, method and
+ * parameters.
+ * <p>
+ * The history is read once, before the first test, and queried from that snapshot, so what the
+ * current run records does not change the answers during the run. When a TestNG test finishes a
+ * page in DURATION_TREND_FOLDER, linked from the report's system info, compares the run with the
+ * history and flags tests that got more than DURATION_REGRESSION_PCT percent and
+ * DURATION_REGRESSION_MIN_MS slower than their median.
+ * <p>
+ * Off unless DURATION_HISTORY=true, nothing is read or written then.
+ */
+public class DurationHistory {
+    private static final boolean DURATION_HISTORY = getBoolProp("DURATION_HISTORY", false);
+    private static final String HISTORY_FILE = getStrProp("DURATION_HISTORY_FILE", "test-history/durations.jsonl");
+    private static final int KEEP = getIntProp("DURATION_HISTORY_KEEP", 20);
+    private static final int MAX_AGE_DAYS = getIntProp("DURATION_HISTORY_MAX_AGE_DAYS", 90);
+    private static final int REGRESSION_PCT = getIntProp("DURATION_REGRESSION_PCT", 50);
+    private static final int REGRESSION_MIN_MS = getIntProp("DURATION_REGRESSION_MIN_MS", 500);
+    private static final int TREND_MIN_RUNS = getIntProp("DURATION_TREND_MIN_RUNS", 3);
+    private static final String TREND_FOLDER = getStrProp("DURATION_TREND_FOLDER", "duration-trend");
+    private static final int MAX_TREND_ROWS = 50;
+    private static final String LAUNCH_ATTRIBUTE = "durationHistory.launchMillis";
+    private static final String ARTIFACT_ATTRIBUTE = "durationHistory.artifactBytes";
+    // Unicode block elements U+2581 to U+2588, written as character references
+    private static final int SPARK_BARS = 8;
+
+    private static final ThreadLocal<Long> pendingLaunch = new ThreadLocal<>();
+    // Durations of the current run not yet compared in a trend node, by test key
+    private static final Map<String, List<Long>> currentRun = new ConcurrentHashMap<>();
+    private static final long runId = System.currentTimeMillis();
+
+    private static DurationStore store;
+    private static Map<String, DurationStats> baseline = Collections.emptyMap();
+    private static Map<String, List<DurationStats>> baselineByClass = Collections.emptyMap();
+    private static boolean failed;
+
+    /**
+     * Remembers a browser launch of the current thread, it is charged to the next test the thread
+     * starts. Called by TestBaseAppUtil after the driver was created.
+     */
+    public static void launchFinished(long launchMillis) {
+        if (DURATION_HISTORY) {
+            pendingLaunch.set(launchMillis);
+        }
+    }
+
+    /**
+     * Charges the pending browser launch of the thread to the test. Called by the listeners on
+     * the test thread when a test starts.
+     */
+    public static void testStarted(ITestResult result) {
+        Long launch = pendingLaunch.get();
+        if (launch != null) {
+            pendingLaunch.remove();
+            result.setAttribute(LAUNCH_ATTRIBUTE, launch);
+        }
+    }
+
+    /**
+     * Adds the size of a screenshot, log or video to the test. Called by the attachment stages.
+     */
+    public static void addArtifactBytes(ITestResult result, long bytes) {
+        synchronized (result) {
+            Object recorded = result.getAttribute(ARTIFACT_ATTRIBUTE);
+            result.setAttribute(ARTIFACT_ATTRIBUTE, (recorded == null ? 0L : (Long) recorded) + bytes);
+        }
+    }
+
+    /**
+     * <b>Appends the invocation to the history.</b> Called by the listeners after the test's
+     * attachments were added, so their sizes are known.
+     */
+    public static void testFinished(ITestResult result) {
+        DurationStore historyStore = open();
+        if (historyStore == null) {
+            return;
+        }
+        String status = result.getStatus() == ITestResult.SUCCESS ? "pass"
+                : result.getStatus() == ITestResult.SKIP ? "skip" : "fail";
+        Object[] params = result.getParameters();
+        Object launch = result.getAttribute(LAUNCH_ATTRIBUTE);
+        Object artifacts;
+        synchronized (result) {
+            artifacts = result.getAttribute(ARTIFACT_ATTRIBUTE);
+        }
+        Invocation invocation = new Invocation(runId, result.getEndMillis(), result.getTestClass().getRealClass().getName(),
+                result.getMethod().getMethodName(), params.length > 0 ? Arrays.toString(params) : null, status,
+                Math.max(0, result.getEndMillis() - result.getStartMillis()),
+                launch == null ? 0 : (Long) launch, artifacts == null ? 0 : (Long) artifacts);
+        if (status.equals("pass")) {
+            currentRun.computeIfAbsent(invocation.key(), key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(invocation.millis);
+        }
+        try {
+            historyStore.append(invocation);
+        } catch (IOException e) {
+            System.err.println("Failed to record the duration of " + invocation.methodName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the history of one test, or null when it has none.
+     *
+     * @param parameters The parameters as {@code Arrays.toString} prints them, null without parameters.
+     */
+    public static DurationStats query(String className, String methodName, String parameters) {
+        open();
+        return baseline.get(DurationStore.key(className, methodName, parameters));
+    }
+
+    /** Returns the history of every test of a class, for each method and parameters. */
+    public static List<DurationStats> queryClass(String className) {
+        open();
+        return baselineByClass.getOrDefault(className, Collections.emptyList());
+    }
+
+    /** Returns the history of every recorded test. */
+    public static Collection<DurationStats> queryAll() {
+        open();
+        return Collections.unmodifiableCollection(baseline.values());
+    }
+
+    /**
+     * Returns the expected time of a class: the median duration of each of its tests times how
+     * often it runs, plus the browser launches charged to them, or -1 when the class has no history.
+     * Tests that never passed count with the median of their failures.
+     */
+    public static long expectedClassMillis(String className) {
+        List<DurationStats> ofClass = queryClass(className);
+        if (ofClass.isEmpty()) {
+            return -1;
+        }
+        double expected = 0;
+        for (DurationStats stats : ofClass) {
+            long median = stats.getMedianMillis() >= 0 ? stats.getMedianMillis() : stats.getMedianAllMillis();
+            expected += median * stats.getInvocationsPerRun() + stats.getLaunchMillisPerRun();
+        }
+        return Math.round(expected);
+    }
+
+    /**
+     * <b>Writes the duration trend and links it from the report</b>: the tests of the run so far
+     * that are slower or faster than their history. Called by the listeners when a TestNG test
+     * finishes, before the report is flushed.
+     *
+     * @param name The name of the TestNG test.
+     */
+    public static void writeReport(String name) {
+        if (open() == null || currentRun.isEmpty()) {
+            return;
+        }
+        // Rows with their change in percent, sorted by the change when added to the node
+        List<Map.Entry<Double, String[]>> regressions = new ArrayList<>();
+        List<Map.Entry<Double, String[]>> improvements = new ArrayList<>();
+        int compared = 0;
+        int added = 0;
+        for (String key : new ArrayList<>(currentRun.keySet())) {
+            List<Long> durations = currentRun.remove(key);
+            DurationStats stats = baseline.get(key);
+            if (stats == null || stats.getPassedRuns() < TREND_MIN_RUNS) {
+                added++;
+                continue;
+            }
+            compared++;
+            long now;
+            synchronized (durations) {
+                now = DurationStats.median(durations.stream().mapToLong(Long::longValue).toArray());
+            }
+            long median = stats.getMedianMillis();
+            double change = median == 0 ? 0 : (now - median) * 100.0 / median;
+            if (Math.abs(now - median) < REGRESSION_MIN_MS || Math.abs(change) <= REGRESSION_PCT) {
+                continue;
+            }
+            String[] row = {stats.getClassName() + "." + stats.getMethodName()
+                    + (stats.getParameters() == null ? "" : " " + stats.getParameters()),
+                    median + " ms", stats.getP90Millis() + " ms", now + " ms", String.format("%+.0f%%", change),
+                    sparkline(stats.getRecentMillis(), now)};
+            (change > 0 ? regressions : improvements).add(new AbstractMap.SimpleEntry<>(change, row));
+        }
+        regressions.sort(Map.Entry.<Double, String[]>comparingByKey().reversed());
+        improvements.sort(Map.Entry.comparingByKey());
+
+        String summary = compared + " test(s) compared with their history, "
+                + regressions.size() + " slower and " + improvements.size() + " faster by more than "
+                + REGRESSION_PCT + "% and " + REGRESSION_MIN_MS + " ms, " + added + " without enough history";
+        String title = "Duration trend: " + LogStore.escapeHtml(name);
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset='UTF-8'><title>")
+                .append(title).append("</title></head><body><h2>").append(title).append("</h2><p>")
+                .append(summary).append("</p>");
+        appendTable(html, "Slower than usual", regressions);
+        appendTable(html, "Faster than usual", improvements);
+        html.append("</body></html>");
+        File reportDir = new File(ExtentManager.getReportFilePath()).getAbsoluteFile().getParentFile();
+        File pageFile = new File(new File(reportDir, TREND_FOLDER),
+                "duration-trend-" + name.replaceAll("[^A-Za-z0-9_.-]", "_") + ".html");
+        try {
+            pageFile.getParentFile().mkdirs();
+            Files.write(pageFile.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Failed to write the duration trend " + pageFile + ": " + e.getMessage());
+            return;
+        }
+        String link = LogStore.escapeHtml(TREND_FOLDER + "/" + pageFile.getName());
+        ExtentManager.getReportInstance().setSystemInfo(title, "<a href='" + link + "' target='_blank'>"
+                + (regressions.isEmpty() ? "" : "<b>" + regressions.size() + " slower than usual</b>, ")
+                + compared + " compared</a>");
+        System.out.println("INFO: Duration trend: " + summary + ". " + store.getStats() + ", " + pageFile.getAbsolutePath());
+    }
+
+    private static void appendTable(StringBuilder html, String title, List<Map.Entry<Double, String[]>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        html.append("<p><b>").append(title).append("</b></p><table class='table table-sm'><tr><th>Test</th>")
+                .append("<th>Median</th><th>p90</th><th>This run</th><th>Change</th><th>History</th></tr>");
+        for (Map.Entry<Double, String[]> row : rows.subList(0, Math.min(rows.size(), MAX_TREND_ROWS))) {
+            html.append("<tr>");
+            String[] cells = row.getValue();
+            for (int i = 0; i < cells.length; i++) {
+                // The last cell is the history as character references
+                html.append("<td>").append(i == cells.length - 1 ? cells[i] : LogStore.escapeHtml(cells[i])).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        if (rows.size() > MAX_TREND_ROWS) {
+            html.append("<tr><td colspan='6'>").append(rows.size() - MAX_TREND_ROWS).append(" more</td></tr>");
+        }
+        html.append("</table>");
+    }
+
+    // The recorded durations and this run's as bars scaled to the longest
+    private static String sparkline(long[] history, long now) {
+        long max = now;
+        for (long millis : history) {
+            max = Math.max(max, millis);
+        }
+        StringBuilder bars = new StringBuilder();
+        for (long millis : history) {
+            bars.append(bar(millis, max));
+        }
+        return bars.append(" | ").append(bar(now, max)).toString();
+    }
+
+    private static String bar(long millis, long max) {
+        int height = max == 0 ? 0 : (int) Math.min(SPARK_BARS - 1, millis * SPARK_BARS / (max + 1));
+        return "&#" + (0x2581 + height) + ";";
+    }
+
+    private static synchronized DurationStore open() {
+        if (!DURATION_HISTORY || failed) {
+            return null;
+        }
+        if (store == null) {
+            DurationStore historyStore = new DurationStore(new File(HISTORY_FILE), KEEP, MAX_AGE_DAYS);
+            try {
+                Map<String, DurationStats> loaded = new LinkedHashMap<>();
+                Map<String, List<DurationStats>> loadedByClass = new LinkedHashMap<>();
+                for (Map.Entry<String, Deque<Invocation>> ofTest : historyStore.load().entrySet()) {
+                    DurationStats stats = new DurationStats(ofTest.getValue());
+                    loaded.put(ofTest.getKey(), stats);
+                    loadedByClass.computeIfAbsent(stats.getClassName(), name -> new ArrayList<>()).add(stats);
+                }
+                baseline = loaded;
+                baselineByClass = loadedByClass;
+                store = historyStore;
+            } catch (IOException e) {
+                System.err.println("Failed to read the duration history " + HISTORY_FILE + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        return store;
+    }
+}
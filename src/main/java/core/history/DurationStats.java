@@ -0,0 +1,138 @@
+package core.history;
+
+import core.history.DurationStore.Invocation;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The recorded durations of one test: class, method and parameters. Duration figures are taken
+ * from the passed invocations only, failures often stop early or wait for a timeout.
+ */
+public class DurationStats {
+    private final String className;
+    private final String methodName;
+    private final String parameters;
+    private final int invocations;
+    private final int passed;
+    private final int passedRuns;
+    private final long[] passedMillis;
+    private final long medianAllMillis;
+    private final int runs;
+    private final long launchMillisPerRun;
+    private final long medianArtifactBytes;
+    private final String lastStatus;
+
+    DurationStats(Collection<Invocation> ofTest) {
+        Invocation first = ofTest.iterator().next();
+        className = first.className;
+        methodName = first.methodName;
+        parameters = first.parameters;
+        invocations = ofTest.size();
+        passedMillis = ofTest.stream().filter(invocation -> invocation.status.equals("pass"))
+                .mapToLong(invocation -> invocation.millis).toArray();
+        passed = passedMillis.length;
+        medianAllMillis = median(ofTest.stream().mapToLong(invocation -> invocation.millis).toArray());
+        passedRuns = (int) ofTest.stream().filter(invocation -> invocation.status.equals("pass"))
+                .mapToLong(invocation -> invocation.run).distinct().count();
+        runs = (int) ofTest.stream().mapToLong(invocation -> invocation.run).distinct().count();
+        launchMillisPerRun = ofTest.stream().mapToLong(invocation -> invocation.launchMillis).sum() / runs;
+        medianArtifactBytes = median(ofTest.stream().mapToLong(invocation -> invocation.artifactBytes).toArray());
+        String status = null;
+        for (Invocation invocation : ofTest) {
+            status = invocation.status;
+        }
+        lastStatus = status;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /** Returns the parameters as text, or null for a test without parameters. */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /** Returns the number of recorded invocations, of any status. */
+    public int getInvocations() {
+        return invocations;
+    }
+
+    /** Returns the number of recorded invocations that passed. */
+    public int getPassed() {
+        return passed;
+    }
+
+    /** Returns the number of earlier runs in which the test passed at least once. */
+    public int getPassedRuns() {
+        return passedRuns;
+    }
+
+    /** Returns the median duration of the passed invocations, or -1 when none passed. */
+    public long getMedianMillis() {
+        return passed == 0 ? -1 : median(passedMillis);
+    }
+
+    /** Returns the median duration of all invocations, passed or not. */
+    public long getMedianAllMillis() {
+        return medianAllMillis;
+    }
+
+    /** Returns the 90th percentile duration of the passed invocations, or -1 when none passed. */
+    public long getP90Millis() {
+        if (passed == 0) {
+            return -1;
+        }
+        long[] sorted = passedMillis.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.9) - 1)];
+    }
+
+    /** Returns the durations of the passed invocations, oldest first. */
+    public long[] getRecentMillis() {
+        return passedMillis.clone();
+    }
+
+    /** Returns the number of earlier runs the test was recorded in. */
+    public int getRuns() {
+        return runs;
+    }
+
+    /** Returns how often the test ran per run, more than 1 with invocationCount. */
+    public double getInvocationsPerRun() {
+        return invocations / (double) runs;
+    }
+
+    /**
+     * Returns the browser launch time charged to the test per run. A launch is charged to the
+     * first test its thread starts afterwards, so this is 0 for the other tests of a class.
+     */
+    public long getLaunchMillisPerRun() {
+        return launchMillisPerRun;
+    }
+
+    /** Returns the median size of the screenshots, logs and videos of the test. */
+    public long getMedianArtifactBytes() {
+        return medianArtifactBytes;
+    }
+
+    /** Returns the status of the latest invocation: pass, fail or skip. */
+    public String getLastStatus() {
+        return lastStatus;
+    }
+
+    static long median(long[] values) {
+        if (values.length == 0) {
+            return 0;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
@@ -0,0 +1,242 @@
+package core.history;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An append-only file of test invocations, one JSON line each:
+ * {@code {"run":..,"time":..,"class":..,"method":..,"params":..,"status":..,"ms":..,"launch_ms":..,"artifact_bytes":..}}.
+ * <p>
+ * {@link #load} reads the file once and keeps the last keepPerTest invocations of every test;
+ * when the file holds much more than that, or invocations older than maxAgeDays, it is compacted:
+ * rewritten with only the kept invocations and moved over the old file. New invocations are
+ * appended and flushed line by line, so a crashed run keeps what it recorded.
+ */
+public class DurationStore {
+    // The file is compacted when it holds this many times the invocations that are kept
+    private static final int COMPACT_FACTOR = 2;
+
+    private final File file;
+    private final int keepPerTest;
+    private final long maxAgeMillis;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Map<String, Deque<Invocation>> invocations = new LinkedHashMap<>();
+    private Writer appendWriter;
+    private JsonGenerator appendJson;
+    private int linesRead;
+    private int kept;
+
+    /** One recorded test invocation. */
+    public static class Invocation {
+        public final long run;
+        public final long time;
+        public final String className;
+        public final String methodName;
+        public final String parameters;
+        public final String status;
+        public final long millis;
+        public final long launchMillis;
+        public final long artifactBytes;
+
+        public Invocation(long run, long time, String className, String methodName, String parameters, String status,
+                          long millis, long launchMillis, long artifactBytes) {
+            this.run = run;
+            this.time = time;
+            this.className = className;
+            this.methodName = methodName;
+            this.parameters = parameters;
+            this.status = status;
+            this.millis = millis;
+            this.launchMillis = launchMillis;
+            this.artifactBytes = artifactBytes;
+        }
+
+        /** Returns the key the invocations of one test are grouped by: class, method and parameters. */
+        public String key() {
+            return DurationStore.key(className, methodName, parameters);
+        }
+    }
+
+    /**
+     * @param file        The history file, created when missing.
+     * @param keepPerTest How many of the latest invocations of every test are kept.
+     * @param maxAgeDays  Invocations older than this are dropped when the file is compacted.
+     */
+    public DurationStore(File file, int keepPerTest, int maxAgeDays) {
+        this.file = file;
+        this.keepPerTest = Math.max(1, keepPerTest);
+        this.maxAgeMillis = maxAgeDays * 24L * 60 * 60 * 1000;
+    }
+
+    /** Returns the key of a test: class, method and parameters. */
+    public static String key(String className, String methodName, String parameters) {
+        return className + "#" + methodName + (parameters == null ? "" : parameters);
+    }
+
+    /**
+     * <b>Reads the history and compacts the file when it grew too large.</b> Lines that cannot be
+     * read, like the last line of a killed run, are skipped.
+     *
+     * @return The kept invocations of every test, oldest first, by {@link #key}.
+     */
+    public Map<String, Deque<Invocation>> load() throws IOException {
+        invocations.clear();
+        linesRead = 0;
+        kept = 0;
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        boolean expired = false;
+        if (file.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    linesRead++;
+                    Invocation invocation = parse(line);
+                    if (invocation == null) {
+                        continue;
+                    }
+                    if (invocation.time < oldest) {
+                        expired = true;
+                        continue;
+                    }
+                    Deque<Invocation> ofTest = invocations.computeIfAbsent(invocation.key(), key -> new ArrayDeque<>());
+                    ofTest.addLast(invocation);
+                    if (ofTest.size() > keepPerTest) {
+                        ofTest.removeFirst();
+                    } else {
+                        kept++;
+                    }
+                }
+            }
+        }
+        if (linesRead > kept * COMPACT_FACTOR || (expired && linesRead > kept)) {
+            compact();
+        }
+        return invocations;
+    }
+
+    /** Appends one invocation and flushes it to the file. */
+    public synchronized void append(Invocation invocation) throws IOException {
+        if (appendJson == null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            appendWriter = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            appendJson = createGenerator(appendWriter);
+            if (endsWithoutNewline()) {
+                // The last line of a killed run, the new invocations start on a line of their own
+                appendWriter.write('\n');
+            }
+        }
+        write(appendJson, invocation);
+        appendJson.flush();
+        appendWriter.write('\n');
+        appendWriter.flush();
+    }
+
+    /** Returns a one line summary of the last {@link #load}. */
+    public String getStats() {
+        return "Duration history: " + invocations.size() + " test(s), " + kept + " invocation(s) kept of "
+                + linesRead + " read from " + file.getPath();
+    }
+
+    // Writes the kept invocations to a new file and moves it over the old one
+    private void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        try (Writer writer = Files.newBufferedWriter(compacted.toPath(), StandardCharsets.UTF_8)) {
+            JsonGenerator json = createGenerator(writer);
+            for (Deque<Invocation> ofTest : invocations.values()) {
+                for (Invocation invocation : ofTest) {
+                    write(json, invocation);
+                    json.flush();
+                    writer.write('\n');
+                }
+            }
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("INFO: Compacted the duration history " + file.getPath() + " from " + linesRead
+                + " to " + kept + " invocation(s)");
+        linesRead = kept;
+    }
+
+    private boolean endsWithoutNewline() throws IOException {
+        if (file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    private JsonGenerator createGenerator(Writer writer) throws IOException {
+        JsonGenerator json = jsonFactory.createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        return json;
+    }
+
+    private static void write(JsonGenerator json, Invocation invocation) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("run", invocation.run);
+        json.writeNumberField("time", invocation.time);
+        json.writeStringField("class", invocation.className);
+        json.writeStringField("method", invocation.methodName);
+        if (invocation.parameters != null) {
+            json.writeStringField("params", invocation.parameters);
+        }
+        json.writeStringField("status", invocation.status);
+        json.writeNumberField("ms", invocation.millis);
+        json.writeNumberField("launch_ms", invocation.launchMillis);
+        json.writeNumberField("artifact_bytes", invocation.artifactBytes);
+        json.writeEndObject();
+    }
+
+    private Invocation parse(String line) {
+        long run = 0, time = 0, millis = 0, launchMillis = 0, artifactBytes = 0;
+        String className = null, methodName = null, parameters = null, status = null;
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "run": run = parser.getLongValue(); break;
+                    case "time": time = parser.getLongValue(); break;
+                    case "class": className = parser.getText(); break;
+                    case "method": methodName = parser.getText(); break;
+                    case "params": parameters = parser.getText(); break;
+                    case "status": status = parser.getText(); break;
+                    case "ms": millis = parser.getLongValue(); break;
+                    case "launch_ms": launchMillis = parser.getLongValue(); break;
+                    case "artifact_bytes": artifactBytes = parser.getLongValue(); break;
+                    default: parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        if (className == null || methodName == null || status == null) {
+            return null;
+        }
+        return new Invocation(run, time, className, methodName, parameters, status, millis, launchMillis, artifactBytes);
+    }
+}
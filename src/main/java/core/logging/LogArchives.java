@@ -0,0 +1,210 @@
+package core.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Treats the live log file and the files log4j2 rolled it into as one log, oldest first.
+ * Rolled files ({@code AppUtils-<date>-<n>.log.gz} in LOG_ARCHIVE_DIR, by default the "archive"
+ * folder next to the live file) are decompressed once, in parallel, into LOG_ARCHIVE_CACHE_DIR and
+ * indexed by {@link LogIndex}, whose start lines are saved next to the copy. Copy and index are
+ * reused, also by later runs, until the archive changes (size or modification time).
+ * The archives are only opened when a test is not found in the live file.
+ */
+public class LogArchives {
+    private static final boolean SEARCH_ARCHIVES = getBoolProp("LOG_SEARCH_ARCHIVES", true);
+    // Empty: "archive" and "archive-cache" next to the live file, as in log4j2.xml
+    private static final String ARCHIVE_DIR = getStrProp("LOG_ARCHIVE_DIR", "");
+    private static final String CACHE_DIR = getStrProp("LOG_ARCHIVE_CACHE_DIR", "");
+    private static final int THREADS = getIntProp("LOG_ARCHIVE_THREADS", Runtime.getRuntime().availableProcessors());
+
+    // log4j2's filePattern: AppUtils-%d{yyyy-MM-dd}-%i.log.gz
+    private static final Pattern ROLLED_NAME = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})-(\\d+)\\.log(\\.gz)?$");
+
+    private static ExecutorService executor;
+    // Rolled files only change when log4j2 rolls over, which also changes the folder
+    private static File preparedDir;
+    private static long preparedDirModified;
+    private static List<Path> prepared = List.of();
+
+    /**
+     * Returns the logs of a test from the live file or, when it is not there, from the rolled files.
+     * Logs of a test that was running while the file was rolled over are read across both files.
+     *
+     * @return The log lines joined with "\n", empty when no start line was found.
+     */
+    public static String extract(Path liveFile, String testCaseName, String driverID) throws IOException {
+        LogIndex.StartLine start = LogIndex.forFile(liveFile).find(testCaseName, driverID);
+        if (start != null && (start.namesTest(testCaseName) || !SEARCH_ARCHIVES)) {
+            return LogIndex.readCapture(List.of(liveFile), 0, start, testCaseName, driverID);
+        }
+        if (!SEARCH_ARCHIVES) {
+            return "";
+        }
+        List<Path> files = new ArrayList<>(prepare(liveFile));
+        files.add(liveFile);
+        // A start line where the name is only part of a longer test name is the last resort in every file
+        LogIndex.StartLine partial = start;
+        int partialFile = files.size() - 1;
+        // Newest first, so a test run more than once is found at its latest run
+        for (int i = files.size() - 2; i >= 0; i--) {
+            start = LogIndex.forFile(files.get(i)).find(testCaseName, driverID);
+            if (start == null) {
+                continue;
+            }
+            if (start.namesTest(testCaseName)) {
+                return LogIndex.readCapture(files, i, start, testCaseName, driverID);
+            }
+            if (partial == null) {
+                partial = start;
+                partialFile = i;
+            }
+        }
+        return partial == null ? "" : LogIndex.readCapture(files, partialFile, partial, testCaseName, driverID);
+    }
+
+    /**
+     * Decompresses and indexes the rolled files that are not cached yet.
+     *
+     * @return The readable rolled files, oldest first.
+     */
+    static synchronized List<Path> prepare(Path liveFile) throws IOException {
+        File logDir = liveFile.toAbsolutePath().getParent().toFile();
+        File archiveDir = ARCHIVE_DIR.isEmpty() ? new File(logDir, "archive") : new File(ARCHIVE_DIR);
+        if (archiveDir.equals(preparedDir) && archiveDir.lastModified() == preparedDirModified) {
+            return prepared;
+        }
+        long dirModified = archiveDir.lastModified();
+        File[] rolled = archiveDir.listFiles((dir, name) -> name.endsWith(".log.gz") || name.endsWith(".log"));
+        if (rolled == null || rolled.length == 0) {
+            return List.of();
+        }
+        Arrays.sort(rolled, Comparator.comparing(LogArchives::orderKey));
+        File cacheDir = CACHE_DIR.isEmpty() ? new File(logDir, "archive-cache") : new File(CACHE_DIR);
+        cacheDir.mkdirs();
+        List<Path> readable = new ArrayList<>();
+        List<Callable<Void>> work = new ArrayList<>();
+        for (File archive : rolled) {
+            if (!archive.getName().endsWith(".gz")) {
+                readable.add(archive.toPath());
+                work.add(() -> {
+                    LogIndex.forFile(archive.toPath()).refresh();
+                    return null;
+                });
+                continue;
+            }
+            Path plain = cacheDir.toPath().resolve(archive.getName().replaceAll("\\.gz$", "")
+                    .replaceAll("\\.log$", "") + "." + archive.length() + "-" + archive.lastModified() + ".log");
+            readable.add(plain);
+            work.add(() -> {
+                if (!Files.exists(plain)) {
+                    decompress(archive.toPath(), plain);
+                }
+                LogIndex index = LogIndex.forFile(plain);
+                Path saved = indexFileOf(plain);
+                if (!index.load(saved)) {
+                    index.save(saved);
+                }
+                return null;
+            });
+        }
+        runAll(work);
+        removeStaleCopies(cacheDir, readable);
+        preparedDir = archiveDir;
+        preparedDirModified = dirModified;
+        prepared = readable;
+        return readable;
+    }
+
+    private static Path indexFileOf(Path copy) {
+        return copy.resolveSibling(copy.getFileName() + ".idx");
+    }
+
+    private static void decompress(Path archive, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive), 1 << 16)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void runAll(List<Callable<Void>> work) throws IOException {
+        List<Future<Void>> results;
+        try {
+            results = getExecutor().invokeAll(work);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading rolled log files", e);
+        }
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading rolled log files", e);
+            } catch (ExecutionException e) {
+                // One unreadable archive should not hide the others
+                System.err.println("Failed to read rolled log file: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    // Copies of archives that were deleted or renamed by the rollover strategy
+    private static void removeStaleCopies(File cacheDir, List<Path> readable) {
+        Set<String> current = new HashSet<>();
+        for (Path path : readable) {
+            current.add(path.getFileName().toString());
+            current.add(indexFileOf(path).getFileName().toString());
+        }
+        for (File copy : Objects.requireNonNullElse(cacheDir.listFiles(), new File[0])) {
+            if (!current.contains(copy.getName())) {
+                LogIndex.forget(copy.toPath());
+                copy.delete();
+            }
+        }
+    }
+
+    // Date and counter from the file name, the modification time for other names
+    private static String orderKey(File file) {
+        Matcher matcher = ROLLED_NAME.matcher(file.getName());
+        if (matcher.find()) {
+            return matcher.group(1) + String.format("-%010d", Long.parseLong(matcher.group(2)));
+        }
+        return String.format("%020d", file.lastModified());
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, THREADS), r -> {
+                Thread thread = new Thread(r, "log-archive-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+}
@@ -0,0 +1,300 @@
+package core.logging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Index of the test start lines in a log file, so a test's logs can be read without scanning the
+ * whole file again for every test.
+ * The file is read once, incrementally: each lookup only indexes the lines written since the
+ * previous one. Start lines are kept per driver id (the first {@code [...]} of the line) with their
+ * byte offset, and extraction reads forward from that offset until the test's end marker or
+ * MAX_CAPTURE_LINES lines. When the file is rolled over (replaced or truncated) the index starts again;
+ * {@link LogArchives} keeps indexes of the rolled files.
+ */
+public class LogIndex {
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final Map<Path, LogIndex> indexes = new ConcurrentHashMap<>();
+
+    private static final byte[] START_MARKER = getStrProp("START_MARKER", "Test case started").getBytes(StandardCharsets.UTF_8);
+    private static final String END_PASS_MARKER = getStrProp("END_PASS_MARKER", "Test case pass");
+    private static final String END_FAIL_MARKER = getStrProp("END_FAIL_MARKER", "Test case fail");
+    private static final int MAX_CAPTURE_LINES = getIntProp("MAX_CAPTURE_LINES", 500);
+
+    private final Path file;
+
+    private final Map<String, List<StartLine>> startsByDriverId = new HashMap<>();
+    private final List<StartLine> allStarts = new ArrayList<>();
+    private Object fileKey;
+    private long indexedUpTo;
+    private long linesIndexed;
+
+    /** A test's start line and where it is in the file. */
+    static class StartLine {
+        private final long offset;
+        private final String text;
+
+        StartLine(long offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        /** True when the line names the test as a whole word, not only as part of a longer name. */
+        boolean namesTest(String testCaseName) {
+            return containsWord(text, testCaseName);
+        }
+    }
+
+    private LogIndex(Path file) {
+        this.file = file;
+    }
+
+    /** Returns the shared index of a log file. */
+    public static LogIndex forFile(Path file) {
+        return indexes.computeIfAbsent(file.toAbsolutePath().normalize(), LogIndex::new);
+    }
+
+    /** Drops the index of a file that was deleted. */
+    static void forget(Path file) {
+        indexes.remove(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Returns the logs of a test: its start line (containing the driver id in brackets, the test
+     * name and START_MARKER) and the following lines of the same driver id or test name, up to
+     * the END_PASS_MARKER / END_FAIL_MARKER line. When the test was started more than once with
+     * the same driver id, the latest run is returned; a start line where the name is only part of
+     * a longer test name is used only when there is no exact one.
+     *
+     * @return The log lines joined with "\n", empty when no start line was found.
+     */
+    public String extract(String testCaseName, String driverID) throws IOException {
+        StartLine start = find(testCaseName, driverID);
+        return start == null ? "" : readCapture(List.of(file), 0, start, testCaseName, driverID);
+    }
+
+    /**
+     * Returns the latest start line of the test in this file, or null when there is none.
+     * Indexes the lines appended since the previous call first.
+     */
+    synchronized StartLine find(String testCaseName, String driverID) throws IOException {
+        update();
+        String driverToken = "[" + driverID + "]";
+        StartLine start = findStart(startsByDriverId.getOrDefault(driverID, List.of()), testCaseName, driverToken);
+        if (start == null) {
+            // The driver id was not the first bracket of the line (custom layout)
+            start = findStart(allStarts, testCaseName, driverToken);
+        }
+        return start;
+    }
+
+    /** Indexes the lines appended since the previous call. */
+    synchronized void refresh() throws IOException {
+        update();
+    }
+
+    /**
+     * Writes the start lines to a file, so the index of a file that no longer changes (a rolled
+     * log) does not have to be built again by the next run.
+     */
+    synchronized void save(Path indexFile) throws IOException {
+        update();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.valueOf(indexedUpTo));
+        for (StartLine start : allStarts) {
+            lines.add(start.offset + "\t" + start.text);
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores the start lines written by {@link #save(Path)}.
+     *
+     * @return false when there is no saved index or it does not fit the file; the index is then unchanged.
+     */
+    synchronized boolean load(Path indexFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (indexedUpTo > 0 && indexedUpTo == attributes.size()) {
+            return true;
+        }
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || Long.parseLong(lines.get(0)) != attributes.size()) {
+            return false;
+        }
+        startsByDriverId.clear();
+        allStarts.clear();
+        for (String line : lines.subList(1, lines.size())) {
+            int tab = line.indexOf('\t');
+            addStart(new StartLine(Long.parseLong(line.substring(0, tab)), line.substring(tab + 1)));
+        }
+        indexedUpTo = attributes.size();
+        fileKey = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        return true;
+    }
+
+    /** Number of lines indexed so far, for diagnostics. */
+    public synchronized long getLinesIndexed() {
+        return linesIndexed;
+    }
+
+    // A start line naming the test as a whole word wins over one where it is part of a longer name
+    private static StartLine findStart(List<StartLine> starts, String testCaseName, String driverToken) {
+        StartLine partial = null;
+        for (int i = starts.size() - 1; i >= 0; i--) {
+            StartLine start = starts.get(i);
+            if (!start.text.contains(driverToken) || !start.text.contains(testCaseName)) {
+                continue;
+            }
+            if (containsWord(start.text, testCaseName)) {
+                return start;
+            }
+            if (partial == null) {
+                partial = start;
+            }
+        }
+        return partial;
+    }
+
+    private static boolean containsWord(String text, String word) {
+        for (int at = text.indexOf(word); at >= 0; at = text.indexOf(word, at + 1)) {
+            int after = at + word.length();
+            if ((at == 0 || !Character.isJavaIdentifierPart(text.charAt(at - 1)))
+                    && (after == text.length() || !Character.isJavaIdentifierPart(text.charAt(after)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Indexes the complete lines appended since the last call
+    private void update() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Object key = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        if (!Objects.equals(key, fileKey) || attributes.size() < indexedUpTo) {
+            startsByDriverId.clear();
+            allStarts.clear();
+            indexedUpTo = 0;
+            fileKey = key;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            long position = indexedUpTo;
+            byte[] pending = new byte[0];
+            long pendingOffset = position;
+            while (channel.read(buffer, position) > 0) {
+                buffer.flip();
+                byte[] chunk = new byte[pending.length + buffer.remaining()];
+                System.arraycopy(pending, 0, chunk, 0, pending.length);
+                buffer.get(chunk, pending.length, buffer.remaining());
+                position += chunk.length - pending.length;
+                buffer.clear();
+                int lineStart = 0;
+                for (int i = 0; i < chunk.length; i++) {
+                    if (chunk[i] == '\n') {
+                        indexLine(chunk, lineStart, i, pendingOffset + lineStart);
+                        lineStart = i + 1;
+                    }
+                }
+                pendingOffset += lineStart;
+                pending = new byte[chunk.length - lineStart];
+                System.arraycopy(chunk, lineStart, pending, 0, pending.length);
+            }
+            // A partly written last line is indexed by the next call
+            indexedUpTo = pendingOffset;
+        }
+    }
+
+    private void indexLine(byte[] data, int from, int to, long offset) {
+        linesIndexed++;
+        if (indexOf(data, from, to, START_MARKER) < 0) {
+            return;
+        }
+        int end = to > from && data[to - 1] == '\r' ? to - 1 : to;
+        addStart(new StartLine(offset, new String(data, from, end - from, StandardCharsets.UTF_8)));
+    }
+
+    private void addStart(StartLine start) {
+        String text = start.text;
+        allStarts.add(start);
+        int open = text.indexOf('[');
+        int close = open < 0 ? -1 : text.indexOf(']', open + 1);
+        if (close > open) {
+            startsByDriverId.computeIfAbsent(text.substring(open + 1, close), k -> new ArrayList<>()).add(start);
+        }
+    }
+
+    private static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads forward from a start line until the test's end marker or MAX_CAPTURE_LINES lines,
+     * continuing in the following files when the log was rolled over during the test.
+     *
+     * @param files     The log files in the order they were written.
+     * @param fileIndex The file the start line is in.
+     */
+    static String readCapture(List<Path> files, int fileIndex, StartLine start, String testCaseName, String driverID) throws IOException {
+        String driverToken = "[" + driverID + "]";
+        List<String> logs = new ArrayList<>();
+        logs.add(start.text);
+        int captureLineCount = 0;
+        long offset = start.offset;
+        boolean skipStartLine = true;
+        for (int i = fileIndex; i < files.size() && captureLineCount < MAX_CAPTURE_LINES; i++) {
+            try (FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(
+                         Channels.newInputStream(channel.position(offset)), StandardCharsets.UTF_8))) {
+                if (skipStartLine) {
+                    in.readLine();
+                    skipStartLine = false;
+                }
+                String line;
+                while (captureLineCount < MAX_CAPTURE_LINES && (line = in.readLine()) != null) {
+                    captureLineCount++;
+                    if (line.contains(driverToken) || line.contains(testCaseName)) {
+                        logs.add(line);
+                        if (line.contains(END_PASS_MARKER) || line.contains(END_FAIL_MARKER)) {
+                            return String.join("\n", logs);
+                        }
+                    }
+                }
+            }
+            offset = 0;
+        }
+        return String.join("\n", logs);
+    }
+}
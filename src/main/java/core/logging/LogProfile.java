@@ -0,0 +1,42 @@
+package core.logging;
+
+import org.apache.logging.log4j.core.config.Configurator;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Switches log4j2 to the logging configuration chosen with LOG_PROFILE:
+ * "default" keeps log4j2.xml (or the consumer's own configuration), "async" uses log4j2-async.xml
+ * with asynchronous loggers and an additional JSON lines log, and any other value is taken as the
+ * name of a configuration file on the classpath.
+ */
+public class LogProfile {
+    private static final String LOG_PROFILE = getStrProp("LOG_PROFILE", "default");
+    private static boolean applied;
+
+    /** Applies LOG_PROFILE once; later calls do nothing. */
+    public static synchronized void apply() {
+        if (applied) {
+            return;
+        }
+        applied = true;
+        if (LOG_PROFILE.equalsIgnoreCase("default")) {
+            return;
+        }
+        String resource = LOG_PROFILE.equalsIgnoreCase("async") ? "log4j2-async.xml" : LOG_PROFILE;
+        URL configuration = LogProfile.class.getClassLoader().getResource(resource);
+        if (configuration == null) {
+            System.err.println("Logging profile " + LOG_PROFILE + ": " + resource + " is not on the classpath, keeping the current logging configuration.");
+            return;
+        }
+        try {
+            Configurator.reconfigure(configuration.toURI());
+            System.out.println("INFO: Logging profile " + LOG_PROFILE + " loaded from " + resource);
+        } catch (URISyntaxException e) {
+            System.err.println("Logging profile " + LOG_PROFILE + " could not be loaded: " + e.getMessage());
+        }
+    }
+}
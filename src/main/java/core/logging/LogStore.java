@@ -0,0 +1,104 @@
+package core.logging;
+
+import managers.ExtentManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Writes each test's logs to its own file next to the Extent report, so the report only carries
+ * a collapsed "Logs" entry. The file is loaded into the page when the entry is opened, so a report
+ * with thousands of tests does not have to parse and lay out all their log text when it opens.
+ * With LOG_STORE off the logs are inlined into the report as before, HTML-escaped.
+ */
+public class LogStore {
+    private static final boolean LOG_STORE = getBoolProp("LOG_STORE", true);
+    private static final String STORE_FOLDER = getStrProp("LOG_STORE_FOLDER", "logs");
+
+    private static final AtomicLong fileCounter = new AtomicLong();
+    private static final AtomicLong storedCount = new AtomicLong();
+    private static final AtomicLong bytesStored = new AtomicLong();
+    private static final AtomicLong bytesInlined = new AtomicLong();
+
+    /**
+     * <b>Returns the HTML to attach a test's logs to the report.</b>
+     * Stores the logs in a file and returns a lazily loaded entry for it, or the escaped logs
+     * inline when LOG_STORE is off or the file could not be written.
+     *
+     * @param testName The test method name, used for the file name.
+     * @param logs     The plain log text.
+     */
+    public static String toReportHtml(String testName, String logs) {
+        String escaped = escapeHtml(logs == null ? "" : logs);
+        if (LOG_STORE) {
+            try {
+                return toLazyEntry(store(testName, escaped), logs);
+            } catch (IOException e) {
+                System.err.println("Failed to store logs of " + testName + ", inlining them. Error: " + e.getMessage());
+            }
+        }
+        bytesInlined.addAndGet(escaped.length());
+        return "<div style='overflow-x:auto;'><pre style='white-space: pre-wrap; word-break: break-word;'>"
+                + escaped + "</pre></div>";
+    }
+
+    /** Returns a one line summary of the logs stored for the current run. */
+    public static String getStats() {
+        return "Logs stored: " + storedCount.get() + " file(s) (" + bytesStored.get() / 1024 + " KB kept out of the report), "
+                + "inlined: " + bytesInlined.get() / 1024 + " KB";
+    }
+
+    /** Escapes text for use in HTML element content and attribute values. */
+    public static String escapeHtml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': escaped.append("&amp;"); break;
+                case '<': escaped.append("&lt;"); break;
+                case '>': escaped.append("&gt;"); break;
+                case '"': escaped.append("&quot;"); break;
+                case '\'': escaped.append("&#39;"); break;
+                default: escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    // Writes the escaped logs as a small HTML page and returns its path relative to the report
+    private static String store(String testName, String escapedLogs) throws IOException {
+        String fileName = testName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + fileCounter.incrementAndGet() + ".html";
+        Path storeDir = getStoreDirectory();
+        Files.createDirectories(storeDir);
+        byte[] page = ("<!DOCTYPE html><html><head><meta charset=\"utf-8\"></head>"
+                + "<body style=\"margin:0\"><pre style=\"white-space: pre-wrap; word-break: break-word; font-size: 12px;\">"
+                + escapedLogs + "</pre></body></html>").getBytes(StandardCharsets.UTF_8);
+        Files.write(storeDir.resolve(fileName), page);
+        storedCount.incrementAndGet();
+        bytesStored.addAndGet(page.length);
+        return STORE_FOLDER + "/" + fileName;
+    }
+
+    // The iframe only gets its src when the entry is opened for the first time
+    private static String toLazyEntry(String relativePath, String logs) {
+        int lines = logs == null || logs.isEmpty() ? 0 : logs.split("\n", -1).length;
+        return "<details ontoggle=\"var f=this.querySelector('iframe');if(this.open&amp;&amp;!f.getAttribute('src'))f.src=f.dataset.src;\">"
+                + "<summary style='cursor:pointer;'>Logs (" + lines + " lines)</summary>"
+                + "<iframe data-src=\"" + escapeHtml(relativePath) + "\" style='width:100%;height:400px;border:1px solid #ddd;'></iframe>"
+                + " <a href=\"" + escapeHtml(relativePath) + "\" target=\"_blank\">Open in new tab</a>"
+                + "</details>";
+    }
+
+    private static Path getStoreDirectory() {
+        File reportFile = new File(ExtentManager.getReportFilePath());
+        File reportDir = reportFile.getAbsoluteFile().getParentFile();
+        return reportDir.toPath().resolve(STORE_FOLDER);
+    }
+}
@@ -0,0 +1,322 @@
+package core.logging;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfigDelegate;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.jmx.RingBufferAdmin;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Keeps the log lines of each running test in memory, so the listeners can attach them without
+ * reading the log file back.
+ * {@link #start(String)} puts a test id into the log4j2 ThreadContext; the {@link TestLogCaptureAppender}
+ * configured in log4j2.xml sends every event carrying that id to the test's buffer. Events logged
+ * on other threads are matched through the driverId the test thread had when the test started.
+ * <p>
+ * A buffer holds at most LOG_CAPTURE_MAX_KB, and all buffers together LOG_CAPTURE_TOTAL_MAX_MB.
+ * Beyond that LOG_CAPTURE_OVERFLOW decides: "disk" moves the test's lines to a file under
+ * LOG_CAPTURE_SPILL_DIR and keeps appending there, "drop-oldest" keeps only the latest lines,
+ * "drop-newest" keeps the first lines. A test only drops its own lines: when the other tests hold
+ * LOG_CAPTURE_TOTAL_MAX_MB, drop-oldest drops the new line once its own buffer is empty.
+ */
+public class TestLogCapture {
+    public static final String TEST_ID_KEY = "testId";
+    public static final String TEST_NAME_KEY = "testName";
+
+    private static final boolean LOG_CAPTURE = getBoolProp("LOG_CAPTURE", true);
+    private static final long MAX_BYTES = getIntProp("LOG_CAPTURE_MAX_KB", 256) * 1024L;
+    private static final long TOTAL_MAX_BYTES = getIntProp("LOG_CAPTURE_TOTAL_MAX_MB", 64) * 1024L * 1024L;
+    private static final String OVERFLOW = getStrProp("LOG_CAPTURE_OVERFLOW", "disk").toLowerCase();
+    private static final String SPILL_DIR = getStrProp("LOG_CAPTURE_SPILL_DIR", "execution-output/test-logs/capture");
+    private static final int ASYNC_WAIT_MS = 1000;
+    private static final long ASYNC_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Map<String, TestBuffer> buffers = new ConcurrentHashMap<>();
+    private static final Map<String, String> testIdByDriverId = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentTestId = new ThreadLocal<>();
+    private static final AtomicLong nextId = new AtomicLong();
+    private static final AtomicLong totalBytes = new AtomicLong();
+    private static volatile boolean appenderStarted;
+
+    /** The captured lines of one test. */
+    static class TestBuffer {
+        private final String testName;
+        private final String driverId;
+        private final ArrayDeque<String> lines = new ArrayDeque<>();
+        private long bytes;
+        // Lines dropped because of the test's own limit and because of the limit of all tests
+        private long droppedAtTestLimit;
+        private long droppedAtTotalLimit;
+        private long failedWrites;
+        private File spillFile;
+        private BufferedWriter spillWriter;
+
+        TestBuffer(String testName, String driverId) {
+            this.testName = testName;
+            this.driverId = driverId;
+        }
+
+        synchronized void add(String line) {
+            if (spillWriter != null) {
+                write(line);
+                return;
+            }
+            long size = line.length() * 2L;
+            if (isOverLimit(size)) {
+                boolean testLimit = bytes + size > MAX_BYTES;
+                if (OVERFLOW.equals("drop-newest")) {
+                    drop(testLimit);
+                    return;
+                }
+                if (OVERFLOW.equals("drop-oldest")) {
+                    while (!lines.isEmpty() && isOverLimit(size)) {
+                        release(lines.removeFirst().length() * 2L);
+                        drop(testLimit);
+                    }
+                    if (isOverLimit(size)) {
+                        // The other tests hold the memory, or the line alone is larger than the limit
+                        drop(testLimit);
+                        return;
+                    }
+                } else if (spill()) {
+                    write(line);
+                    return;
+                }
+            }
+            lines.addLast(line);
+            bytes += size;
+            totalBytes.addAndGet(size);
+        }
+
+        private boolean isOverLimit(long size) {
+            return bytes + size > MAX_BYTES || totalBytes.get() + size > TOTAL_MAX_BYTES;
+        }
+
+        private void drop(boolean testLimit) {
+            if (testLimit) {
+                droppedAtTestLimit++;
+            } else {
+                droppedAtTotalLimit++;
+            }
+        }
+
+        // Moves the buffered lines to a file; later lines are appended to it
+        private boolean spill() {
+            try {
+                File folder = new File(SPILL_DIR);
+                folder.mkdirs();
+                spillFile = File.createTempFile(testName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-", ".log", folder);
+                spillWriter = Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8);
+                for (String buffered : lines) {
+                    spillWriter.write(buffered);
+                }
+                lines.clear();
+                release(bytes);
+                return true;
+            } catch (IOException e) {
+                System.err.println("Failed to move captured logs of " + testName + " to disk: " + e.getMessage());
+                spillWriter = null;
+                return false;
+            }
+        }
+
+        private void write(String line) {
+            try {
+                spillWriter.write(line);
+            } catch (IOException e) {
+                failedWrites++;
+            }
+        }
+
+        private void release(long size) {
+            bytes -= size;
+            totalBytes.addAndGet(-size);
+        }
+
+        synchronized String drain() {
+            StringBuilder text = new StringBuilder();
+            if (droppedAtTestLimit > 0) {
+                text.append("[").append(droppedAtTestLimit).append(" log line(s) dropped, LOG_CAPTURE_MAX_KB reached]\n");
+            }
+            if (droppedAtTotalLimit > 0) {
+                text.append("[").append(droppedAtTotalLimit).append(" log line(s) dropped, LOG_CAPTURE_TOTAL_MAX_MB of all tests reached]\n");
+            }
+            if (failedWrites > 0) {
+                text.append("[").append(failedWrites).append(" log line(s) lost, writing to ").append(spillFile).append(" failed]\n");
+            }
+            if (spillWriter != null) {
+                try {
+                    spillWriter.close();
+                    text.append(new String(Files.readAllBytes(spillFile.toPath()), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    text.append("ERROR: Failed to read captured logs from ").append(spillFile).append(": ").append(e.getMessage());
+                }
+                spillFile.delete();
+            }
+            for (String line : lines) {
+                text.append(line);
+            }
+            release(bytes);
+            lines.clear();
+            // Layouts end lines with a line separator; the listeners join lines without a trailing one
+            int end = text.length();
+            while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+                end--;
+            }
+            return text.substring(0, end);
+        }
+    }
+
+    /** Returns true when LOG_CAPTURE is on and log4j2 started a {@link TestLogCaptureAppender}. */
+    public static boolean isActive() {
+        return LOG_CAPTURE && appenderStarted;
+    }
+
+    static void setAppenderStarted(boolean started) {
+        appenderStarted = started;
+    }
+
+    /**
+     * Starts capturing the current thread's logs for a test. Call it when the test starts.
+     *
+     * @param testName The test method name.
+     */
+    public static void start(String testName) {
+        discard();
+        ThreadContext.put(TEST_NAME_KEY, testName);
+        if (LOG_CAPTURE && !appenderStarted) {
+            // Makes log4j2 read its configuration if nothing was logged yet
+            LogManager.getContext(false);
+        }
+        if (!isActive()) {
+            return;
+        }
+        String testId = testName + "#" + nextId.incrementAndGet();
+        String driverId = ThreadContext.get("driverId");
+        buffers.put(testId, new TestBuffer(testName, driverId));
+        if (driverId != null) {
+            testIdByDriverId.put(driverId, testId);
+        }
+        currentTestId.set(testId);
+        ThreadContext.put(TEST_ID_KEY, testId);
+    }
+
+    /**
+     * Stops capturing for the current thread's test and returns its logs.
+     * When capture is not active, the logs are extracted from the log file instead.
+     *
+     * @param testCaseName The test method name, for the log file fallback.
+     * @param driverID     The driver id, for the log file fallback.
+     */
+    public static String finish(String testCaseName, String driverID) {
+        return detach(testCaseName, driverID).get();
+    }
+
+    /**
+     * Stops capturing on the current thread and returns what collects the test's logs, so that
+     * the collection can run on another thread. The test's buffer keeps receiving the events still
+     * queued by async loggers until the returned supplier is called.
+     *
+     * @param testCaseName The test method name, for the log file fallback.
+     * @param driverID     The driver id, for the log file fallback.
+     */
+    public static Supplier<String> detach(String testCaseName, String driverID) {
+        String testId = currentTestId.get();
+        currentTestId.remove();
+        ThreadContext.remove(TEST_ID_KEY);
+        ThreadContext.remove(TEST_NAME_KEY);
+        if (!isActive() || testId == null) {
+            discard(testId);
+            return () -> LogExtractorUtil.toGetTestCaseLogs(testCaseName, driverID);
+        }
+        return () -> {
+            awaitAsyncLogging();
+            TestBuffer buffer = removeBuffer(testId);
+            return buffer == null ? "" : buffer.drain();
+        };
+    }
+
+    /** Stops capturing for the current thread's test and drops its logs. */
+    public static void discard() {
+        TestBuffer buffer = remove();
+        if (buffer != null) {
+            buffer.drain();
+        }
+    }
+
+    private static TestBuffer remove() {
+        String testId = currentTestId.get();
+        currentTestId.remove();
+        ThreadContext.remove(TEST_ID_KEY);
+        ThreadContext.remove(TEST_NAME_KEY);
+        return removeBuffer(testId);
+    }
+
+    private static void discard(String testId) {
+        TestBuffer buffer = removeBuffer(testId);
+        if (buffer != null) {
+            buffer.drain();
+        }
+    }
+
+    private static TestBuffer removeBuffer(String testId) {
+        if (testId == null) {
+            return null;
+        }
+        TestBuffer buffer = buffers.remove(testId);
+        if (buffer != null && buffer.driverId != null) {
+            testIdByDriverId.remove(buffer.driverId, testId);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer of the test an event belongs to, or null when the event is not captured.
+     *
+     * @param testId   The test id from the event's context, may be null.
+     * @param driverId The driver id from the event's context, may be null.
+     */
+    static TestBuffer bufferOf(String testId, String driverId) {
+        if (testId == null && driverId != null) {
+            testId = testIdByDriverId.get(driverId);
+        }
+        return testId == null ? null : buffers.get(testId);
+    }
+
+    // With async loggers (LOG_PROFILE=async) the test's last events may still be queued
+    private static void awaitAsyncLogging() {
+        LoggerContext context = (LoggerContext) LogManager.getContext(false);
+        Configuration configuration = context.getConfiguration();
+        // getAsyncLoggerConfigDelegate creates an unstarted queue when asked in a configuration without async loggers
+        boolean asyncLoggers = configuration.getLoggers().values().stream().anyMatch(AsyncLoggerConfig.class::isInstance);
+        if (!asyncLoggers) {
+            return;
+        }
+        AsyncLoggerConfigDelegate delegate = configuration.getAsyncLoggerConfigDelegate();
+        RingBufferAdmin queue = delegate.createRingBufferAdmin(context.getName(), "");
+        long deadline = System.currentTimeMillis() + ASYNC_WAIT_MS;
+        // Parks instead of spinning, the queue is drained by the logging thread which needs the CPU
+        while (queue.getRemainingCapacity() < queue.getBufferSize() && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(ASYNC_POLL_NANOS);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package core.logging;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Log4j2 appender that hands each event to the buffer of the test it was logged for, see
+ * {@link TestLogCapture}. Events logged outside a test are ignored. Used in log4j2.xml as
+ * {@code <TestLogCapture name="TestCapture"><PatternLayout .../></TestLogCapture>}.
+ */
+@Plugin(name = "TestLogCapture", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public class TestLogCaptureAppender extends AbstractAppender {
+
+    private TestLogCaptureAppender(String name, Filter filter, Layout<? extends Serializable> layout) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+    }
+
+    @PluginFactory
+    public static TestLogCaptureAppender createAppender(@PluginAttribute("name") String name,
+                                                        @PluginElement("Filter") Filter filter,
+                                                        @PluginElement("Layout") Layout<? extends Serializable> layout) {
+        if (layout == null) {
+            layout = PatternLayout.createDefaultLayout();
+        }
+        return new TestLogCaptureAppender(name == null ? "TestLogCapture" : name, filter, layout);
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        TestLogCapture.setAppenderStarted(true);
+    }
+
+    @Override
+    public void stop() {
+        TestLogCapture.setAppenderStarted(false);
+        super.stop();
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        String testId = event.getContextData().getValue(TestLogCapture.TEST_ID_KEY);
+        String driverId = event.getContextData().getValue("driverId");
+        // Only events of a test that is being captured are formatted
+        TestLogCapture.TestBuffer buffer = TestLogCapture.bufferOf(testId, driverId);
+        if (buffer == null) {
+            return;
+        }
+        Serializable formatted = getLayout().toSerializable(event);
+        buffer.add(formatted instanceof String ? (String) formatted : new String(getLayout().toByteArray(event), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,246 @@
+package core.report;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes test results as JUnit XML while the tests run. The test cases of a running class are
+ * written with StAX to a spool file; when the class finishes it is added to the result file as one
+ * {@code <testsuite>} with its counts. The closing {@code </testsuites>} is rewritten after every
+ * class, so the file is complete XML whenever a class is not being added. Characters XML 1.0 does
+ * not allow, like the control characters of a terminal color code in a message, are left out.
+ */
+public class JUnitXmlWriter {
+    private static final String CLOSING = "</testsuites>\n";
+    private static final int MAX_TRACE_CHARS = 16000;
+
+    private final XMLOutputFactory xmlFactory = XMLOutputFactory.newInstance();
+    private final File spoolDir;
+    private final FileChannel resultFile;
+    private final Map<String, Suite> openSuites = new ConcurrentHashMap<>();
+    // Where the closing tag starts, the next suite overwrites it
+    private long end;
+
+    /** The spooled test cases of one running class. */
+    private class Suite {
+        private final String className;
+        private final File spool;
+        private final OutputStream out;
+        private final XMLStreamWriter xml;
+        private long start = Long.MAX_VALUE;
+        private int tests;
+        private int failures;
+        private int errors;
+        private int skipped;
+        private double seconds;
+
+        Suite(String className) throws IOException, XMLStreamException {
+            this.className = className;
+            this.spool = File.createTempFile(className.replaceAll("[^A-Za-z0-9_.-]", "_") + "-", ".xml", spoolDir);
+            this.out = new BufferedOutputStream(Files.newOutputStream(spool.toPath()));
+            this.xml = xmlFactory.createXMLStreamWriter(out, "UTF-8");
+        }
+
+        synchronized void add(String methodName, String status, long startMillis, long endMillis, String parameters,
+                              Throwable error) throws XMLStreamException {
+            double durationSeconds = Math.max(0, endMillis - startMillis) / 1000.0;
+            xml.writeCharacters("\n    ");
+            xml.writeStartElement("testcase");
+            xml.writeAttribute("name", xmlSafe(methodName));
+            xml.writeAttribute("classname", xmlSafe(className));
+            xml.writeAttribute("time", seconds(durationSeconds));
+            if (parameters != null) {
+                xml.writeCharacters("\n      ");
+                xml.writeStartElement("properties");
+                xml.writeEmptyElement("property");
+                xml.writeAttribute("name", "parameters");
+                xml.writeAttribute("value", xmlSafe(parameters));
+                xml.writeEndElement();
+            }
+            if (status.equals("fail")) {
+                // An assertion that did not hold is a failure, any other exception an error
+                boolean failure = error instanceof AssertionError || error == null;
+                xml.writeCharacters("\n      ");
+                xml.writeStartElement(failure ? "failure" : "error");
+                writeError(error);
+                xml.writeEndElement();
+                if (failure) {
+                    failures++;
+                } else {
+                    errors++;
+                }
+            } else if (status.equals("skip")) {
+                xml.writeCharacters("\n      ");
+                xml.writeStartElement("skipped");
+                if (error != null) {
+                    xml.writeAttribute("message", xmlSafe(String.valueOf(error.getMessage())));
+                }
+                xml.writeEndElement();
+                skipped++;
+            }
+            xml.writeCharacters("\n    ");
+            xml.writeEndElement();
+            tests++;
+            seconds += durationSeconds;
+            start = Math.min(start, startMillis);
+        }
+
+        private void writeError(Throwable error) throws XMLStreamException {
+            if (error == null) {
+                return;
+            }
+            xml.writeAttribute("message", xmlSafe(String.valueOf(error.getMessage())));
+            xml.writeAttribute("type", error.getClass().getName());
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            xml.writeCharacters(xmlSafe(trace.getBuffer().length() > MAX_TRACE_CHARS
+                    ? trace.getBuffer().substring(0, MAX_TRACE_CHARS) + "\n..." : trace.toString()));
+        }
+
+        // The suite element with its counts, which are only known now
+        synchronized byte[] close() throws IOException, XMLStreamException {
+            xml.flush();
+            xml.close();
+            out.close();
+            StringWriter header = new StringWriter();
+            XMLStreamWriter headerXml = xmlFactory.createXMLStreamWriter(header);
+            headerXml.writeStartElement("testsuite");
+            headerXml.writeAttribute("name", xmlSafe(className));
+            headerXml.writeAttribute("tests", String.valueOf(tests));
+            headerXml.writeAttribute("failures", String.valueOf(failures));
+            headerXml.writeAttribute("errors", String.valueOf(errors));
+            headerXml.writeAttribute("skipped", String.valueOf(skipped));
+            headerXml.writeAttribute("time", seconds(seconds));
+            headerXml.writeAttribute("timestamp", Instant.ofEpochMilli(start).toString());
+            // Closes the start tag
+            headerXml.writeCharacters("");
+            headerXml.flush();
+            byte[] cases = Files.readAllBytes(spool.toPath());
+            spool.delete();
+            byte[] head = ("  " + header).getBytes(StandardCharsets.UTF_8);
+            byte[] tail = "\n  </testsuite>\n".getBytes(StandardCharsets.UTF_8);
+            byte[] suite = new byte[head.length + cases.length + tail.length];
+            System.arraycopy(head, 0, suite, 0, head.length);
+            System.arraycopy(cases, 0, suite, head.length, cases.length);
+            System.arraycopy(tail, 0, suite, head.length + cases.length, tail.length);
+            return suite;
+        }
+    }
+
+    /**
+     * Creates the result file, replacing one of a previous run.
+     *
+     * @param file     The JUnit XML file.
+     * @param spoolDir The folder for the test cases of running classes.
+     */
+    public JUnitXmlWriter(File file, File spoolDir) throws IOException {
+        this.spoolDir = spoolDir;
+        spoolDir.mkdirs();
+        resultFile = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        byte[] opening = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuites>\n".getBytes(StandardCharsets.UTF_8);
+        resultFile.write(ByteBuffer.wrap(opening));
+        end = opening.length;
+        resultFile.write(ByteBuffer.wrap(CLOSING.getBytes(StandardCharsets.UTF_8)));
+        resultFile.force(false);
+    }
+
+    /**
+     * <b>Adds a finished test to its class's suite.</b> The suite is written by {@link #finishClass}.
+     *
+     * @param className   The fully qualified test class name.
+     * @param methodName  The test method name.
+     * @param status      pass, fail or skip.
+     * @param startMillis The start time of the test, in epoch milliseconds.
+     * @param endMillis   The end time of the test, in epoch milliseconds.
+     * @param parameters  The test parameters as text, may be null.
+     * @param error       The failure or skip cause, may be null.
+     */
+    public void addResult(String className, String methodName, String status, long startMillis, long endMillis,
+                          String parameters, Throwable error) throws IOException {
+        try {
+            Suite suite = openSuites.get(className);
+            if (suite == null) {
+                suite = openSuites.computeIfAbsent(className, name -> {
+                    try {
+                        return new Suite(name);
+                    } catch (IOException | XMLStreamException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            suite.add(methodName, status, startMillis, endMillis, parameters, error);
+        } catch (XMLStreamException | IllegalStateException e) {
+            throw new IOException("Failed to write the JUnit result of " + className + "." + methodName, e);
+        }
+    }
+
+    /** Adds a finished class's suite to the result file. */
+    public void finishClass(String className) throws IOException {
+        Suite suite = openSuites.remove(className);
+        if (suite == null) {
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = suite.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write the JUnit suite of " + className, e);
+        }
+        synchronized (this) {
+            resultFile.position(end);
+            resultFile.write(ByteBuffer.wrap(bytes));
+            end += bytes.length;
+            resultFile.write(ByteBuffer.wrap(CLOSING.getBytes(StandardCharsets.UTF_8)));
+            resultFile.force(false);
+        }
+    }
+
+    /** Adds the suites of every class that is still open. */
+    public void flush() throws IOException {
+        for (String className : openSuites.keySet().toArray(new String[0])) {
+            finishClass(className);
+        }
+    }
+
+    // With a dot whatever the default locale, as the JUnit XML readers expect
+    private static String seconds(double seconds) {
+        return String.format(Locale.ROOT, "%.3f", seconds);
+    }
+
+    /** Returns the text without the characters XML 1.0 does not allow, even escaped. */
+    static String xmlSafe(String text) {
+        StringBuilder safe = null;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int length = Character.charCount(codePoint);
+            boolean allowed = codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD
+                    || codePoint >= 0x20 && codePoint <= 0xD7FF
+                    || codePoint >= 0xE000 && codePoint <= 0xFFFD
+                    || codePoint >= 0x10000;
+            if (!allowed && safe == null) {
+                safe = new StringBuilder(text.length()).append(text, 0, i);
+            } else if (allowed && safe != null) {
+                safe.appendCodePoint(codePoint);
+            }
+            i += length;
+        }
+        return safe == null ? text : safe.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package core.report;
+
+import org.testng.ITestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Feeds the listener events into a {@link PagedReportWriter} next to the Extent report, when
+ * PAGED_REPORT is on. Open PAGED_REPORT_DIR/index.html to view it.
+ */
+public class PagedReport {
+    private static final boolean PAGED_REPORT = getBoolProp("PAGED_REPORT", false);
+    private static final String REPORT_DIR = getStrProp("PAGED_REPORT_DIR", "execution-output/test-reports/paged-report");
+    private static final int CHUNK_SIZE = getIntProp("PAGED_REPORT_CHUNK_SIZE", 500);
+
+    private static PagedReportWriter writer;
+    private static boolean failed;
+
+    /**
+     * Adds a finished test. Called by the listeners on success, failure and skip.
+     *
+     * @param thread The name of the thread the test ran on.
+     */
+    public static void testFinished(ITestResult result, String thread) {
+        PagedReportWriter reportWriter = getWriter();
+        if (reportWriter == null) {
+            return;
+        }
+        String status = result.getStatus() == ITestResult.SUCCESS ? "pass"
+                : result.getStatus() == ITestResult.SKIP ? "skip" : "fail";
+        Object[] params = result.getParameters();
+        try {
+            reportWriter.addResult(result.getTestClass().getRealClass().getName(), result.getMethod().getMethodName(),
+                    status, result.getStartMillis(), result.getEndMillis(),
+                    params.length > 0 ? Arrays.toString(params) : null, thread, result.getThrowable());
+        } catch (IOException e) {
+            System.err.println("Failed to add " + result.getMethod().getMethodName() + " to the paged report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the results of a test class. Called by the listeners when TestNG finished the class.
+     */
+    public static void classFinished(Class<?> testClass) {
+        PagedReportWriter reportWriter = getWriter();
+        if (reportWriter == null) {
+            return;
+        }
+        try {
+            reportWriter.finishClass(testClass.getName());
+        } catch (IOException e) {
+            System.err.println("Failed to write " + testClass.getName() + " to the paged report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes everything that is still open. Called by the listeners when the run finishes.
+     */
+    public static void flushReport() {
+        PagedReportWriter reportWriter = getWriter();
+        if (reportWriter == null) {
+            return;
+        }
+        try {
+            reportWriter.flush();
+            System.out.println("INFO: " + reportWriter.getStats() + ", open " + reportWriter.getIndexFile());
+        } catch (IOException e) {
+            System.err.println("Failed to write the paged report: " + e.getMessage());
+        }
+    }
+
+    private static synchronized PagedReportWriter getWriter() {
+        if (!PAGED_REPORT || failed) {
+            return null;
+        }
+        if (writer == null) {
+            try {
+                writer = new PagedReportWriter(new File(REPORT_DIR), CHUNK_SIZE);
+            } catch (IOException e) {
+                System.err.println("Failed to create the paged report in " + REPORT_DIR + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        return writer;
+    }
+}
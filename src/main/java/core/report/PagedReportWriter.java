@@ -0,0 +1,235 @@
+package core.report;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a report that stays usable in the browser for very large suites: a static
+ * {@code index.html}, an {@code index.js} with one line per test class, and the test results of
+ * each class in {@code data/c<class>-<chunk>.js} files of at most chunkSize tests each. The page
+ * lists the classes page by page and loads a class's chunks only when the class is opened.
+ * <p>
+ * Results are written as they arrive; only the open chunk of each running class is held, so
+ * memory does not grow with the number of tests. The data files are JSON wrapped in a function
+ * call, so the page can load them with script tags when it is opened from disk.
+ */
+public class PagedReportWriter {
+    private static final int MAX_ERROR_CHARS = 4000;
+
+    private final File reportDir;
+    private final File dataDir;
+    private final int chunkSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Map<String, ClassWriter> openClasses = new ConcurrentHashMap<>();
+    private final AtomicInteger nextClassId = new AtomicInteger();
+    private final AtomicLong testCount = new AtomicLong();
+    private final AtomicLong chunkCount = new AtomicLong();
+    private final Writer indexWriter;
+    private final JsonGenerator indexJson;
+
+    /** The results of one test class that is still running. */
+    private class ClassWriter {
+        private final int id;
+        private final String name;
+        private final long start;
+        private final int[] counts = new int[3];
+        private long end;
+        private int chunks;
+        private int inChunk;
+        private Writer chunkWriter;
+        private JsonGenerator chunkJson;
+
+        ClassWriter(String name, long start) {
+            this.id = nextClassId.incrementAndGet();
+            this.name = name;
+            this.start = start;
+        }
+
+        synchronized void add(String methodName, String status, long startMillis, long endMillis,
+                              String parameters, String thread, Throwable error) throws IOException {
+            if (chunkJson == null) {
+                openChunk();
+            }
+            chunkJson.writeStartObject();
+            chunkJson.writeStringField("n", methodName);
+            chunkJson.writeStringField("s", status);
+            chunkJson.writeNumberField("t", startMillis);
+            chunkJson.writeNumberField("ms", Math.max(0, endMillis - startMillis));
+            if (parameters != null && !parameters.isEmpty()) {
+                chunkJson.writeStringField("p", parameters);
+            }
+            chunkJson.writeStringField("th", thread);
+            if (error != null) {
+                chunkJson.writeStringField("e", stackTraceOf(error));
+            }
+            chunkJson.writeEndObject();
+            counts[statusIndex(status)]++;
+            end = Math.max(end, endMillis);
+            if (++inChunk >= chunkSize) {
+                closeChunk();
+            }
+        }
+
+        private void openChunk() throws IOException {
+            String chunkId = "c" + id + "-" + chunks;
+            chunkWriter = Files.newBufferedWriter(new File(dataDir, chunkId + ".js").toPath(), StandardCharsets.UTF_8);
+            chunkWriter.write("PagedReport.chunk(\"" + chunkId + "\",");
+            chunkJson = jsonFactory.createGenerator(chunkWriter);
+            chunkJson.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            chunkJson.writeStartArray();
+            chunks++;
+            chunkCount.incrementAndGet();
+        }
+
+        private void closeChunk() throws IOException {
+            chunkJson.writeEndArray();
+            chunkJson.close();
+            chunkWriter.write(");\n");
+            chunkWriter.close();
+            chunkJson = null;
+            chunkWriter = null;
+            inChunk = 0;
+        }
+
+        // Closes the open chunk and adds the class to the index
+        synchronized void finish() throws IOException {
+            if (chunkJson != null) {
+                closeChunk();
+            }
+            int dot = name.lastIndexOf('.');
+            synchronized (indexWriter) {
+                indexWriter.write("PagedReport.addClass(");
+                indexJson.writeStartObject();
+                indexJson.writeNumberField("id", id);
+                indexJson.writeStringField("name", name.substring(dot + 1));
+                indexJson.writeStringField("pkg", dot < 0 ? "" : name.substring(0, dot));
+                indexJson.writeNumberField("pass", counts[0]);
+                indexJson.writeNumberField("fail", counts[1]);
+                indexJson.writeNumberField("skip", counts[2]);
+                indexJson.writeNumberField("t", start);
+                indexJson.writeNumberField("ms", Math.max(0, end - start));
+                indexJson.writeNumberField("chunks", chunks);
+                indexJson.writeEndObject();
+                indexJson.flush();
+                indexWriter.write(");\n");
+                // A report opened mid-run, or left by a crashed run, shows every finished class
+                indexWriter.flush();
+            }
+        }
+    }
+
+    /**
+     * Creates the report folder with its page and an empty index. Results of a previous run in
+     * the folder are deleted.
+     *
+     * @param reportDir The folder of the report.
+     * @param chunkSize The maximum number of test results in one data file.
+     */
+    public PagedReportWriter(File reportDir, int chunkSize) throws IOException {
+        this.reportDir = reportDir;
+        this.dataDir = new File(reportDir, "data");
+        this.chunkSize = Math.max(1, chunkSize);
+        dataDir.mkdirs();
+        for (File old : Objects.requireNonNullElse(dataDir.listFiles((dir, name) -> name.endsWith(".js")), new File[0])) {
+            old.delete();
+        }
+        Files.write(new File(reportDir, "index.html").toPath(), readResource("paged-report.html"));
+        indexWriter = Files.newBufferedWriter(new File(reportDir, "index.js").toPath(), StandardCharsets.UTF_8);
+        indexJson = jsonFactory.createGenerator(indexWriter);
+        indexJson.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        indexJson.setRootValueSeparator(null);
+    }
+
+    /**
+     * <b>Adds the result of one test.</b> Results of a class are grouped until {@link #finishClass}
+     * is called for it.
+     *
+     * @param className   The fully qualified test class name.
+     * @param methodName  The test method name.
+     * @param status      pass, fail or skip.
+     * @param startMillis The start time of the test, in epoch milliseconds.
+     * @param endMillis   The end time of the test, in epoch milliseconds.
+     * @param parameters  The test parameters as text, may be null.
+     * @param thread      The name of the thread the test ran on.
+     * @param error       The failure or skip cause, may be null.
+     */
+    public void addResult(String className, String methodName, String status, long startMillis, long endMillis,
+                          String parameters, String thread, Throwable error) throws IOException {
+        openClasses.computeIfAbsent(className, name -> new ClassWriter(name, startMillis))
+                .add(methodName, status, startMillis, endMillis, parameters, thread, error);
+        testCount.incrementAndGet();
+    }
+
+    /**
+     * Writes the remaining results of a class and adds it to the index. A class that runs again
+     * later is listed again.
+     */
+    public void finishClass(String className) throws IOException {
+        ClassWriter classWriter = openClasses.remove(className);
+        if (classWriter != null) {
+            classWriter.finish();
+        }
+    }
+
+    /** Finishes every class that is still open, the report is complete afterwards. */
+    public void flush() throws IOException {
+        List<String> open = new ArrayList<>(openClasses.keySet());
+        for (String className : open) {
+            finishClass(className);
+        }
+        synchronized (indexWriter) {
+            indexWriter.flush();
+        }
+    }
+
+    /** Returns the page of the report. */
+    public File getIndexFile() {
+        return new File(reportDir, "index.html");
+    }
+
+    /** Returns a one line summary of what was written for the current run. */
+    public String getStats() {
+        return "Paged report: " + testCount.get() + " test(s) in " + nextClassId.get() + " class(es), "
+                + chunkCount.get() + " data file(s)";
+    }
+
+    private static int statusIndex(String status) {
+        switch (status) {
+            case "fail": return 1;
+            case "skip": return 2;
+            default: return 0;
+        }
+    }
+
+    private static String stackTraceOf(Throwable error) {
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        return trace.getBuffer().length() > MAX_ERROR_CHARS
+                ? trace.getBuffer().substring(0, MAX_ERROR_CHARS) + "\n..." : trace.toString();
+    }
+
+    private static byte[] readResource(String resource) throws IOException {
+        try (InputStream in = PagedReportWriter.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Resource " + resource + " is missing from the classpath");
+            }
+            return in.readAllBytes();
+        }
+    }
+}
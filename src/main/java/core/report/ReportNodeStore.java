@@ -0,0 +1,181 @@
+package core.report;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.append.RawEntityConverter;
+import com.aventstack.extentreports.gson.GsonExtentTypeAdapterBuilder;
+import com.aventstack.extentreports.model.ExceptionInfo;
+import com.aventstack.extentreports.model.Report;
+import com.aventstack.extentreports.model.Test;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps finished class nodes of the Extent report on disk instead of in the heap.
+ * {@link #spill} writes a class node with its method nodes, logs and screenshots as JSON (the
+ * format of Extent's JsonFormatter, with dates in epoch milliseconds) and removes it from the report. {@link #restore} rebuilds
+ * the stored nodes right before the report is written; {@link #release} removes them again
+ * afterwards, so later test classes start from an almost empty heap again.
+ */
+public class ReportNodeStore {
+    private final File storeDir;
+    // Extent's own Gson writes dates without milliseconds, which would turn short tests into 0 ms tests
+    private final Gson gson = withEpochDates(GsonExtentTypeAdapterBuilder.builder().withGsonTypeAdapterFactory().build());
+    private final Gson reader = withEpochDates(GsonExtentTypeAdapterBuilder.builder()
+            .withMediaTypeAdapter().withGsonTypeAdapterFactory().build());
+    private final List<File> files = new ArrayList<>();
+    private final AtomicLong spilledCount = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * Creates a store in the given folder and deletes what a previous run left there.
+     */
+    public ReportNodeStore(File storeDir) {
+        this.storeDir = storeDir;
+        storeDir.mkdirs();
+        for (File old : Objects.requireNonNullElse(storeDir.listFiles((dir, name) -> name.endsWith(".json")), new File[0])) {
+            old.delete();
+        }
+    }
+
+    /**
+     * <b>Writes a finished class node to the store and removes it from the report.</b>
+     * The node stays in the report when it cannot be written.
+     *
+     * @return true when the node was moved to the store.
+     */
+    public synchronized boolean spill(ExtentReports extent, ExtentTest classNode) {
+        Test model = classNode.getModel();
+        File file = new File(storeDir, String.format("%06d-%s.json", files.size() + 1,
+                model.getName().replaceAll("[^A-Za-z0-9_.-]", "_")));
+        Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                gson.toJson(List.of(model), writer);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to move report node " + model.getName() + " to disk, keeping it in memory. Error: " + e.getMessage());
+            file.delete();
+            temp.toFile().delete();
+            return false;
+        }
+        remove(extent, classNode);
+        files.add(file);
+        spilledCount.incrementAndGet();
+        bytesWritten.addAndGet(file.length());
+        return true;
+    }
+
+    /**
+     * <b>Adds the stored class nodes back to the report</b>, in the order they finished, with their
+     * original times.
+     *
+     * @return The restored nodes, to hand to {@link #release} once the report was written.
+     */
+    public synchronized List<ExtentTest> restore(ExtentReports extent) {
+        List<ExtentTest> restored = new ArrayList<>();
+        // Without it, every restored log would set the node's end time to now
+        extent.setReportUsesManualConfiguration(true);
+        RawEntityConverter converter = new RawEntityConverter(extent);
+        for (File file : files) {
+            try {
+                List<Test> tests;
+                try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    tests = reader.fromJson(in, new TypeToken<ArrayList<Test>>() {}.getType());
+                }
+                for (Test test : tests) {
+                    ExtentTest node = extent.createTest(test.getName(), test.getDescription());
+                    converter.createDomain(test, node);
+                    addExceptions(extent.getReport(), node.getModel());
+                    restored.add(node);
+                }
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.err.println("Failed to read report node from " + file + ". Error: " + e.getMessage());
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Removes nodes returned by {@link #restore} from the report again; they are still in the store.
+     */
+    public synchronized void release(ExtentReports extent, List<ExtentTest> restored) {
+        for (ExtentTest node : restored) {
+            remove(extent, node);
+        }
+        extent.setReportUsesManualConfiguration(false);
+    }
+
+    // removeTest only clears the class node from the exception, author, category and device lists,
+    // their method nodes would keep the whole class in memory
+    private static void remove(ExtentReports extent, ExtentTest classNode) {
+        extent.removeTest(classNode);
+        forgetNodes(extent.getReport(), classNode.getModel().getChildren());
+    }
+
+    // The converter attaches exceptions to the logs after they were added, so the report's exception view misses them
+    private static void addExceptions(Report report, Test test) {
+        for (ExceptionInfo exception : test.getExceptions()) {
+            report.getExceptionInfoCtx().addContext(exception, test);
+        }
+        for (Test node : test.getChildren()) {
+            addExceptions(report, node);
+        }
+    }
+
+    private static Gson withEpochDates(Gson gson) {
+        return gson.newBuilder().registerTypeAdapter(Date.class, new TypeAdapter<Date>() {
+            @Override
+            public void write(JsonWriter out, Date date) throws IOException {
+                if (date == null) {
+                    out.nullValue();
+                } else {
+                    out.value(date.getTime());
+                }
+            }
+
+            @Override
+            public Date read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                return new Date(in.nextLong());
+            }
+        }).create();
+    }
+
+    private static void forgetNodes(Report report, List<Test> nodes) {
+        for (Test node : nodes) {
+            report.getExceptionInfoCtx().removeTest(node);
+            report.getAuthorCtx().removeTest(node);
+            report.getCategoryCtx().removeTest(node);
+            report.getDeviceCtx().removeTest(node);
+            forgetNodes(report, node.getChildren());
+        }
+    }
+
+    /** Returns a one line summary of the store usage for the current run. */
+    public String getStats() {
+        return "Report nodes on disk: " + spilledCount.get() + " class(es) (" + bytesWritten.get() / 1024 + " KB)";
+    }
+}
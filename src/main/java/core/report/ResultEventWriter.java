@@ -0,0 +1,114 @@
+package core.report;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the test events of a run as JSON lines, one object per line, flushed after every line so
+ * the file can be followed with {@code tail -f} while the tests run. Every event has an
+ * {@code event} name and a {@code time} in epoch milliseconds:
+ * <ul>
+ *     <li>test_start: class, method, params, thread</li>
+ *     <li>test_end: class, method, params, thread, status, start, duration_ms and the error type and message</li>
+ *     <li>class_end: class, tests, pass, fail, skip</li>
+ *     <li>run_end: name (of the suite), tests, pass, fail, skip; once per suite</li>
+ * </ul>
+ */
+public class ResultEventWriter {
+    private static final int MAX_MESSAGE_CHARS = 2000;
+
+    private final Writer writer;
+    private final JsonGenerator json;
+    private final AtomicLong eventCount = new AtomicLong();
+
+    /**
+     * Creates the event file, replacing one of a previous run.
+     */
+    public ResultEventWriter(File file) throws IOException {
+        writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+        json = new JsonFactory().createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+    }
+
+    /** Writes a test_start event. */
+    public synchronized void testStarted(String className, String methodName, String parameters, String thread)
+            throws IOException {
+        startEvent("test_start", System.currentTimeMillis());
+        writeTest(className, methodName, parameters, thread);
+        endEvent();
+    }
+
+    /**
+     * Writes a test_end event.
+     *
+     * @param status pass, fail or skip.
+     */
+    public synchronized void testFinished(String className, String methodName, String parameters, String thread,
+                                          String status, long startMillis, long endMillis, Throwable error)
+            throws IOException {
+        startEvent("test_end", endMillis);
+        writeTest(className, methodName, parameters, thread);
+        json.writeStringField("status", status);
+        json.writeNumberField("start", startMillis);
+        json.writeNumberField("duration_ms", Math.max(0, endMillis - startMillis));
+        if (error != null) {
+            String message = String.valueOf(error.getMessage());
+            json.writeStringField("error_type", error.getClass().getName());
+            json.writeStringField("error", message.length() > MAX_MESSAGE_CHARS
+                    ? message.substring(0, MAX_MESSAGE_CHARS) + "..." : message);
+        }
+        endEvent();
+    }
+
+    /**
+     * Writes a class_end or run_end event with the counts of pass, fail and skip.
+     *
+     * @param event class_end or run_end.
+     * @param field class for class_end, name for run_end.
+     */
+    public synchronized void summary(String event, String field, String name, int[] counts) throws IOException {
+        startEvent(event, System.currentTimeMillis());
+        json.writeStringField(field, name);
+        json.writeNumberField("tests", counts[0] + counts[1] + counts[2]);
+        json.writeNumberField("pass", counts[0]);
+        json.writeNumberField("fail", counts[1]);
+        json.writeNumberField("skip", counts[2]);
+        endEvent();
+    }
+
+    /** Returns the number of events written. */
+    public long getEventCount() {
+        return eventCount.get();
+    }
+
+    private void startEvent(String event, long time) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("event", event);
+        json.writeNumberField("time", time);
+    }
+
+    private void writeTest(String className, String methodName, String parameters, String thread) throws IOException {
+        json.writeStringField("class", className);
+        json.writeStringField("method", methodName);
+        if (parameters != null) {
+            json.writeStringField("params", parameters);
+        }
+        json.writeStringField("thread", thread);
+    }
+
+    private void endEvent() throws IOException {
+        json.writeEndObject();
+        json.flush();
+        writer.write('\n');
+        writer.flush();
+        eventCount.incrementAndGet();
+    }
+}
@@ -0,0 +1,174 @@
+package core.report;
+
+import org.testng.ITestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Feeds the listener events into a {@link JUnitXmlWriter} and a {@link ResultEventWriter} when
+ * RESULT_EXPORT is on, for CI tools that read results while the run is going:
+ * RESULT_EXPORT_DIR/junit.xml gets each test class as it finishes and RESULT_EXPORT_DIR/events.jsonl
+ * gets a line per test start and end, and one run_end line when the suite finishes.
+ */
+public class ResultExport {
+    private static final boolean RESULT_EXPORT = getBoolProp("RESULT_EXPORT", false);
+    private static final String EXPORT_DIR = getStrProp("RESULT_EXPORT_DIR", "execution-output/test-results");
+
+    // pass, fail and skip counts of the running classes and of the running suite
+    private static final Map<String, int[]> classCounts = new ConcurrentHashMap<>();
+    private static final int[] runCounts = new int[3];
+
+    private static JUnitXmlWriter junitWriter;
+    private static ResultEventWriter eventWriter;
+    private static boolean failed;
+
+    /**
+     * Writes the test_start event. Called by the listeners on the test thread.
+     */
+    public static void testStarted(ITestResult result) {
+        if (!open()) {
+            return;
+        }
+        try {
+            eventWriter.testStarted(className(result), result.getMethod().getMethodName(), parameters(result),
+                    Thread.currentThread().getName());
+        } catch (IOException e) {
+            System.err.println("Failed to export the start of " + result.getMethod().getMethodName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the test_end event and adds the test to the JUnit results of its class. Called by the
+     * listeners on success, failure and skip.
+     *
+     * @param thread The name of the thread the test ran on.
+     */
+    public static void testFinished(ITestResult result, String thread) {
+        if (!open()) {
+            return;
+        }
+        String status = result.getStatus() == ITestResult.SUCCESS ? "pass"
+                : result.getStatus() == ITestResult.SKIP ? "skip" : "fail";
+        int statusIndex = status.equals("pass") ? 0 : status.equals("fail") ? 1 : 2;
+        String className = className(result);
+        String methodName = result.getMethod().getMethodName();
+        String parameters = parameters(result);
+        classCounts.compute(className, (name, counts) -> {
+            counts = counts == null ? new int[3] : counts;
+            counts[statusIndex]++;
+            return counts;
+        });
+        synchronized (runCounts) {
+            runCounts[statusIndex]++;
+        }
+        try {
+            eventWriter.testFinished(className, methodName, parameters, thread, status,
+                    result.getStartMillis(), result.getEndMillis(), result.getThrowable());
+            junitWriter.addResult(className, methodName, status, result.getStartMillis(), result.getEndMillis(),
+                    parameters, result.getThrowable());
+        } catch (IOException e) {
+            System.err.println("Failed to export the result of " + methodName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the class_end event and the class's JUnit suite. Called by the listeners when TestNG
+     * finished the class.
+     */
+    public static void classFinished(Class<?> testClass) {
+        if (!open()) {
+            return;
+        }
+        int[] counts = classCounts.remove(testClass.getName());
+        if (counts == null) {
+            return;
+        }
+        try {
+            eventWriter.summary("class_end", "class", testClass.getName(), counts);
+            junitWriter.finishClass(testClass.getName());
+        } catch (IOException e) {
+            System.err.println("Failed to export " + testClass.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the suites of classes that are still open. Called by the listeners when a TestNG test
+     * finishes; a suite with several TestNG tests calls it for each of them.
+     */
+    public static void flushResults() {
+        if (!open()) {
+            return;
+        }
+        try {
+            for (String className : classCounts.keySet().toArray(new String[0])) {
+                int[] classCount = classCounts.remove(className);
+                if (classCount != null) {
+                    eventWriter.summary("class_end", "class", className, classCount);
+                }
+            }
+            junitWriter.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to export the results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes what is still open and the run_end event with the counts of the suite, then starts
+     * counting for the next suite. Called by the listeners once when a suite finishes.
+     *
+     * @param suiteName The name of the TestNG suite.
+     */
+    public static void suiteFinished(String suiteName) {
+        if (!open()) {
+            return;
+        }
+        flushResults();
+        int[] counts;
+        synchronized (runCounts) {
+            counts = runCounts.clone();
+            Arrays.fill(runCounts, 0);
+        }
+        try {
+            eventWriter.summary("run_end", "name", suiteName, counts);
+            System.out.println("INFO: Exported " + (counts[0] + counts[1] + counts[2]) + " test result(s) and "
+                    + eventWriter.getEventCount() + " event(s) to " + new File(EXPORT_DIR).getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to export the results: " + e.getMessage());
+        }
+    }
+
+    private static synchronized boolean open() {
+        if (!RESULT_EXPORT || failed) {
+            return false;
+        }
+        if (eventWriter == null) {
+            File dir = new File(EXPORT_DIR);
+            try {
+                dir.mkdirs();
+                junitWriter = new JUnitXmlWriter(new File(dir, "junit.xml"), new File(dir, ".spool"));
+                eventWriter = new ResultEventWriter(new File(dir, "events.jsonl"));
+            } catch (IOException e) {
+                System.err.println("Failed to create the result export in " + EXPORT_DIR + ": " + e.getMessage());
+                failed = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String className(ITestResult result) {
+        return result.getTestClass().getRealClass().getName();
+    }
+
+    private static String parameters(ITestResult result) {
+        Object[] params = result.getParameters();
+        return params.length > 0 ? Arrays.toString(params) : null;
+    }
+}
@@ -0,0 +1,197 @@
+package core.screenshot;
+
+import org.openqa.selenium.Rectangle;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Decides whether and how a step screenshot is stored.
+ * <ul>
+ *     <li>Skips full page frames whose perceptual hash is within a threshold of the last stored frame of the same
+ *     test, so a page that drifts a little on every step is stored once the drift adds up; element and region
+ *     captures are always stored.</li>
+ *     <li>Crops to a region when one is requested.</li>
+ *     <li>Re-encodes to JPEG with a configurable quality when a lossy format is configured.</li>
+ * </ul>
+ * The PNG from the driver is returned untouched when no option needs the decoded image.
+ */
+public class ScreenshotPolicy {
+    private static final boolean SKIP_UNCHANGED = getBoolProp("SCREENSHOT_SKIP_UNCHANGED", false);
+    // Maximum number of changed cells (out of 16x16) for two frames to count as unchanged
+    private static final int DIFF_THRESHOLD = getIntProp("SCREENSHOT_DIFF_THRESHOLD", 0);
+    private static final int HASH_GRID = 16;
+    // Average grey level change (0-255) of a cell that is still rendering noise, like a blinking caret
+    private static final int CELL_TOLERANCE = 4;
+    private static final String FORMAT = getStrProp("SCREENSHOT_FORMAT", "png").toLowerCase();
+    private static final int QUALITY = getIntProp("SCREENSHOT_QUALITY", 80);
+
+    // Last stored full page hash per thread, together with the test it belongs to
+    private static final ThreadLocal<LastFrame> lastFrame = new ThreadLocal<>();
+
+    /** Encoded image ready to be attached, with the extension matching its format. */
+    public static class Capture {
+        public final byte[] bytes;
+        public final String extension;
+
+        Capture(byte[] bytes, String extension) {
+            this.bytes = bytes;
+            this.extension = extension;
+        }
+    }
+
+    private static class LastFrame {
+        private final Object owner;
+        private final byte[] hash;
+
+        LastFrame(Object owner, byte[] hash) {
+            this.owner = owner;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Applies the configured policy to a PNG screenshot.
+     *
+     * @param png    The PNG bytes returned by the driver.
+     * @param region Optional crop in screenshot pixels, null for the whole image.
+     * @param owner  The test a full page frame belongs to; change detection restarts when it changes.
+     *               Null for element captures, which are never skipped.
+     * @return The capture to attach, or null when the frame is unchanged and should not be stored.
+     */
+    public static Capture apply(byte[] png, Rectangle region, Object owner) throws IOException {
+        return apply(png, region, owner, SKIP_UNCHANGED, DIFF_THRESHOLD);
+    }
+
+    static Capture apply(byte[] png, Rectangle region, Object owner, boolean skipUnchanged, int diffThreshold)
+            throws IOException {
+        boolean detectChange = skipUnchanged && region == null && owner != null;
+        boolean lossy = isLossy();
+        if (!detectChange && region == null && !lossy) {
+            return new Capture(png, "png");
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            return new Capture(png, "png");
+        }
+        if (region != null) {
+            image = crop(image, region);
+        }
+        byte[] hash = null;
+        if (detectChange) {
+            hash = perceptualHash(image);
+            LastFrame stored = lastFrame.get();
+            if (stored != null && stored.owner == owner && changedCells(stored.hash, hash) <= diffThreshold) {
+                return null;
+            }
+        }
+        Capture capture = lossy ? new Capture(encodeJpeg(image, QUALITY / 100f), "jpg")
+                : new Capture(region == null ? png : encodePng(image), "png");
+        if (hash != null) {
+            // Only a stored frame is the reference, skipped frames must not move it
+            lastFrame.set(new LastFrame(owner, hash));
+        }
+        return capture;
+    }
+
+    /** Returns true when screenshots are re-encoded to JPEG. */
+    public static boolean isLossy() {
+        return FORMAT.equals("jpg") || FORMAT.equals("jpeg");
+    }
+
+    /**
+     * Computes the perceptual hash of an image: its average grey level in each cell of a 16x16 grid.
+     * Every pixel counts towards its cell, so a change anywhere on the page moves the cell it is in;
+     * rendering noise of a few pixels stays within {@link #changedCells}' tolerance.
+     */
+    public static byte[] perceptualHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] sums = new long[HASH_GRID * HASH_GRID];
+        int[] counts = new int[HASH_GRID * HASH_GRID];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = (int) ((long) y * HASH_GRID / height) * HASH_GRID;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int cell = cellRow + (int) ((long) x * HASH_GRID / width);
+                sums[cell] += (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+                counts[cell]++;
+            }
+        }
+        byte[] hash = new byte[HASH_GRID * HASH_GRID];
+        for (int cell = 0; cell < hash.length; cell++) {
+            // Images narrower or lower than the grid leave cells empty
+            hash[cell] = (byte) (counts[cell] == 0 ? 0 : sums[cell] / counts[cell]);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the number of cells of two {@link #perceptualHash perceptual hashes} whose average grey
+     * level differs by more than the rendering noise tolerance.
+     */
+    public static int changedCells(byte[] first, byte[] second) {
+        int changed = 0;
+        for (int cell = 0; cell < first.length; cell++) {
+            if (Math.abs((first[cell] & 0xFF) - (second[cell] & 0xFF)) > CELL_TOLERANCE) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /** Crops the image to the region, clamped to the image bounds. */
+    public static BufferedImage crop(BufferedImage image, Rectangle region) {
+        int x = Math.max(0, Math.min(region.getX(), image.getWidth() - 1));
+        int y = Math.max(0, Math.min(region.getY(), image.getHeight() - 1));
+        int width = Math.max(1, Math.min(region.getWidth(), image.getWidth() - x));
+        int height = Math.max(1, Math.min(region.getHeight(), image.getHeight() - y));
+        return image.getSubimage(x, y, width, height);
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        // JPEG has no alpha channel, so draw onto an RGB image first
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.05f, Math.min(1f, quality)));
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+package core.screenshot;
+
+import managers.ExtentManager;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Content-addressed screenshot store.
+ * Every image is saved once under its SHA-256 hash next to the Extent report, so identical
+ * frames captured by different steps or tests share a single file and the report only carries
+ * a relative link instead of an inline base64 string.
+ */
+public class ScreenshotStore {
+    private static final String STORE_FOLDER = getStrProp("SCREENSHOT_STORE_FOLDER", "screenshots");
+    private static final boolean THUMBNAILS = getBoolProp("SCREENSHOT_THUMBNAILS", true);
+    private static final int THUMBNAIL_WIDTH = getIntProp("SCREENSHOT_THUMBNAIL_WIDTH", 320);
+
+    // Hashes already written during this run, used to skip duplicate writes without touching the disk
+    private static final Set<String> storedHashes = ConcurrentHashMap.newKeySet();
+    private static final ConcurrentLinkedQueue<Future<?>> pendingThumbnails = new ConcurrentLinkedQueue<>();
+    private static final ExecutorService thumbnailExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "screenshot-thumbnails");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private static final AtomicLong storedCount = new AtomicLong();
+    private static final AtomicLong dedupedCount = new AtomicLong();
+    private static final AtomicLong bytesWritten = new AtomicLong();
+    private static final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * <b>Stores the image bytes and returns the path relative to the report folder.</b>
+     * The file is only written the first time a given hash is seen.
+     *
+     * @param image     The encoded image bytes (e.g. PNG returned by the driver).
+     * @param extension The file extension without dot ("png", "jpg").
+     * @return The relative path to use in the report, e.g. "screenshots/ab12....png".
+     */
+    public static String store(byte[] image, String extension) throws IOException {
+        String hash = sha256(image);
+        String fileName = hash + "." + extension;
+        String relativePath = STORE_FOLDER + "/" + fileName;
+        if (!storedHashes.add(fileName)) {
+            dedupedCount.incrementAndGet();
+            bytesSaved.addAndGet(image.length);
+            return relativePath;
+        }
+        Path storeDir = getStoreDirectory();
+        Path target = storeDir.resolve(fileName);
+        // The same hash may exist from an earlier run that used the same report folder
+        if (Files.exists(target)) {
+            dedupedCount.incrementAndGet();
+            bytesSaved.addAndGet(image.length);
+        } else {
+            Files.createDirectories(storeDir);
+            // Write to a temp file first so a concurrent reader never sees a half written image
+            Path temp = Files.createTempFile(storeDir, hash, ".tmp");
+            Files.write(temp, image);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            storedCount.incrementAndGet();
+            bytesWritten.addAndGet(image.length);
+        }
+        if (THUMBNAILS) {
+            pendingThumbnails.add(thumbnailExecutor.submit(() -> createThumbnail(image, storeDir.resolve(thumbnailName(fileName)))));
+        }
+        return relativePath;
+    }
+
+    /**
+     * Returns the report-relative thumbnail path for a stored image, or the image itself when
+     * thumbnails are disabled.
+     */
+    public static String thumbnailPath(String relativePath) {
+        if (!THUMBNAILS) {
+            return relativePath;
+        }
+        int slash = relativePath.lastIndexOf('/');
+        return relativePath.substring(0, slash + 1) + thumbnailName(relativePath.substring(slash + 1));
+    }
+
+    /** Returns true when step screenshots should be rendered as thumbnails linking to the full image. */
+    public static boolean isThumbnailEnabled() {
+        return THUMBNAILS;
+    }
+
+    /**
+     * Blocks until all queued thumbnails are written. Called before the report is flushed so
+     * every thumbnail referenced by the report exists on disk.
+     */
+    public static void awaitThumbnails() {
+        Future<?> future;
+        while ((future = pendingThumbnails.poll()) != null) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                System.err.println("Thumbnail generation did not complete: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Returns a one line summary of the store usage for the current run. */
+    public static String getStats() {
+        return "Screenshots stored: " + storedCount.get() + " (" + bytesWritten.get() / 1024 + " KB), "
+                + "duplicates skipped: " + dedupedCount.get() + " (" + bytesSaved.get() / 1024 + " KB saved)";
+    }
+
+    private static Path getStoreDirectory() {
+        File reportFile = new File(ExtentManager.getReportFilePath());
+        File reportDir = reportFile.getAbsoluteFile().getParentFile();
+        return reportDir.toPath().resolve(STORE_FOLDER);
+    }
+
+    private static String thumbnailName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return fileName.substring(0, dot) + "_thumb" + fileName.substring(dot);
+    }
+
+    private static void createThumbnail(byte[] image, Path target) {
+        if (Files.exists(target)) {
+            return;
+        }
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(image));
+            if (source == null) {
+                return;
+            }
+            int width = Math.min(THUMBNAIL_WIDTH, source.getWidth());
+            int height = Math.max(1, source.getHeight() * width / source.getWidth());
+            BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = thumbnail.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+            graphics.dispose();
+            String format = target.getFileName().toString().endsWith(".png") ? "png" : "jpg";
+            ImageIO.write(thumbnail, format, target.toFile());
+        } catch (IOException e) {
+            System.err.println("Failed to create thumbnail " + target + ". Error: " + e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available in this JVM", e);
+        }
+    }
+}
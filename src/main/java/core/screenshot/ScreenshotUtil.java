@@ -7,11 +7,21 @@ import managers.DriverManager;
 import managers.ExtentManager;
 
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import static core.config.ConfigReader.getBoolProp;
 
 public class ScreenshotUtil
 {
+    // When enabled, step screenshots are written once per unique image and linked instead of inlined as base64
+    private static final boolean USE_SCREENSHOT_STORE = getBoolProp("SCREENSHOT_STORE", true);
+
     public static String getBase64Screenshot(WebDriver driver) {
         return ((TakesScreenshot) driver).getScreenshotAs(OutputType.BASE64);
     }
@@ -23,6 +33,31 @@ public class ScreenshotUtil
      * @param stepName The descriptive name for the test step.
      */
     public static void stepss(String stepName)
+    {
+        captureStep(stepName, null, null);
+    }
+    /**
+     * Takes a step screenshot of a single element instead of the whole page.
+     *
+     * @param stepName The descriptive name for the test step.
+     * @param element  The element to capture.
+     */
+    public static void stepss(String stepName, WebElement element)
+    {
+        captureStep(stepName, element, null);
+    }
+    /**
+     * Takes a step screenshot cropped to a region of the page.
+     *
+     * @param stepName The descriptive name for the test step.
+     * @param region   The region to keep, in screenshot pixels.
+     */
+    public static void stepss(String stepName, Rectangle region)
+    {
+        captureStep(stepName, null, region);
+    }
+
+    private static void captureStep(String stepName, WebElement element, Rectangle region)
     {
        WebDriver driver = DriverManager.getDriver();
        ExtentTest test = ExtentManager.getTest();
@@ -35,8 +70,17 @@ public class ScreenshotUtil
         {
             try
             {
-                String base64Image = getBase64Screenshot(driver);
-                test.log(Status.INFO, stepName, MediaEntityBuilder.createScreenCaptureFromBase64String(base64Image).build());
+                byte[] image = element != null
+                        ? element.getScreenshotAs(OutputType.BYTES)
+                        : ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+                // Only full page frames are compared with the previous step
+                ScreenshotPolicy.Capture capture = ScreenshotPolicy.apply(image, region, element == null ? test : null);
+                if (capture == null) {
+                    // Page looks the same as the previous step, no need to store another copy
+                    test.log(Status.INFO, stepName + " (unchanged)");
+                } else {
+                    attachImage(test, Status.INFO, stepName, capture.bytes, capture.extension);
+                }
             } catch (Exception e) {
                 test.log(Status.INFO, stepName + " (Screenshot failed: " + e.getMessage() + ")");
                 System.err.println("Failed to take step screenshot for: " + stepName + ". Error: " + e.getMessage());
@@ -46,4 +90,39 @@ public class ScreenshotUtil
             System.err.println("Failed to take step screenshot (No driver): " + stepName);
         }
     }
+
+    /**
+     * Logs an already encoded image on the given test node. The image goes through the
+     * {@link ScreenshotStore} when it is enabled, otherwise it is inlined as base64.
+     *
+     * @param test      The report node to log on.
+     * @param status    The status of the log entry.
+     * @param title     The text shown with the image.
+     * @param image     The encoded image bytes.
+     * @param extension The image format extension ("png", "jpg").
+     */
+    public static void attachImage(ExtentTest test, Status status, String title, byte[] image, String extension) throws IOException {
+        if (USE_SCREENSHOT_STORE) {
+            logStoredScreenshot(test, status, title, image, extension);
+        } else {
+            String base64Image = Base64.getEncoder().encodeToString(image);
+            test.log(status, title, MediaEntityBuilder.createScreenCaptureFromBase64String(base64Image).build());
+        }
+    }
+
+    /**
+     * Saves the image in the {@link ScreenshotStore} and logs the step with a relative link to it.
+     * With thumbnails enabled the step shows the small image and opens the full one on click.
+     */
+    private static void logStoredScreenshot(ExtentTest test, Status status, String stepName, byte[] image, String extension) throws IOException {
+        String path = ScreenshotStore.store(image, extension);
+        if (ScreenshotStore.isThumbnailEnabled()) {
+            String thumbnail = ScreenshotStore.thumbnailPath(path);
+            test.log(status, stepName + "<br><a href=\"" + path + "\" target=\"_blank\">"
+                    + "<img src=\"" + thumbnail + "\" onerror=\"this.onerror=null;this.src='" + path + "'\" "
+                    + "style=\"max-width:320px;border:1px solid #ccc;\"></a>");
+        } else {
+            test.log(status, stepName, MediaEntityBuilder.createScreenCaptureFromPath(path).build());
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package core.timeline;
+
+import core.logging.LogStore;
+import managers.ExtentManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Records what every thread of the run spends its time on: browser launches, tests, attachments,
+ * driver quits and the test classes around them. When a TestNG test finishes, the spans are drawn
+ * as a timeline with one row per thread (TIMELINE_FOLDER/timeline-&lt;test&gt;.svg next to the
+ * report) on a page with the utilization of the workers, the critical path and where the workers
+ * spent the time they were not running tests. The report links the page from its system info, so
+ * the test list only holds tests.
+ * <p>
+ * Off unless TIMELINE=true. Recording is an append to a queue, at most TIMELINE_MAX_SPANS spans
+ * are kept between reports.
+ */
+public class ExecutionTimeline {
+    public static final String CLASS = "class";
+    public static final String LAUNCH = "launch";
+    public static final String TEST = "test";
+    public static final String ATTACHMENTS = "attachments";
+    public static final String QUIT = "quit";
+
+    private static final boolean TIMELINE = getBoolProp("TIMELINE", false);
+    private static final String TIMELINE_FOLDER = getStrProp("TIMELINE_FOLDER", "timeline");
+    private static final int MAX_SPANS = getIntProp("TIMELINE_MAX_SPANS", 200000);
+
+    private static final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger spanCount = new AtomicInteger();
+    private static final AtomicLong droppedCount = new AtomicLong();
+    private static final ThreadLocal<String> currentClass = new ThreadLocal<>();
+    private static final Map<String, Long> classStarts = new ConcurrentHashMap<>();
+
+    /** A period of time one thread spent on one thing. */
+    public static class Span {
+        final String thread;
+        final String kind;
+        final String label;
+        final String group;
+        final long start;
+        final long end;
+
+        Span(String thread, String kind, String label, String group, long start, long end) {
+            this.thread = thread;
+            this.kind = kind;
+            this.label = label;
+            this.group = group;
+            this.start = start;
+            this.end = Math.max(start, end);
+        }
+
+        long duration() {
+            return end - start;
+        }
+    }
+
+    /**
+     * <b>Records a span of the current thread</b>, as part of the test class the thread is running.
+     *
+     * @param kind        One of LAUNCH, TEST, ATTACHMENTS or QUIT.
+     * @param label       What the span was, shown in the timeline.
+     * @param startMillis The start, in epoch milliseconds.
+     * @param endMillis   The end, in epoch milliseconds.
+     */
+    public static void record(String kind, String label, long startMillis, long endMillis) {
+        record(Thread.currentThread().getName(), kind, label, currentClass.get(), startMillis, endMillis);
+    }
+
+    /**
+     * Records a span of another thread, like a test's attachments added on a pipeline thread.
+     *
+     * @param group The test class the span belongs to, may be null.
+     */
+    public static void record(String thread, String kind, String label, String group, long startMillis, long endMillis) {
+        if (!TIMELINE) {
+            return;
+        }
+        if (spanCount.incrementAndGet() > MAX_SPANS) {
+            spanCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return;
+        }
+        spans.add(new Span(thread, kind, label, group, startMillis, endMillis));
+    }
+
+    /**
+     * Marks the start of a test class on the current thread. Called by the listeners before the
+     * class's first method.
+     */
+    public static void classStarted(String className) {
+        if (!TIMELINE) {
+            return;
+        }
+        currentClass.set(className);
+        classStarts.put(Thread.currentThread().getName() + "/" + className, System.currentTimeMillis());
+    }
+
+    /**
+     * Records the span of a test class. Called by the listeners when TestNG finished the class.
+     */
+    public static void classFinished(String className) {
+        if (!TIMELINE) {
+            return;
+        }
+        Long start = classStarts.remove(Thread.currentThread().getName() + "/" + className);
+        if (start != null) {
+            record(CLASS, className, start, System.currentTimeMillis());
+        }
+        currentClass.remove();
+    }
+
+    /**
+     * <b>Draws the spans recorded since the last call and links them from the report.</b> Called
+     * by the listeners when a TestNG test finishes, before the report is flushed.
+     *
+     * @param name The name of the TestNG test, used for the file name.
+     */
+    public static void writeReport(String name) {
+        if (!TIMELINE) {
+            return;
+        }
+        List<Span> recorded = new ArrayList<>();
+        for (Span span; (span = spans.poll()) != null; ) {
+            recorded.add(span);
+        }
+        spanCount.addAndGet(-recorded.size());
+        if (recorded.stream().noneMatch(span -> span.kind.equals(TEST))) {
+            return;
+        }
+        TimelineAnalysis analysis = new TimelineAnalysis(recorded);
+        String baseName = "timeline-" + name.replaceAll("[^A-Za-z0-9_.-]", "_");
+        File reportDir = new File(ExtentManager.getReportFilePath()).getAbsoluteFile().getParentFile();
+        File folder = new File(reportDir, TIMELINE_FOLDER);
+        File pageFile = new File(folder, baseName + ".html");
+        long dropped = droppedCount.getAndSet(0);
+        String page = "<!DOCTYPE html><html><head><meta charset='UTF-8'><title>Execution timeline: "
+                + LogStore.escapeHtml(name) + "</title></head><body><h2>Execution timeline: " + LogStore.escapeHtml(name)
+                + "</h2>" + analysis.toHtml()
+                + (dropped > 0 ? "<p><b>" + dropped + " span(s) were not recorded, TIMELINE_MAX_SPANS=" + MAX_SPANS
+                + " was reached</b></p>" : "")
+                + "<div style='overflow-x:auto;'><object type='image/svg+xml' data='" + baseName + ".svg'></object></div>"
+                + "</body></html>";
+        try {
+            folder.mkdirs();
+            Files.write(new File(folder, baseName + ".svg").toPath(), TimelineSvg.render(analysis).getBytes(StandardCharsets.UTF_8));
+            Files.write(pageFile.toPath(), page.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Failed to write the execution timeline " + pageFile + ": " + e.getMessage());
+            return;
+        }
+        String link = LogStore.escapeHtml(TIMELINE_FOLDER + "/" + pageFile.getName());
+        ExtentManager.getReportInstance().setSystemInfo("Execution timeline: " + LogStore.escapeHtml(name),
+                "<a href='" + link + "' target='_blank'>" + LogStore.escapeHtml(analysis.getSummary()) + "</a>");
+        System.out.println("INFO: Execution timeline: " + analysis.getSummary() + ", " + pageFile.getAbsolutePath());
+    }
+}
@@ -0,0 +1,244 @@
+package core.timeline;
+
+import core.logging.LogStore;
+import core.timeline.ExecutionTimeline.Span;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Works out from the recorded spans how busy the worker threads were. Workers are the threads
+ * that ran tests or launched browsers; every other thread, like the listener pipeline, is a helper.
+ * <ul>
+ *     <li>utilization: time in tests against the whole run, per worker and for all workers</li>
+ *     <li>critical path: the worker that finished last, its classes end the run</li>
+ *     <li>idle causes: the time the workers did not run tests, by what they did instead</li>
+ * </ul>
+ */
+class TimelineAnalysis {
+    private static final String[] IDLE_CAUSES = {
+            "browser launch", "attachments on the test thread", "driver quit",
+            "class setup and teardown (config methods, untracked)", "between classes",
+            "start delay", "finished early, waiting for the other workers"};
+
+    private static final int MAX_CRITICAL_CLASSES = 50;
+
+    private final long runStart;
+    private final long runEnd;
+    private final Map<String, List<Span>> lanes = new LinkedHashMap<>();
+    private final List<String> workers = new ArrayList<>();
+    private final Map<String, Long> testMillis = new LinkedHashMap<>();
+    private final Map<String, Long> idleMillis = new LinkedHashMap<>();
+    private final String criticalWorker;
+    private final long helperTail;
+
+    TimelineAnalysis(List<Span> spans) {
+        runStart = spans.stream().mapToLong(span -> span.start).min().orElse(0);
+        runEnd = spans.stream().mapToLong(span -> span.end).max().orElse(0);
+        Map<String, List<Span>> byThread = spans.stream()
+                .sorted(Comparator.comparingLong(span -> span.start))
+                .collect(Collectors.groupingBy(span -> span.thread, TreeMap::new, Collectors.toList()));
+        // Workers first, in the order they started, then the helper threads
+        byThread.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<String, List<Span>> lane) -> !isWorker(lane.getValue()))
+                        .thenComparingLong(lane -> lane.getValue().get(0).start))
+                .forEach(lane -> lanes.put(lane.getKey(), lane.getValue()));
+        lanes.forEach((thread, laneSpans) -> {
+            if (isWorker(laneSpans)) {
+                workers.add(thread);
+            }
+        });
+        for (String cause : IDLE_CAUSES) {
+            idleMillis.put(cause, 0L);
+        }
+        String last = null;
+        long lastEnd = Long.MIN_VALUE;
+        for (String worker : workers) {
+            List<Span> laneSpans = lanes.get(worker);
+            long tested = covered(laneSpans, kind(ExecutionTimeline.TEST));
+            testMillis.put(worker, tested);
+            long first = laneSpans.get(0).start;
+            long end = laneSpans.stream().mapToLong(span -> span.end).max().orElse(first);
+            long inClasses = covered(laneSpans, kind(ExecutionTimeline.CLASS));
+            long trackedInClasses = overlap(merge(laneSpans, kind(ExecutionTimeline.CLASS)),
+                    merge(laneSpans, span -> !span.kind.equals(ExecutionTimeline.CLASS)));
+            addIdle(0, covered(laneSpans, kind(ExecutionTimeline.LAUNCH)));
+            addIdle(1, covered(laneSpans, kind(ExecutionTimeline.ATTACHMENTS)));
+            addIdle(2, covered(laneSpans, kind(ExecutionTimeline.QUIT)));
+            addIdle(3, inClasses - trackedInClasses);
+            addIdle(4, (end - first) - covered(laneSpans, span -> true));
+            addIdle(5, first - runStart);
+            addIdle(6, runEnd - end);
+            if (end > lastEnd || (end == lastEnd && tested > testMillis.get(last))) {
+                last = worker;
+                lastEnd = end;
+            }
+        }
+        criticalWorker = last;
+        helperTail = last == null ? 0 : runEnd - lastEnd;
+    }
+
+    /** Returns the start of the first span, in epoch milliseconds. */
+    long getRunStart() {
+        return runStart;
+    }
+
+    /** Returns the end of the last span, in epoch milliseconds. */
+    long getRunEnd() {
+        return runEnd;
+    }
+
+    /** Returns the spans of each thread, workers first. */
+    Map<String, List<Span>> getLanes() {
+        return lanes;
+    }
+
+    boolean isWorker(String thread) {
+        return workers.contains(thread);
+    }
+
+    String getCriticalWorker() {
+        return criticalWorker;
+    }
+
+    /** Returns the time in tests of all workers against the time the workers were there for. */
+    double getUtilization() {
+        long window = runEnd - runStart;
+        if (window <= 0 || workers.isEmpty()) {
+            return 0;
+        }
+        return testMillis.values().stream().mapToLong(Long::longValue).sum() / (double) (window * workers.size());
+    }
+
+    /** Returns the idle causes, longest first. */
+    List<Map.Entry<String, Long>> getIdleCauses() {
+        return idleMillis.entrySet().stream()
+                .filter(cause -> cause.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .collect(Collectors.toList());
+    }
+
+    /** Returns a one line summary for the console. */
+    String getSummary() {
+        List<Map.Entry<String, Long>> causes = getIdleCauses();
+        return String.format("%d worker(s), %s, utilization %.0f%%, critical path on %s%s", workers.size(),
+                duration(runEnd - runStart), getUtilization() * 100, criticalWorker,
+                causes.isEmpty() ? "" : ", top idle cause: " + causes.get(0).getKey() + " " + duration(causes.get(0).getValue()));
+    }
+
+    /** Returns the utilization, critical path and idle causes as HTML tables for the report. */
+    String toHtml() {
+        long window = runEnd - runStart;
+        StringBuilder html = new StringBuilder();
+        html.append(String.format("<p><b>%d worker(s), %s, utilization %.1f%%</b> (time in tests / workers x run time)</p>",
+                workers.size(), duration(window), getUtilization() * 100));
+        html.append("<table class='table table-sm'><tr><th>Worker</th><th>In tests</th><th>Utilization</th></tr>");
+        for (String worker : workers) {
+            long tested = testMillis.get(worker);
+            html.append("<tr><td>").append(LogStore.escapeHtml(worker)).append("</td><td>").append(duration(tested))
+                    .append("</td><td>").append(String.format("%.1f%%", window > 0 ? tested * 100.0 / window : 0))
+                    .append("</td></tr>");
+        }
+        html.append("</table>");
+        if (criticalWorker != null) {
+            html.append("<p><b>Critical path</b>: ").append(LogStore.escapeHtml(criticalWorker))
+                    .append(" finished last; its classes in order:</p><table class='table table-sm'>")
+                    .append("<tr><th>Class</th><th>Duration</th></tr>");
+            List<Span> classes = lanes.get(criticalWorker).stream()
+                    .filter(kind(ExecutionTimeline.CLASS)).collect(Collectors.toList());
+            for (Span span : classes.subList(0, Math.min(classes.size(), MAX_CRITICAL_CLASSES))) {
+                html.append("<tr><td>").append(LogStore.escapeHtml(span.label)).append("</td><td>")
+                        .append(duration(span.duration())).append("</td></tr>");
+            }
+            if (classes.size() > MAX_CRITICAL_CLASSES) {
+                html.append("<tr><td>").append(classes.size() - MAX_CRITICAL_CLASSES).append(" more</td><td></td></tr>");
+            }
+            html.append("</table>");
+            if (helperTail > 0) {
+                html.append("<p>Helper threads ran ").append(duration(helperTail))
+                        .append(" past the last worker (attachments still being added).</p>");
+            }
+        }
+        List<Map.Entry<String, Long>> causes = getIdleCauses();
+        if (!causes.isEmpty()) {
+            html.append("<p><b>Time the workers did not run tests</b></p><table class='table table-sm'>")
+                    .append("<tr><th>Cause</th><th>Worker time</th><th>Share of worker time</th></tr>");
+            for (Map.Entry<String, Long> cause : causes) {
+                html.append("<tr><td>").append(cause.getKey()).append("</td><td>").append(duration(cause.getValue()))
+                        .append("</td><td>").append(String.format("%.1f%%",
+                                cause.getValue() * 100.0 / Math.max(1, window * workers.size())))
+                        .append("</td></tr>");
+            }
+            html.append("</table>");
+        }
+        return html.toString();
+    }
+
+    static String duration(long millis) {
+        if (millis < 1000) {
+            return millis + " ms";
+        }
+        if (millis < 60000) {
+            return String.format("%.1f s", millis / 1000.0);
+        }
+        return millis / 60000 + " m " + Math.round(millis % 60000 / 1000.0) + " s";
+    }
+
+    private void addIdle(int cause, long millis) {
+        idleMillis.merge(IDLE_CAUSES[cause], Math.max(0, millis), Long::sum);
+    }
+
+    private static boolean isWorker(List<Span> laneSpans) {
+        return laneSpans.stream().anyMatch(span -> span.kind.equals(ExecutionTimeline.TEST)
+                || span.kind.equals(ExecutionTimeline.LAUNCH));
+    }
+
+    private static Predicate<Span> kind(String kind) {
+        return span -> span.kind.equals(kind);
+    }
+
+    static long covered(List<Span> laneSpans, Predicate<Span> filter) {
+        return merge(laneSpans, filter).stream().mapToLong(interval -> interval[1] - interval[0]).sum();
+    }
+
+    // The spans as sorted intervals without overlaps; the lane is sorted by start
+    static List<long[]> merge(List<Span> laneSpans, Predicate<Span> filter) {
+        List<long[]> merged = new ArrayList<>();
+        for (Span span : laneSpans) {
+            if (!filter.test(span)) {
+                continue;
+            }
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && span.start <= last[1]) {
+                last[1] = Math.max(last[1], span.end);
+            } else {
+                merged.add(new long[]{span.start, span.end});
+            }
+        }
+        return merged;
+    }
+
+    // The time both lists of merged intervals cover
+    static long overlap(List<long[]> first, List<long[]> second) {
+        long total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            long start = Math.max(first.get(i)[0], second.get(j)[0]);
+            long end = Math.min(first.get(i)[1], second.get(j)[1]);
+            total += Math.max(0, end - start);
+            if (first.get(i)[1] < second.get(j)[1]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,133 @@
+package core.timeline;
+
+import core.logging.LogStore;
+import core.timeline.ExecutionTimeline.Span;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws the timeline as an SVG Gantt chart: one row per thread, the test classes as a light band
+ * behind the launches, tests, attachments and quits of the thread. Spans of the same kind that are
+ * too narrow to tell apart are drawn as one bar of a few pixels, so the size of the file depends on
+ * the width of the chart and not on the number of tests. Every bar has a tooltip.
+ */
+class TimelineSvg {
+    private static final int WIDTH = 1400;
+    private static final int LABEL_WIDTH = 240;
+    private static final int ROW_HEIGHT = 24;
+    private static final int TOP = 30;
+    private static final int MIN_BAR_PIXELS = 3;
+    private static final String[][] KINDS = {
+            {ExecutionTimeline.LAUNCH, "#1e88e5"},
+            {ExecutionTimeline.TEST, "#43a047"},
+            {ExecutionTimeline.ATTACHMENTS, "#fb8c00"},
+            {ExecutionTimeline.QUIT, "#8e24aa"}};
+
+    static String render(TimelineAnalysis analysis) {
+        Map<String, List<Span>> lanes = analysis.getLanes();
+        long start = analysis.getRunStart();
+        long window = Math.max(1, analysis.getRunEnd() - start);
+        double scale = (WIDTH - LABEL_WIDTH - 10) / (double) window;
+        int height = TOP + lanes.size() * ROW_HEIGHT + 30;
+        StringBuilder svg = new StringBuilder();
+        svg.append("<svg xmlns='http://www.w3.org/2000/svg' width='").append(WIDTH).append("' height='").append(height)
+                .append("' font-family='sans-serif' font-size='11'>\n");
+        svg.append("<rect width='100%' height='100%' fill='#fff'/>\n");
+        appendAxis(svg, window, scale, height);
+        int row = 0;
+        for (Map.Entry<String, List<Span>> lane : lanes.entrySet()) {
+            int y = TOP + row * ROW_HEIGHT;
+            boolean critical = lane.getKey().equals(analysis.getCriticalWorker());
+            svg.append("<text x='4' y='").append(y + 16).append("'")
+                    .append(analysis.isWorker(lane.getKey()) ? "" : " fill='#78909c'")
+                    .append(critical ? " font-weight='bold'" : "").append(">")
+                    .append(LogStore.escapeHtml(shorten(lane.getKey()))).append(critical ? " (critical path)" : "")
+                    .append("</text>\n");
+            for (Span span : lane.getValue()) {
+                if (span.kind.equals(ExecutionTimeline.CLASS)) {
+                    appendBar(svg, span.start, span.end, span.label, start, scale, y + 1, ROW_HEIGHT - 2, "#eceff1");
+                }
+            }
+            for (String[] kind : KINDS) {
+                appendMerged(svg, lane.getValue(), kind[0], kind[1], start, scale, y + 5, ROW_HEIGHT - 10);
+            }
+            row++;
+        }
+        int legendX = LABEL_WIDTH;
+        for (String[] kind : KINDS) {
+            svg.append("<rect x='").append(legendX).append("' y='").append(height - 18)
+                    .append("' width='12' height='12' fill='").append(kind[1]).append("'/>")
+                    .append("<text x='").append(legendX + 16).append("' y='").append(height - 8).append("'>")
+                    .append(kind[0]).append("</text>\n");
+            legendX += 110;
+        }
+        svg.append("<rect x='").append(legendX).append("' y='").append(height - 18)
+                .append("' width='12' height='12' fill='#eceff1' stroke='#b0bec5'/>")
+                .append("<text x='").append(legendX + 16).append("' y='").append(height - 8).append("'>test class</text>\n");
+        return svg.append("</svg>\n").toString();
+    }
+
+    private static void appendAxis(StringBuilder svg, long window, double scale, int height) {
+        long step = niceStep(window / 10);
+        for (long tick = 0; tick <= window; tick += step) {
+            double x = LABEL_WIDTH + tick * scale;
+            svg.append(String.format("<line x1='%.1f' y1='%d' x2='%.1f' y2='%d' stroke='#e0e0e0'/>", x, TOP - 6, x, height - 24))
+                    .append(String.format("<text x='%.1f' y='%d' fill='#78909c'>%s</text>%n", x + 2, TOP - 10,
+                            TimelineAnalysis.duration(tick)));
+        }
+    }
+
+    // Narrow spans of one kind less than a pixel apart become one bar with the count in its tooltip
+    private static void appendMerged(StringBuilder svg, List<Span> laneSpans, String kind, String color,
+                                     long start, double scale, int y, int height) {
+        List<Span> ofKind = new ArrayList<>();
+        for (Span span : laneSpans) {
+            if (span.kind.equals(kind)) {
+                ofKind.add(span);
+            }
+        }
+        double pixel = 1 / scale;
+        int i = 0;
+        while (i < ofKind.size()) {
+            Span first = ofKind.get(i);
+            long end = first.end;
+            int count = 1;
+            while (i + count < ofKind.size() && ofKind.get(i + count).start - end <= pixel
+                    && (end - first.start < MIN_BAR_PIXELS * pixel || ofKind.get(i + count).duration() < pixel)) {
+                end = Math.max(end, ofKind.get(i + count).end);
+                count++;
+            }
+            String title = count == 1 ? first.label + (first.group == null ? "" : " (" + first.group + ")")
+                    : count + " " + kind + " spans, the first " + first.label;
+            appendBar(svg, first.start, end, title, start, scale, y, height, color);
+            i += count;
+        }
+    }
+
+    private static void appendBar(StringBuilder svg, long from, long to, String title, long start,
+                                  double scale, int y, int height, String color) {
+        double x = LABEL_WIDTH + (from - start) * scale;
+        double width = Math.max(1, (to - from) * scale);
+        svg.append(String.format("<rect x='%.1f' y='%d' width='%.1f' height='%d' fill='%s'>", x, y, width, height, color))
+                .append("<title>").append(LogStore.escapeHtml(title)).append(": ")
+                .append(TimelineAnalysis.duration(to - from))
+                .append("</title></rect>\n");
+    }
+
+    private static long niceStep(long rough) {
+        long[] steps = {100, 250, 500, 1000, 2000, 5000, 10000, 15000, 30000, 60000, 120000, 300000, 600000, 900000,
+                1800000, 3600000};
+        for (long step : steps) {
+            if (step >= rough) {
+                return step;
+            }
+        }
+        return steps[steps.length - 1] * Math.max(1, rough / steps[steps.length - 1]);
+    }
+
+    private static String shorten(String thread) {
+        return thread.length() > 36 ? "..." + thread.substring(thread.length() - 33) : thread;
+    }
+}
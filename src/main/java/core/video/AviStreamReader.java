@@ -0,0 +1,219 @@
+package core.video;
+
+import java.awt.image.IndexColorModel;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal reader for the video stream of a finished AVI file written by Monte.
+ * It lists the encoded samples of the first video stream with their keyframe flags so that
+ * parts of a recording can be copied into a new file without decoding them.
+ * <p>
+ * Only plain RIFF AVI files are read, up to 4 GB. OpenDML (AVI 2.0) files, which continue in
+ * further "RIFF AVIX" chunks indexed by "indx" chunks, are rejected, Monte does not write them.
+ */
+public class AviStreamReader implements Closeable {
+    private static final int AVIIF_KEYFRAME = 0x10;
+
+    private final RandomAccessFile file;
+    private final List<Sample> samples = new ArrayList<>();
+    private String compression;
+    private long scale = 1;
+    private long rate = 1;
+    private int width;
+    private int height;
+    private int depth;
+    private byte[] palette;
+    private boolean inVideoStream;
+    private int streamCount;
+    private boolean openDml;
+
+    /** One encoded frame of the video stream. */
+    public static class Sample {
+        public final long offset;
+        public final int size;
+        boolean keyframe;
+
+        Sample(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public boolean isKeyframe() {
+            return keyframe;
+        }
+    }
+
+    public AviStreamReader(File aviFile) throws IOException {
+        this.file = new RandomAccessFile(aviFile, "r");
+        if (!"RIFF".equals(readFourCC(0)) || !"AVI ".equals(readFourCC(8))) {
+            file.close();
+            throw new IOException("\"" + aviFile + "\" is not an AVI file.");
+        }
+        // The chunk size is unsigned, files between 2 and 4 GB would overflow an int
+        long riffEnd = 8 + (readIntLE(4) & 0xFFFFFFFFL);
+        riffEnd += riffEnd & 1;
+        if (riffEnd + 12 <= file.length() && "RIFF".equals(readFourCC(riffEnd))) {
+            String continuation = readFourCC(riffEnd + 8);
+            file.close();
+            throw new IOException("\"" + aviFile + "\" is an OpenDML AVI continued in " + continuation
+                    + " chunks, which is not supported.");
+        }
+        walk(12, Math.min(file.length(), riffEnd));
+        if (openDml) {
+            file.close();
+            throw new IOException("\"" + aviFile + "\" has an OpenDML super index, which is not supported.");
+        }
+        if (compression == null) {
+            file.close();
+            throw new IOException("\"" + aviFile + "\" has no video stream.");
+        }
+        if (!samples.isEmpty()) {
+            // Without an index the first frame is the only frame known to be complete
+            boolean anyKeyframe = samples.stream().anyMatch(Sample::isKeyframe);
+            if (!anyKeyframe) {
+                samples.get(0).keyframe = true;
+            }
+        }
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    public byte[] readSample(Sample sample) throws IOException {
+        byte[] data = new byte[sample.size];
+        file.seek(sample.offset);
+        file.readFully(data);
+        return data;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    /** Frames per second as the rate/scale pair of the stream header. */
+    public long getRate() {
+        return rate;
+    }
+
+    public long getScale() {
+        return scale;
+    }
+
+    public double getFrameRate() {
+        return scale == 0 ? 0 : (double) rate / scale;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** The colour table of 8 bit videos, null for true colour videos. */
+    public IndexColorModel getPalette() {
+        if (palette == null) {
+            return null;
+        }
+        int colours = palette.length / 4;
+        byte[] r = new byte[colours], g = new byte[colours], b = new byte[colours];
+        for (int i = 0; i < colours; i++) {
+            // RGBQUAD entries are stored blue first
+            b[i] = palette[i * 4];
+            g[i] = palette[i * 4 + 1];
+            r[i] = palette[i * 4 + 2];
+        }
+        return new IndexColorModel(8, colours, r, g, b);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void walk(long position, long end) throws IOException {
+        while (position + 8 <= end) {
+            String id = readFourCC(position);
+            long size = readIntLE(position + 4) & 0xFFFFFFFFL;
+            long dataStart = position + 8;
+            if (id.equals("LIST")) {
+                String type = readFourCC(dataStart);
+                if (type.equals("strl")) {
+                    inVideoStream = false;
+                    streamCount++;
+                }
+                walk(dataStart + 4, Math.min(end, dataStart + size));
+            } else if (id.equals("strh")) {
+                inVideoStream = streamCount == 1 && "vids".equals(readFourCC(dataStart));
+                if (inVideoStream) {
+                    compression = readFourCC(dataStart + 4);
+                    scale = readIntLE(dataStart + 20) & 0xFFFFFFFFL;
+                    rate = readIntLE(dataStart + 24) & 0xFFFFFFFFL;
+                }
+            } else if (id.equals("strf") && inVideoStream) {
+                width = readIntLE(dataStart + 4);
+                height = Math.abs(readIntLE(dataStart + 8));
+                depth = readShortLE(dataStart + 14);
+                int headerSize = readIntLE(dataStart);
+                if (depth <= 8 && size > headerSize) {
+                    palette = new byte[(int) size - headerSize];
+                    file.seek(dataStart + headerSize);
+                    file.readFully(palette);
+                }
+            } else if (id.startsWith("00d")) {
+                samples.add(new Sample(dataStart, (int) size));
+            } else if (id.equals("indx")) {
+                openDml = true;
+            } else if (id.equals("idx1")) {
+                readIndex(dataStart, size);
+            }
+            position = dataStart + size + (size & 1);
+        }
+    }
+
+    // The index lists the chunks in file order, so the n-th video entry belongs to the n-th sample
+    private void readIndex(long start, long size) throws IOException {
+        int sampleIndex = 0;
+        byte[] entries = new byte[(int) size];
+        file.seek(start);
+        file.readFully(entries);
+        for (int i = 0; i + 16 <= entries.length && sampleIndex < samples.size(); i += 16) {
+            String chunkId = new String(entries, i, 4, StandardCharsets.US_ASCII);
+            if (!chunkId.startsWith("00d")) {
+                continue;
+            }
+            int flags = (entries[i + 4] & 0xFF) | (entries[i + 5] & 0xFF) << 8;
+            samples.get(sampleIndex++).keyframe = (flags & AVIIF_KEYFRAME) != 0;
+        }
+    }
+
+    private String readFourCC(long position) throws IOException {
+        byte[] id = new byte[4];
+        file.seek(position);
+        file.readFully(id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+
+    private int readIntLE(long position) throws IOException {
+        file.seek(position);
+        int b0 = file.read(), b1 = file.read(), b2 = file.read(), b3 = file.read();
+        return b0 | b1 << 8 | b2 << 16 | b3 << 24;
+    }
+
+    private int readShortLE(long position) throws IOException {
+        file.seek(position);
+        return file.read() | file.read() << 8;
+    }
+}
@@ -0,0 +1,345 @@
+package core.video;
+
+import org.monte.media.avi.AVIOutputStream;
+
+import java.awt.AWTException;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * One desktop recording for the whole run instead of a recorder per test.
+ * The recording starts with the first test and is finished by {@link #finish()}, which the
+ * VideoStage calls when the TestNG test finished. Each test only records its start and end offset
+ * into a segment table ({@code <run>.segments.csv}) next to the video, which is appended as soon as
+ * a test ends. Clips of single tests are cut when the video is finished, and only for the tests they
+ * were requested for (see VIDEO_CUT_CLIPS); the report links a clip once it was written.
+ * <p>
+ * The clips are cut on one background thread with a bounded queue of finished recordings, so the
+ * TestNG thread does not wait for them; {@link #awaitClips()} waits for the cuts at the end of the run.
+ * <p>
+ * A shutdown hook stops a recording nobody finished, so its file is complete, but cuts no clips.
+ */
+public class ContinuousRecording {
+    // none: only the segment table, failed: clips for failed tests, all: clips for every test
+    private static final String CUT_CLIPS = getStrProp("VIDEO_CUT_CLIPS", "failed").toLowerCase();
+    // Clips can only start on a key frame, so a short interval keeps them close to the test start
+    private static final int KEYFRAME_SECONDS = getIntProp("VIDEO_CONTINUOUS_KEYFRAME_SECONDS", 2);
+    private static final int CLIP_QUEUE = getIntProp("VIDEO_CLIP_QUEUE", 10);
+    private static final int CLIP_WAIT_SECONDS = getIntProp("VIDEO_CLIP_WAIT_SEC", 300);
+
+    private static ContinuousRecording instance;
+    private static ThreadPoolExecutor cutter;
+
+    private final TestRecorder recorder;
+    private final File movieFolder;
+    private final File segmentTable;
+    private final List<Segment> clipRequests = new ArrayList<>();
+
+    /** The part of the run recording that belongs to one test. */
+    public static class Segment {
+        public final String testName;
+        public final String threadName;
+        public final File video;
+        public final long startOffsetMs;
+        private long endOffsetMs = -1;
+        private volatile Consumer<String> clipLink;
+
+        Segment(String testName, File video, long startOffsetMs) {
+            this.testName = testName;
+            this.threadName = Thread.currentThread().getName();
+            this.video = video;
+            this.startOffsetMs = startOffsetMs;
+        }
+
+        public long getEndOffsetMs() {
+            return endOffsetMs;
+        }
+    }
+
+    private ContinuousRecording(String runName, File movieFolder) throws IOException, AWTException {
+        this.movieFolder = movieFolder;
+        this.recorder = TestRecorder.createScreenRecorder(runName, movieFolder.getPath(), TestRecorder.FRAME_RATE * Math.max(1, KEYFRAME_SECONDS));
+        // Keep a single file as long as possible, the offsets are relative to the file start anyway
+        recorder.setMaxRecordingTime(TimeUnit.HOURS.toMillis(24));
+        recorder.start();
+        this.segmentTable = new File(movieFolder, runName + ".segments.csv");
+        try (Writer writer = new FileWriter(segmentTable, StandardCharsets.UTF_8)) {
+            writer.write("test,thread,video,startOffsetMs,endOffsetMs\n");
+        }
+    }
+
+    /**
+     * Returns the run recording, starting it on first use.
+     *
+     * @param movieFolder Folder for the video, the segment table and the clips.
+     */
+    public static synchronized ContinuousRecording get(String movieFolder) throws IOException, AWTException {
+        if (instance == null) {
+            String runName = "run-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            instance = new ContinuousRecording(runName, new File(movieFolder));
+            ContinuousRecording started = instance;
+            Runtime.getRuntime().addShutdownHook(new Thread(started::stopOnExit, "continuous-recording-stop"));
+            System.out.println("INFO: Continuous recording started: " + instance.recorder.getCurrentFile());
+        }
+        return instance;
+    }
+
+    /** Creates the per-test recorder that marks a segment of the run recording. */
+    public static VideoRecorder createSegmentRecorder(String testName, String movieFolder) throws IOException, AWTException {
+        return new SegmentRecorder(get(movieFolder), testName);
+    }
+
+    Segment begin(String testName) {
+        return new Segment(testName, recorder.getCurrentFile(), currentOffset());
+    }
+
+    synchronized void end(Segment segment, boolean failed) {
+        segment.endOffsetMs = currentOffset();
+        try (Writer writer = new FileWriter(segmentTable, StandardCharsets.UTF_8, true)) {
+            writer.write(csv(segment.testName) + "," + csv(segment.threadName) + "," + csv(segment.video.getName())
+                    + "," + segment.startOffsetMs + "," + segment.endOffsetMs + "\n");
+        } catch (IOException e) {
+            System.err.println("Failed to write the segment of " + segment.testName + ": " + e.getMessage());
+        }
+        if (CUT_CLIPS.equals("all") || (failed && CUT_CLIPS.equals("failed"))) {
+            clipRequests.add(segment);
+        }
+    }
+
+    /** Report link to the run video with the test's time range. */
+    String getReportLink(Segment segment) {
+        String range = formatOffset(segment.startOffsetMs) + " - " + formatOffset(segment.endOffsetMs);
+        return "<a href=\"" + segment.video.getAbsoluteFile().toURI() + "\" target=\"_blank\">Execution Video</a> (" + range + ")";
+    }
+
+    /**
+     * <b>Stops the run recording and queues the requested clips</b>, which are cut on a background
+     * thread; the link of every clip that was written is passed to its test. Called when the TestNG
+     * test finished, or on demand; the next test afterwards starts a new run recording.
+     */
+    public static void finish() {
+        ContinuousRecording recording;
+        synchronized (ContinuousRecording.class) {
+            recording = instance;
+            instance = null;
+        }
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.recorder.stop();
+        } catch (IOException e) {
+            System.err.println("Failed to stop the continuous recording: " + e.getMessage());
+            return;
+        }
+        List<Segment> requests;
+        synchronized (recording) {
+            requests = new ArrayList<>(recording.clipRequests);
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        try {
+            getCutter().execute(() -> recording.cutClips(requests));
+        } catch (RejectedExecutionException e) {
+            System.err.println("VIDEO_CLIP_QUEUE is full, the " + requests.size() + " clip(s) of "
+                    + recording.recorder.getCurrentFile() + " are not cut; their offsets are in " + recording.segmentTable);
+        }
+    }
+
+    /**
+     * <b>Waits for the queued clips</b>, at most VIDEO_CLIP_WAIT_SEC. Called at the end of the run,
+     * before the report is written the last time.
+     *
+     * @return true when clips were queued since the previous call, so report links may have been added.
+     */
+    public static boolean awaitClips() {
+        ThreadPoolExecutor pool;
+        synchronized (ContinuousRecording.class) {
+            pool = cutter;
+            cutter = null;
+        }
+        if (pool == null) {
+            return false;
+        }
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(CLIP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Clips were not cut within " + CLIP_WAIT_SECONDS + " s, the remaining ones are left out.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    private static synchronized ThreadPoolExecutor getCutter() {
+        if (cutter == null) {
+            cutter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, CLIP_QUEUE)), r -> {
+                Thread thread = new Thread(r, "continuous-recording-clips");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return cutter;
+    }
+
+    private void cutClips(List<Segment> requests) {
+        long start = System.nanoTime();
+        int written = 0;
+        for (Segment segment : requests) {
+            File clip = getClipFile(segment);
+            try {
+                cutClip(segment.video, segment.startOffsetMs, segment.endOffsetMs, clip);
+            } catch (IOException e) {
+                System.err.println("Failed to cut the clip of " + segment.testName + ": " + e.getMessage());
+                continue;
+            }
+            written++;
+            Consumer<String> link = segment.clipLink;
+            if (link != null) {
+                link.accept("<a href=\"" + clip.getAbsoluteFile().toURI() + "\" target=\"_blank\">Clip</a>");
+            }
+        }
+        System.out.println("INFO: Cut " + written + " of " + requests.size() + " clip(s) from the continuous recording in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+
+    // Closes the video of a recording that was not finished before the JVM exits
+    private void stopOnExit() {
+        synchronized (ContinuousRecording.class) {
+            if (instance != this) {
+                return;
+            }
+            instance = null;
+        }
+        try {
+            recorder.stop();
+            System.out.println("INFO: Continuous recording stopped at exit, no clips were cut: " + recorder.getCurrentFile());
+        } catch (IOException e) {
+            System.err.println("Failed to stop the continuous recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the part of a finished AVI between two offsets into a new file. The encoded frames are
+     * copied as they are, starting at the last key frame before the start offset, so nothing is
+     * decoded or re-encoded.
+     *
+     * @return The number of frames copied.
+     */
+    public static int cutClip(File video, long startOffsetMs, long endOffsetMs, File target) throws IOException {
+        try (AviStreamReader reader = new AviStreamReader(video)) {
+            List<AviStreamReader.Sample> samples = reader.getSamples();
+            double frameRate = reader.getFrameRate();
+            int first = (int) Math.min(samples.size(), Math.floor(startOffsetMs * frameRate / 1000.0));
+            int last = (int) Math.min(samples.size() - 1, Math.ceil(endOffsetMs * frameRate / 1000.0));
+            while (first > 0 && (first >= samples.size() || !samples.get(first).isKeyframe())) {
+                first--;
+            }
+            if (first > last) {
+                throw new IOException("No frames between " + startOffsetMs + " and " + endOffsetMs + " ms in " + video);
+            }
+            AVIOutputStream out = new AVIOutputStream(target);
+            try {
+                int track = out.addVideoTrack(reader.getCompression(), reader.getScale(), reader.getRate(),
+                        reader.getWidth(), reader.getHeight(), reader.getDepth(), (int) Math.max(1, frameRate * KEYFRAME_SECONDS));
+                IndexColorModel palette = reader.getPalette();
+                if (palette != null) {
+                    out.setPalette(track, palette);
+                }
+                for (int i = first; i <= last; i++) {
+                    AviStreamReader.Sample sample = samples.get(i);
+                    byte[] data = reader.readSample(sample);
+                    out.writeSample(track, data, 0, data.length, i == first || sample.isKeyframe());
+                }
+            } finally {
+                out.close();
+            }
+            return last - first + 1;
+        }
+    }
+
+    private File getClipFile(Segment segment) {
+        return new File(movieFolder, segment.testName + ".avi");
+    }
+
+    private long currentOffset() {
+        return Math.max(0, System.currentTimeMillis() - recorder.getCurrentFileStartTime());
+    }
+
+    private static String formatOffset(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /** Marks the segment of one test; starting and stopping it costs no recorder setup. */
+    private static class SegmentRecorder implements VideoRecorder {
+        private final ContinuousRecording recording;
+        private final String testName;
+        private Segment segment;
+        private volatile boolean failed;
+
+        SegmentRecorder(ContinuousRecording recording, String testName) {
+            this.recording = recording;
+            this.testName = testName;
+        }
+
+        @Override
+        public void start() {
+            segment = recording.begin(testName);
+        }
+
+        @Override
+        public void stop() {
+            if (segment != null) {
+                recording.end(segment, failed);
+            }
+        }
+
+        @Override
+        public void markFailed() {
+            failed = true;
+        }
+
+        @Override
+        public boolean hasVideo() {
+            return segment != null && segment.video != null;
+        }
+
+        @Override
+        public String getReportLink(String testName) {
+            return recording.getReportLink(segment);
+        }
+
+        @Override
+        public void whenLinkReady(Consumer<String> addLink) {
+            if (segment != null) {
+                segment.clipLink = addLink;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package core.video;
+
+import org.openqa.selenium.WebDriver;
+
+import java.awt.AWTException;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grabs a screen area with {@link Robot} at a fixed rate and delivers it as JPEG frames.
+ * Needs a real (or virtual) display, like the Monte based {@link TestRecorder}.
+ * <p>
+ * In adaptive mode unchanged frames are dropped before they are encoded, and while the screen
+ * stays still it is only grabbed at the idle rate; the first change switches back to the full rate.
+ * The recorder fills the gaps by holding the previous frame, so the video timing is unchanged.
+ * <p>
+ * A browser window is followed when it moves or is resized, see {@link #decorate(WebDriver)}. The
+ * video keeps the size of the first frame, grabs of a resized window are scaled to fit it.
+ * <p>
+ * Frames are scaled to VIDEO_SCALE_PERCENT of the grabbed area like the Monte recorder's. The
+ * frames are JPEG encoded, so VIDEO_COLOR_DEPTH does not apply; the JPEG quality sets the size.
+ */
+public class DesktopFrameSource implements FrameSource {
+    private final Rectangle captureArea;
+    private final WindowTracker window;
+    private final int frameRate;
+    private final float quality;
+    private final int idleFrameRate;
+    private ScheduledExecutorService timer;
+    // Written by the timer thread only
+    private long lastChecksum;
+    private long lastGrabAt;
+    private int unchangedFrames;
+    private long grabbedFrames;
+    private long droppedFrames;
+    private Dimension frameSize;
+
+    /**
+     * @param captureArea The screen area to grab, null for the whole screen.
+     * @param frameRate   Frames grabbed per second.
+     * @param quality     JPEG quality between 0 and 1.
+     */
+    public DesktopFrameSource(Rectangle captureArea, int frameRate, float quality) {
+        this(captureArea, frameRate, quality, frameRate);
+    }
+
+    /**
+     * @param captureArea   The screen area to grab, null for the whole screen.
+     * @param frameRate     Frames grabbed per second while the screen changes.
+     * @param quality       JPEG quality between 0 and 1.
+     * @param idleFrameRate Frames grabbed per second after a second without changes; the same as
+     *                      frameRate turns adaptive capture off.
+     */
+    public DesktopFrameSource(Rectangle captureArea, int frameRate, float quality, int idleFrameRate) {
+        this(captureArea, null, frameRate, quality, idleFrameRate);
+    }
+
+    private DesktopFrameSource(Rectangle captureArea, WindowTracker window, int frameRate, float quality, int idleFrameRate) {
+        this.captureArea = captureArea != null ? captureArea : WindowTracker.screenBounds();
+        this.window = window;
+        this.frameRate = Math.max(1, frameRate);
+        this.quality = quality;
+        this.idleFrameRate = Math.max(1, Math.min(this.frameRate, idleFrameRate));
+    }
+
+    /**
+     * Grabs the browser window of the driver, following it when it moves or is resized, or the
+     * whole screen when the window cannot be read.
+     *
+     * @see #DesktopFrameSource(Rectangle, int, float, int)
+     */
+    public static DesktopFrameSource forWindow(WebDriver driver, int frameRate, float quality, int idleFrameRate) {
+        WindowTracker window = WindowTracker.of(driver);
+        return new DesktopFrameSource(window == null ? null : window.getBounds(), window, frameRate, quality, idleFrameRate);
+    }
+
+    /**
+     * Wraps the driver so a window recording started on the calling thread follows the window
+     * from the test's own WebDriver calls. Called once when the driver is created.
+     */
+    public static WebDriver decorate(WebDriver driver) {
+        return WindowTracker.decorate(driver);
+    }
+
+    private boolean isAdaptive() {
+        return idleFrameRate < frameRate;
+    }
+
+    @Override
+    public void start(FrameConsumer consumer) throws IOException {
+        Robot robot;
+        try {
+            robot = new Robot();
+        } catch (AWTException e) {
+            throw new IOException("Screen capture is not available: " + e.getMessage(), e);
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "desktop-frame-source");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (window != null) {
+            window.start();
+        }
+        timer.scheduleAtFixedRate(() -> {
+            try {
+                long capturedAt = System.currentTimeMillis();
+                // A still screen is only looked at with the idle rate
+                if (isAdaptive() && unchangedFrames >= frameRate && capturedAt - lastGrabAt < 1000 / idleFrameRate) {
+                    return;
+                }
+                lastGrabAt = capturedAt;
+                BufferedImage frame = fit(robot.createScreenCapture(window != null ? window.getBounds() : captureArea));
+                grabbedFrames++;
+                if (isAdaptive()) {
+                    long checksum = checksum(frame);
+                    if (grabbedFrames > 1 && checksum == lastChecksum) {
+                        unchangedFrames++;
+                        droppedFrames++;
+                        return;
+                    }
+                    lastChecksum = checksum;
+                    unchangedFrames = 0;
+                }
+                consumer.acceptImage(frame, quality, capturedAt);
+            } catch (Exception e) {
+                System.err.println("Failed to grab screen frame: " + e.getMessage());
+            }
+        }, 0, 1000 / frameRate, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (window != null) {
+            window.stop();
+        }
+        if (timer != null) {
+            timer.shutdown();
+            try {
+                timer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (isAdaptive()) {
+                System.out.println("INFO: Adaptive desktop capture: " + grabbedFrames + " frames grabbed, "
+                        + droppedFrames + " unchanged frames dropped before encoding.");
+            }
+        }
+    }
+
+    // The video keeps the (scaled) size of the first frame, a resized window is scaled into it keeping its aspect ratio
+    private BufferedImage fit(BufferedImage grab) {
+        if (frameSize == null) {
+            int percent = TestRecorder.SCALE_PERCENT > 0 && TestRecorder.SCALE_PERCENT < 100 ? TestRecorder.SCALE_PERCENT : 100;
+            frameSize = new Dimension(Math.max(2, (grab.getWidth() * percent / 100) & ~1),
+                    Math.max(2, (grab.getHeight() * percent / 100) & ~1));
+        }
+        if (grab.getWidth() == frameSize.width && grab.getHeight() == frameSize.height) {
+            return grab;
+        }
+        double scale = Math.min(frameSize.width / (double) grab.getWidth(), frameSize.height / (double) grab.getHeight());
+        int width = (int) Math.round(grab.getWidth() * scale);
+        int height = (int) Math.round(grab.getHeight() * scale);
+        BufferedImage frame = new BufferedImage(frameSize.width, frameSize.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(grab, (frameSize.width - width) / 2, (frameSize.height - height) / 2, width, height, null);
+        graphics.dispose();
+        return frame;
+    }
+
+    // Robot returns int RGB images, so the pixel array can be hashed without copying
+    private static long checksum(BufferedImage image) {
+        if (image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            return Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        }
+        return Arrays.hashCode(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+    }
+}
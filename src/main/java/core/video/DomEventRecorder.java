@@ -0,0 +1,222 @@
+package core.video;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import core.logging.LogStore;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static core.config.ConfigReader.getIntProp;
+
+/**
+ * Records what the page's DOM did instead of what the screen showed.
+ * A small script is injected into the test's page on every poll: it takes a snapshot of the page
+ * when it is first loaded, then collects DOM mutations, input values, clicks and scrolling. The
+ * collected events are fetched through the driver and appended to {@code <name>.events.jsonl};
+ * at the end a self-contained {@code <name>.replay.html} player is written next to it and linked
+ * from the report.
+ * <p>
+ * A driver is not meant to be used by two threads at once, so the events are fetched on the test
+ * thread: the driver is wrapped by {@link #decorate(WebDriver)} and polls before the test's
+ * WebDriver calls, at most every DOM_REPLAY_POLL_MS, and once more when the recording stops.
+ * Calls starting with {@code switchTo()} are not preceded by a poll, a script call would dismiss
+ * an open alert. Failed polls are counted and reported when the recording stops.
+ * <p>
+ * Style sheets and images are loaded from the application when the replay is opened, and canvas,
+ * video and iframe contents are not recorded. Password fields are masked.
+ */
+public class DomEventRecorder implements VideoRecorder {
+    private static final int POLL_MS = getIntProp("DOM_REPLAY_POLL_MS", 1000);
+    // Further events of a test are dropped, so a page that mutates constantly cannot fill the disk
+    private static final int MAX_EVENTS = getIntProp("DOM_REPLAY_MAX_EVENTS", 50000);
+
+    private static final String RECORDER_SCRIPT = readResource("session-recorder.js");
+    private static final String PLAYER_TEMPLATE = readResource("session-replay.html");
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // The recording of the test running on this thread, polled by the decorated driver
+    private static final ThreadLocal<DomEventRecorder> active = new ThreadLocal<>();
+    private static final WebDriverListener pollBeforeCalls = new WebDriverListener() {
+        @Override
+        public void beforeAnyWebDriverCall(WebDriver driver, Method method, Object[] args) {
+            DomEventRecorder recorder = active.get();
+            if (recorder != null && !method.getName().equals("switchTo")) {
+                recorder.poll(false);
+            }
+        }
+    };
+
+    private final JavascriptExecutor driver;
+    private final String name;
+    private final File eventsFile;
+    private final File replayFile;
+    private final boolean failuresOnly;
+    private RecordingStats stats;
+    private BufferedWriter writer;
+    private int eventCount;
+    private int droppedCount;
+    // Only touched on the test thread
+    private boolean polling;
+    private long lastPollAt;
+    private int polls;
+    private int failedPolls;
+    private String lastPollError;
+    private volatile boolean failed;
+    private boolean replayKept;
+
+    /**
+     * @param driver       The test's driver.
+     * @param name         The file name without extension.
+     * @param folder       The folder the event log and player are written to.
+     * @param failuresOnly Delete the recording again unless the test was marked as failed.
+     */
+    public DomEventRecorder(JavascriptExecutor driver, String name, File folder, boolean failuresOnly) {
+        this.driver = driver;
+        this.name = name;
+        this.eventsFile = new File(folder, name + ".events.jsonl");
+        this.replayFile = new File(folder, name + ".replay.html");
+        this.failuresOnly = failuresOnly;
+    }
+
+    /** Returns true if the driver can run the recorder script. */
+    public static boolean isSupported(Object driver) {
+        return driver instanceof JavascriptExecutor;
+    }
+
+    /**
+     * Wraps the driver so the recording of the calling thread fetches its events before the
+     * driver's calls. Called once when the driver is created.
+     */
+    public static WebDriver decorate(WebDriver driver) {
+        return new EventFiringDecorator<>(pollBeforeCalls).decorate(driver);
+    }
+
+    @Override
+    public void start() throws IOException {
+        File folder = eventsFile.getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        stats = new RecordingStats();
+        writer = Files.newBufferedWriter(eventsFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        active.set(this);
+        // Injects the script, so the page is recorded from now on
+        poll(true);
+    }
+
+    // The script call goes through the decorated driver as well, so nested calls are skipped
+    private void poll(boolean force) {
+        long now = System.currentTimeMillis();
+        if (writer == null || polling || (!force && now - lastPollAt < POLL_MS)) {
+            return;
+        }
+        polling = true;
+        lastPollAt = now;
+        polls++;
+        try {
+            Object result = driver.executeScript(RECORDER_SCRIPT);
+            if (result == null) {
+                return;
+            }
+            for (JsonNode event : mapper.readTree(result.toString())) {
+                if (eventCount >= MAX_EVENTS) {
+                    droppedCount++;
+                    continue;
+                }
+                writer.write(mapper.writeValueAsString(event));
+                writer.newLine();
+                eventCount++;
+            }
+            writer.flush();
+        } catch (Exception e) {
+            // Between pages or browser already closed: the next poll catches up, events of the left page are lost
+            failedPolls++;
+            lastPollError = String.valueOf(e.getMessage()).split("\n", 2)[0];
+        } finally {
+            polling = false;
+        }
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        // Picks up what happened since the last poll
+        poll(true);
+        active.remove();
+        writer.close();
+        writer = null;
+        if (failedPolls > 0) {
+            System.err.println("Session replay " + name + ": " + failedPolls + " of " + polls
+                    + " poll(s) failed, events of those pages may be missing. Last error: " + lastPollError);
+        }
+        if (failuresOnly && !failed) {
+            eventsFile.delete();
+            return;
+        }
+        writeReplay();
+        replayKept = true;
+        if (droppedCount > 0) {
+            System.err.println("Session replay " + name + " reached DOM_REPLAY_MAX_EVENTS, " + droppedCount + " event(s) were dropped.");
+        }
+        stats.print(replayFile.getName(), "DOM events, " + eventCount + " events", eventsFile.length() + replayFile.length());
+    }
+
+    // The events are embedded as a JSON array; "<" only occurs inside JSON strings and is escaped there,
+    // so recorded page HTML cannot end the script element
+    private void writeReplay() throws IOException {
+        StringBuilder events = new StringBuilder("[");
+        for (String line : Files.readAllLines(eventsFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) {
+                events.append(events.length() > 1 ? ",\n" : "").append(line);
+            }
+        }
+        events.append("]");
+        String html = PLAYER_TEMPLATE
+                .replace("/*TITLE*/", LogStore.escapeHtml(name))
+                .replace("/*EVENTS*/", events.toString().replace("<", "\\u003c"));
+        Files.write(replayFile.toPath(), html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void markFailed() {
+        failed = true;
+    }
+
+    @Override
+    public boolean hasVideo() {
+        return replayKept;
+    }
+
+    @Override
+    public String getReportLink(String testName) {
+        if (!replayFile.isFile()) {
+            return null;
+        }
+        return "<a href=\"" + replayFile.toPath().toAbsolutePath().toUri() + "\" target=\"_blank\">Session Replay</a>";
+    }
+
+    private static String readResource(String resource) {
+        try (InputStream in = DomEventRecorder.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Resource " + resource + " is missing from the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read resource " + resource, e);
+        }
+    }
+}
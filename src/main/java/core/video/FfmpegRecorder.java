@@ -0,0 +1,115 @@
+package core.video;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Records an X display other than the JVM's own with ffmpeg's x11grab input. Java's
+ * {@link java.awt.Robot} can only capture the display the JVM was started on, so this is how
+ * a worker's virtual display from {@link managers.DisplayManager} is recorded.
+ * The video is Motion-JPEG in an AVI file, named like the other recorders' videos.
+ */
+public class FfmpegRecorder implements VideoRecorder {
+    private static final String FFMPEG_PATH = getStrProp("VIDEO_FFMPEG_PATH", "ffmpeg");
+    private static final int FRAME_RATE = getIntProp("VIDEO_FRAME_RATE", 15);
+    // ffmpeg's MJPEG scale: 2 (best) to 31 (smallest)
+    private static final int FFMPEG_QUALITY = getIntProp("VIDEO_FFMPEG_QUALITY", 5);
+
+    private final String display;
+    private final int width;
+    private final int height;
+    private final String name;
+    private final File videoFile;
+    private final boolean failuresOnly;
+    private Process process;
+    private long startedAt;
+    private volatile boolean failed;
+    private boolean videoKept;
+
+    /**
+     * @param display      The X display to record, e.g. ":99".
+     * @param width        Width of the display in pixels.
+     * @param height       Height of the display in pixels.
+     * @param name         The video file name without extension.
+     * @param movieFolder  The folder the video is written to.
+     * @param failuresOnly Delete the video again unless the test was marked as failed.
+     */
+    public FfmpegRecorder(String display, int width, int height, String name, File movieFolder, boolean failuresOnly) {
+        this.display = display;
+        this.width = width & ~1;
+        this.height = height & ~1;
+        this.name = name;
+        this.videoFile = new File(movieFolder, name + ".avi");
+        this.failuresOnly = failuresOnly;
+    }
+
+    @Override
+    public void start() throws IOException {
+        File folder = videoFile.getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        startedAt = System.currentTimeMillis();
+        process = new ProcessBuilder(FFMPEG_PATH, "-loglevel", "error", "-y",
+                "-f", "x11grab", "-video_size", width + "x" + height, "-framerate", String.valueOf(FRAME_RATE), "-i", display,
+                "-c:v", "mjpeg", "-q:v", String.valueOf(FFMPEG_QUALITY), "-pix_fmt", "yuvj420p",
+                videoFile.getAbsolutePath())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (process == null) {
+            return;
+        }
+        Duration cpu = process.info().totalCpuDuration().orElse(null);
+        // "q" on stdin makes ffmpeg finish the file properly
+        try (OutputStream stdin = process.getOutputStream()) {
+            stdin.write('q');
+            stdin.flush();
+        } catch (IOException e) {
+            // ffmpeg already exited
+        }
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("ffmpeg did not finish " + videoFile.getName() + " in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new IOException("Interrupted while finishing video " + videoFile.getName(), e);
+        }
+        if (process.exitValue() != 0 && !videoFile.exists()) {
+            throw new IOException("ffmpeg could not record display " + display + " (exit code " + process.exitValue() + ")");
+        }
+        if (failuresOnly && !failed) {
+            videoFile.delete();
+            return;
+        }
+        videoKept = true;
+        RecordingRegistry.register(name, videoFile);
+        double minutes = Math.max(1, System.currentTimeMillis() - startedAt) / 60_000.0;
+        System.out.println(String.format("INFO: Video %s (ffmpeg on %s, %d fps): %d KB, %.0f KB/min, ffmpeg CPU %s",
+                videoFile.getName(), display, FRAME_RATE, videoFile.length() / 1024, videoFile.length() / 1024.0 / minutes,
+                cpu == null ? "n/a" : cpu.toMillis() + " ms"));
+    }
+
+    @Override
+    public void markFailed() {
+        failed = true;
+    }
+
+    @Override
+    public boolean hasVideo() {
+        return videoKept;
+    }
+}
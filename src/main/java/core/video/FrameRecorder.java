@@ -0,0 +1,219 @@
+package core.video;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getIntProp;
+
+/**
+ * Records the frames of a {@link FrameSource} into a Motion-JPEG AVI.
+ * With a {@link ScreencastFrameSource} it records only the owning browser page, works headless
+ * and gives parallel tests separate videos. Frames are written on a background thread into a
+ * file with the same name the desktop recorder would use.
+ * <p>
+ * At most VIDEO_FRAME_QUEUE frames wait for the encoder; when it falls behind, new frames are
+ * dropped and the previous frame is shown for their time, so the video keeps its timing.
+ */
+public class FrameRecorder implements VideoRecorder {
+    private static final int FRAME_RATE = getIntProp("SCREENCAST_FRAME_RATE", 10);
+    private static final int FRAME_QUEUE = Math.max(1, getIntProp("VIDEO_FRAME_QUEUE", 50));
+
+    // Marks the end of the frame queue for the encoder thread
+    private static final Frame END_OF_STREAM = new Frame(null, 0);
+
+    private final FrameSource source;
+    private final File movieFolder;
+    private final String name;
+    private final int frameRate;
+    private final BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(FRAME_QUEUE);
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private Thread encoderThread;
+    private volatile long startTime;
+    private volatile IOException encoderError;
+    private RecordingStats stats;
+    private long bytesWritten;
+
+    static class Frame {
+        final byte[] jpeg;
+        // Set instead of jpeg for a frame that is only encoded when it is written
+        final BufferedImage image;
+        final float quality;
+        final long capturedAt;
+
+        Frame(byte[] jpeg, long capturedAt) {
+            this(jpeg, null, 0, capturedAt);
+        }
+
+        Frame(BufferedImage image, float quality, long capturedAt) {
+            this(null, image, quality, capturedAt);
+        }
+
+        private Frame(byte[] jpeg, BufferedImage image, float quality, long capturedAt) {
+            this.jpeg = jpeg;
+            this.image = image;
+            this.quality = quality;
+            this.capturedAt = capturedAt;
+        }
+
+        /** Returns the frame as JPEG, encoding it first when it was kept unencoded. */
+        byte[] encoded() throws IOException {
+            return jpeg != null ? jpeg : JpegFrameWriter.encode(image, quality);
+        }
+
+        /** Returns the memory the frame takes: the JPEG size, or 4 bytes per pixel unencoded. */
+        long size() {
+            return jpeg != null ? jpeg.length : 4L * image.getWidth() * image.getHeight();
+        }
+
+        /** Returns the width and height in pixels. */
+        int[] dimensions() throws IOException {
+            return image != null ? new int[]{image.getWidth(), image.getHeight()} : readSize(jpeg);
+        }
+    }
+
+    /**
+     * @param source      Where the frames come from.
+     * @param name        The video file name without extension.
+     * @param movieFolder The folder the video is written to.
+     */
+    public FrameRecorder(FrameSource source, String name, File movieFolder) {
+        this(source, name, movieFolder, FRAME_RATE);
+    }
+
+    /**
+     * @param source      Where the frames come from.
+     * @param name        The video file name without extension.
+     * @param movieFolder The folder the video is written to.
+     * @param frameRate   Frames per second of the output video.
+     */
+    public FrameRecorder(FrameSource source, String name, File movieFolder, int frameRate) {
+        this.source = source;
+        this.name = name;
+        this.movieFolder = movieFolder;
+        this.frameRate = frameRate;
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (!movieFolder.exists()) {
+            movieFolder.mkdirs();
+        } else if (!movieFolder.isDirectory()) {
+            throw new IOException("\"" + movieFolder + "\" is not a directory.");
+        }
+        startTime = System.currentTimeMillis();
+        stats = new RecordingStats();
+        encoderThread = new Thread(this::encodeFrames, "frame-recorder-" + name);
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+        source.start((jpeg, capturedAt) -> {
+            // Never blocks the thread delivering the frames, like the DevTools connection
+            if (!frames.offer(new Frame(jpeg, capturedAt))) {
+                droppedFrames.incrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void stop() throws IOException {
+        try {
+            source.stop();
+        } finally {
+            endStream();
+        }
+        try {
+            encoderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing video " + name, e);
+        }
+        if (encoderError != null) {
+            throw encoderError;
+        }
+        long dropped = droppedFrames.get();
+        stats.print(name, "mjpg " + frameRate + " fps" + (dropped > 0 ? ", " + dropped + " frame(s) dropped, encoder behind" : ""),
+                bytesWritten);
+        File videoFile = new File(movieFolder, name + ".avi");
+        if (videoFile.isFile()) {
+            RecordingRegistry.register(name, videoFile);
+        }
+    }
+
+    // Waits for room in a full queue while the encoder is still taking frames
+    private void endStream() throws IOException {
+        try {
+            while (encoderThread.isAlive() && !frames.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) {
+                // The encoder drains the queue
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing video " + name, e);
+        }
+    }
+
+    private void encodeFrames() {
+        JpegFrameWriter writer = null;
+        long lastFrameAt = startTime;
+        try {
+            while (true) {
+                Frame frame = frames.take();
+                if (frame == END_OF_STREAM) {
+                    break;
+                }
+                if (writer == null) {
+                    int[] size = readSize(frame.jpeg);
+                    writer = new JpegFrameWriter(new File(movieFolder, name + ".avi"), size[0], size[1], frameRate);
+                } else {
+                    // Hold the previous frame for the time the page did not change
+                    writer.repeatFrame(Math.max(0, writer.framesFor(frame.capturedAt - lastFrameAt) - 1));
+                }
+                writer.writeFrame(frame.jpeg);
+                lastFrameAt = frame.capturedAt;
+            }
+            if (writer != null) {
+                writer.repeatFrame(Math.max(0, writer.framesFor(System.currentTimeMillis() - lastFrameAt) - 1));
+            } else {
+                System.err.println("No frames received for " + name + ", no video written.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            encoderError = e;
+        } finally {
+            if (writer != null) {
+                bytesWritten = writer.getBytesWritten();
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    encoderError = e;
+                }
+            }
+        }
+    }
+
+    /** Reads the pixel size from the JPEG header without decoding the image. */
+    static int[] readSize(byte[] jpeg) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Frame is not a readable JPEG");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
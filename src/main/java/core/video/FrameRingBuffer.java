@@ -0,0 +1,71 @@
+package core.video;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the most recent frames in memory, bounded both by age and by total size.
+ * The oldest frames are dropped first; the newest frame is always kept. Frames are JPEG encoded,
+ * or unencoded images that count with 4 bytes per pixel.
+ */
+public class FrameRingBuffer {
+    private final long maxAgeMs;
+    private final long maxBytes;
+    private final ArrayDeque<FrameRecorder.Frame> frames = new ArrayDeque<>();
+    private long bufferedBytes;
+    private long peakBytes;
+    private long droppedFrames;
+
+    /**
+     * @param maxAgeMs How far back the buffer reaches, in milliseconds.
+     * @param maxBytes Memory cap for the buffered frames.
+     */
+    public FrameRingBuffer(long maxAgeMs, long maxBytes) {
+        this.maxAgeMs = maxAgeMs;
+        this.maxBytes = maxBytes;
+    }
+
+    public void add(byte[] jpeg, long capturedAt) {
+        add(new FrameRecorder.Frame(jpeg, capturedAt));
+    }
+
+    /** Adds a frame that is JPEG encoded with the quality only when it is written. */
+    public void addImage(BufferedImage image, float quality, long capturedAt) {
+        add(new FrameRecorder.Frame(image, quality, capturedAt));
+    }
+
+    private synchronized void add(FrameRecorder.Frame frame) {
+        frames.addLast(frame);
+        bufferedBytes += frame.size();
+        while (frames.size() > 1
+                && (frame.capturedAt - frames.peekFirst().capturedAt > maxAgeMs || bufferedBytes > maxBytes)) {
+            bufferedBytes -= frames.removeFirst().size();
+            droppedFrames++;
+        }
+        peakBytes = Math.max(peakBytes, bufferedBytes);
+    }
+
+    /** Removes and returns all buffered frames, oldest first. */
+    public synchronized List<FrameRecorder.Frame> drain() {
+        List<FrameRecorder.Frame> drained = new ArrayList<>(frames);
+        frames.clear();
+        bufferedBytes = 0;
+        return drained;
+    }
+
+    /** Discards all buffered frames. */
+    public synchronized void clear() {
+        frames.clear();
+        bufferedBytes = 0;
+    }
+
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    public synchronized long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,29 @@
+package core.video;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Produces JPEG encoded frames for the frame based recorders.
+ */
+public interface FrameSource {
+
+    /** Receives each frame as JPEG bytes with the time it was captured. */
+    interface FrameConsumer {
+        void accept(byte[] jpeg, long capturedAt);
+
+        /**
+         * Receives a grabbed frame that is not encoded yet. It is encoded right away unless the
+         * consumer keeps frames unencoded until they are written.
+         */
+        default void acceptImage(BufferedImage image, float quality, long capturedAt) throws IOException {
+            accept(JpegFrameWriter.encode(image, quality), capturedAt);
+        }
+    }
+
+    /** Starts delivering frames to the consumer. */
+    void start(FrameConsumer consumer) throws IOException;
+
+    /** Stops delivering frames; no frame is delivered after this returns. */
+    void stop();
+}
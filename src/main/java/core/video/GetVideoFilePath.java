@@ -1,7 +1,6 @@
 package core.video;
 
 import java.io.File;
-import java.nio.file.Path;
 import java.util.Objects;
 
 import static core.config.ConfigReader.getStrProp;
@@ -13,10 +12,21 @@ public class GetVideoFilePath {
 
     public static String toGetVideoFilePath(String testCaseName)
     {
+        // Recorders register the file they wrote, so the folder only has to be scanned for unknown names
+        File registered = RecordingRegistry.lookup(testCaseName);
+        if (registered != null && registered.isFile()) {
+            return toVideoLink(registered);
+        }
         // Calls the primary implementation with the default extension
         return toGetVideoFilePath(testCaseName,DEFAULT_VIDEO_FOLDER);
     }
 
+    /** Returns the report link to a video file. */
+    public static String toVideoLink(File videoFile) {
+        // file.toUri().toString() correctly handles protocol and slashes for all OS
+        return "<a href=\"" + videoFile.toPath().toAbsolutePath().toUri() + "\" target=\"_blank\">Execution Video</a>";
+    }
+
     // --- Overload 2: Handles TWO arguments (Uses the provided extension) ---
     public static String toGetVideoFilePath(String testCaseName, String userPath) {
         return toGetVideoFilePathCoreLogic(testCaseName, userPath);
@@ -41,13 +51,8 @@ public class GetVideoFilePath {
                 // Check if the file is a regular file and its name matches (case-insensitive)
                 if (file.isFile() && file.getName().equalsIgnoreCase(fullFileName))
                 {
-                    // Use Path to get the absolute URI for proper URL construction
-                    Path filepath = file.toPath().toAbsolutePath();
-                    // file.toUri().toString() correctly handles protocol and slashes for all OS
-                    String formattedPath = filepath.toUri().toString();
-                    String linkText = "Execution Video";
                     // Return the HTML anchor tag
-                    return "<a href=\"" + formattedPath + "\" target=\"_blank\">" + linkText + "</a>";
+                    return toVideoLink(file);
                 }
             }
             // If the loop finishes without finding the file
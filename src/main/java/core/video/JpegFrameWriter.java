@@ -0,0 +1,108 @@
+package core.video;
+
+import org.monte.media.Format;
+import org.monte.media.FormatKeys.MediaType;
+import org.monte.media.avi.AVIWriter;
+import org.monte.media.math.Rational;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static org.monte.media.FormatKeys.EncodingKey;
+import static org.monte.media.FormatKeys.FrameRateKey;
+import static org.monte.media.FormatKeys.MediaTypeKey;
+import static org.monte.media.VideoFormatKeys.*;
+
+/**
+ * Writes already JPEG encoded frames into a Motion-JPEG AVI file without decoding them again.
+ * The AVI has a constant frame rate, so time where the screen did not change is filled with
+ * empty samples, which players show as a repeat of the previous frame.
+ */
+public class JpegFrameWriter implements Closeable {
+    private final AVIWriter writer;
+    private final int track;
+    private final int frameRate;
+    private long framesWritten;
+    private long bytesWritten;
+
+    /**
+     * @param file      The target .avi file.
+     * @param width     Frame width in pixels.
+     * @param height    Frame height in pixels.
+     * @param frameRate Frames per second of the output.
+     */
+    public JpegFrameWriter(File file, int width, int height, int frameRate) throws IOException {
+        this.frameRate = Math.max(1, frameRate);
+        this.writer = new AVIWriter(file);
+        this.track = writer.addTrack(new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, ENCODING_AVI_MJPG,
+                CompressorNameKey, ENCODING_AVI_MJPG, WidthKey, width, HeightKey, height, DepthKey, 24,
+                FrameRateKey, Rational.valueOf(this.frameRate)));
+    }
+
+    /** Writes one JPEG frame. */
+    public void writeFrame(byte[] jpeg) throws IOException {
+        writer.writeSample(track, jpeg, 0, jpeg.length, true);
+        framesWritten++;
+        bytesWritten += jpeg.length;
+    }
+
+    /** Holds the previous frame on screen for the given number of frame slots. */
+    public void repeatFrame(long count) throws IOException {
+        for (long i = 0; i < count; i++) {
+            writer.writeSample(track, new byte[0], 0, 0, false);
+            framesWritten++;
+        }
+    }
+
+    /** Number of frame slots needed to cover the given time span at this writer's frame rate. */
+    public long framesFor(long millis) {
+        return Math.round(millis * frameRate / 1000.0);
+    }
+
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Encodes an RGB image as JPEG.
+     *
+     * @param image   The image to encode, without alpha channel.
+     * @param quality Compression quality between 0 and 1.
+     */
+    public static byte[] encode(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter jpegWriter = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            jpegWriter.setOutput(ios);
+            ImageWriteParam param = jpegWriter.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.05f, Math.min(1f, quality)));
+            jpegWriter.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            jpegWriter.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,64 @@
+package core.video;
+
+import org.testng.ITestResult;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the video file each test invocation produced.
+ * Every invocation gets a unique video name when it starts: the method name, plus a hash of the
+ * parameters for data-driven tests, plus a counter when the same name was used before (retries,
+ * invocationCount, same method name in another class). Recorders register the file they wrote
+ * under that name, so finding a video is a map lookup instead of a folder scan.
+ */
+public class RecordingRegistry {
+    private static final String VIDEO_NAME_ATTRIBUTE = "videoName";
+
+    private static final Map<String, File> recordings = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> usedNames = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the unique video name for a test invocation and remembers it on the result.
+     *
+     * @param result The starting test invocation.
+     * @return The video file name without extension.
+     */
+    public static String newVideoName(ITestResult result) {
+        String name = result.getMethod().getMethodName();
+        Object[] params = result.getParameters();
+        if (params != null && params.length > 0) {
+            name += "_" + Integer.toHexString(Arrays.deepToString(params).hashCode());
+        }
+        int count = usedNames.computeIfAbsent(name.toLowerCase(), key -> new AtomicInteger()).incrementAndGet();
+        if (count > 1) {
+            name += "_" + count;
+        }
+        result.setAttribute(VIDEO_NAME_ATTRIBUTE, name);
+        return name;
+    }
+
+    /**
+     * Returns the video name given to the invocation by {@link #newVideoName(ITestResult)},
+     * or the method name when none was given.
+     */
+    public static String getVideoName(ITestResult result) {
+        Object name = result.getAttribute(VIDEO_NAME_ATTRIBUTE);
+        return name != null ? name.toString() : result.getMethod().getMethodName();
+    }
+
+    /** Records the file a recorder wrote for the given video name. */
+    public static void register(String videoName, File videoFile) {
+        if (videoName != null && videoFile != null) {
+            recordings.put(videoName, videoFile.getAbsoluteFile());
+        }
+    }
+
+    /** Returns the registered file of the video name, or null when none was registered. */
+    public static File lookup(String videoName) {
+        return videoName == null ? null : recordings.get(videoName);
+    }
+}
@@ -0,0 +1,36 @@
+package core.video;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Output size and CPU cost of one recording, printed when it stops so that encoder settings can
+ * be compared on real runs. The CPU figure is the whole JVM while recording, so parallel tests
+ * and the test code itself are included.
+ */
+class RecordingStats {
+    private final long startNanos = System.nanoTime();
+    private final long startCpuNanos = processCpuNanos();
+
+    /**
+     * @param name     The video name.
+     * @param settings Short description of the encoder settings.
+     * @param bytes    Size of the written video.
+     */
+    void print(String name, String settings, long bytes) {
+        double minutes = Math.max(1, System.nanoTime() - startNanos) / 60_000_000_000.0;
+        long cpuNanos = processCpuNanos();
+        String cpu = cpuNanos < 0 || startCpuNanos < 0 ? "n/a"
+                : String.format("%.0f%% of one core", (cpuNanos - startCpuNanos) * 100.0 / (System.nanoTime() - startNanos));
+        System.out.println(String.format("INFO: Video %s (%s): %d KB in %.1f min, %.0f KB/min, JVM CPU %s",
+                name, settings, bytes / 1024, minutes, bytes / 1024.0 / minutes, cpu));
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+package core.video;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Failure-only recording. Frames only go into a bounded in-memory {@link FrameRingBuffer} covering
+ * the last seconds of the test; the video is written to disk only when the test was marked as
+ * failed, passing tests just drop the buffer.
+ * <p>
+ * VIDEO_RING_ENCODE sets when desktop frames are JPEG encoded: capture encodes every frame when it
+ * is grabbed, failure keeps the grabbed images and encodes them only when a failed test's video is
+ * written, so passing tests cost no encoding. Unencoded frames take 4 bytes per pixel (8 MB for
+ * full HD), so VIDEO_RING_MAX_MB then covers far fewer seconds. Screencast frames arrive encoded.
+ */
+public class RingBufferRecorder implements VideoRecorder {
+    private static final int RING_SECONDS = getIntProp("VIDEO_RING_SECONDS", 30);
+    private static final int RING_MAX_MB = getIntProp("VIDEO_RING_MAX_MB", 64);
+    private static final int RING_FRAME_RATE = getIntProp("VIDEO_RING_FRAME_RATE", 5);
+    private static final boolean ENCODE_ON_FAILURE = getStrProp("VIDEO_RING_ENCODE", "capture").equalsIgnoreCase("failure");
+
+    private final FrameSource source;
+    private final String name;
+    private final File movieFolder;
+    private final FrameRingBuffer buffer = new FrameRingBuffer(RING_SECONDS * 1000L, RING_MAX_MB * 1024L * 1024L);
+    private volatile boolean failed;
+    private boolean videoWritten;
+
+    /**
+     * @param source      Where the frames come from.
+     * @param name        The video file name without extension.
+     * @param movieFolder The folder the video is written to on failure.
+     */
+    public RingBufferRecorder(FrameSource source, String name, File movieFolder) {
+        this.source = source;
+        this.name = name;
+        this.movieFolder = movieFolder;
+    }
+
+    /** Frame rate the desktop source should grab at in this mode. */
+    public static int getFrameRate() {
+        return RING_FRAME_RATE;
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (!ENCODE_ON_FAILURE) {
+            source.start(buffer::add);
+            return;
+        }
+        source.start(new FrameSource.FrameConsumer() {
+            @Override
+            public void accept(byte[] jpeg, long capturedAt) {
+                buffer.add(jpeg, capturedAt);
+            }
+
+            @Override
+            public void acceptImage(BufferedImage image, float quality, long capturedAt) {
+                buffer.addImage(image, quality, capturedAt);
+            }
+        });
+    }
+
+    @Override
+    public void markFailed() {
+        failed = true;
+    }
+
+    @Override
+    public boolean hasVideo() {
+        return videoWritten;
+    }
+
+    @Override
+    public void stop() throws IOException {
+        source.stop();
+        if (!failed) {
+            buffer.clear();
+            return;
+        }
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        if (frames.isEmpty()) {
+            System.err.println("No frames buffered for " + name + ", no failure video written.");
+            return;
+        }
+        if (!movieFolder.exists()) {
+            movieFolder.mkdirs();
+        }
+        long start = System.nanoTime();
+        int[] size = frames.get(0).dimensions();
+        try (JpegFrameWriter writer = new JpegFrameWriter(new File(movieFolder, name + ".avi"), size[0], size[1], RING_FRAME_RATE)) {
+            long lastFrameAt = frames.get(0).capturedAt;
+            for (FrameRecorder.Frame frame : frames) {
+                writer.repeatFrame(Math.max(0, writer.framesFor(frame.capturedAt - lastFrameAt) - 1));
+                writer.writeFrame(frame.encoded());
+                lastFrameAt = frame.capturedAt;
+            }
+            long encodeMs = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("INFO: Failure video " + name + ": " + frames.size() + " frames, "
+                    + writer.getBytesWritten() / 1024 + " KB written in " + encodeMs + " ms"
+                    + (ENCODE_ON_FAILURE ? " including encoding" : "") + ". Buffer peak "
+                    + buffer.getPeakBytes() / 1024 + " KB of " + RING_MAX_MB + " MB cap, "
+                    + buffer.getDroppedFrames() + " older frames dropped.");
+        }
+        videoWritten = true;
+        RecordingRegistry.register(name, new File(movieFolder, name + ".avi"));
+    }
+}
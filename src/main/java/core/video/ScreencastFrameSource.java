@@ -0,0 +1,99 @@
+package core.video;
+
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static core.config.ConfigReader.getIntProp;
+
+/**
+ * Frames of a single Chromium page (Chrome, Edge) from the DevTools {@code Page.startScreencast} API.
+ * The browser only sends a frame when the page changed and after the previous one was acknowledged.
+ * <p>
+ * DevTools can only clear all listeners of a driver, including the test's own, so each driver's
+ * DevTools gets one frame listener that is never removed; it passes the frames to the recording
+ * that is running on the driver, if any.
+ */
+public class ScreencastFrameSource implements FrameSource {
+    private static final int QUALITY = getIntProp("SCREENCAST_QUALITY", 70);
+    private static final int MAX_WIDTH = getIntProp("SCREENCAST_MAX_WIDTH", 1280);
+    private static final int MAX_HEIGHT = getIntProp("SCREENCAST_MAX_HEIGHT", 720);
+
+    private static final Event<Map<String, Object>> SCREENCAST_FRAME =
+            new Event<>("Page.screencastFrame", input -> input.read(Json.MAP_TYPE));
+
+    // The consumer of the running recording of each driver's DevTools, null between recordings
+    private static final Map<DevTools, AtomicReference<FrameConsumer>> consumers =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final DevTools devTools;
+    private FrameConsumer consumer;
+
+    public ScreencastFrameSource(HasDevTools driver) {
+        this.devTools = driver.getDevTools();
+    }
+
+    /** Returns true if the driver can be recorded with a screencast. */
+    public static boolean isSupported(Object driver) {
+        return driver instanceof HasDevTools && ((HasDevTools) driver).maybeGetDevTools().isPresent();
+    }
+
+    @Override
+    public void start(FrameConsumer consumer) {
+        this.consumer = consumer;
+        devTools.createSessionIfThereIsNotOne();
+        consumers.computeIfAbsent(devTools, ScreencastFrameSource::addFrameListener).set(consumer);
+        Map<String, Object> params = new HashMap<>();
+        params.put("format", "jpeg");
+        params.put("quality", QUALITY);
+        params.put("maxWidth", MAX_WIDTH);
+        params.put("maxHeight", MAX_HEIGHT);
+        devTools.send(new Command<Void>("Page.startScreencast", params));
+    }
+
+    @Override
+    public void stop() {
+        AtomicReference<FrameConsumer> running = consumers.get(devTools);
+        if (running != null) {
+            running.compareAndSet(consumer, null);
+        }
+        try {
+            devTools.send(new Command<Void>("Page.stopScreencast", new HashMap<>()));
+        } catch (Exception e) {
+            // The browser may already be gone when the test failed hard
+            System.err.println("Failed to stop screencast: " + e.getMessage());
+        }
+    }
+
+    private static AtomicReference<FrameConsumer> addFrameListener(DevTools devTools) {
+        AtomicReference<FrameConsumer> running = new AtomicReference<>();
+        devTools.addListener(SCREENCAST_FRAME, event -> {
+            FrameConsumer consumer = running.get();
+            if (consumer == null) {
+                return;
+            }
+            acknowledge(devTools, ((Number) event.get("sessionId")).intValue());
+            consumer.accept(Base64.getDecoder().decode((String) event.get("data")), System.currentTimeMillis());
+        });
+        return running;
+    }
+
+    private static void acknowledge(DevTools devTools, int sessionId) {
+        try {
+            Map<String, Object> params = new HashMap<>();
+            params.put("sessionId", sessionId);
+            devTools.send(new Command<Void>("Page.screencastFrameAck", params));
+        } catch (Exception e) {
+            // Screencast already stopped, nothing to acknowledge
+        }
+    }
+}
@@ -11,12 +11,38 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Objects;
 
+import static core.config.ConfigReader.getIntProp;
 import static core.config.ConfigReader.getStrProp;
 import static org.monte.media.FormatKeys.*;
 import static org.monte.media.VideoFormatKeys.*;
 
-public class TestRecorder extends ScreenRecorder {
+public class TestRecorder extends ScreenRecorder implements VideoRecorder {
+    // screen: the whole display, window: only the browser window of the current thread's driver, which Monte cannot
+    // record as its video size is fixed when it starts, so RecorderManager records it with a FrameRecorder
+    private static final String CAPTURE_AREA = getStrProp("VIDEO_CAPTURE_AREA", "screen").toLowerCase();
+    // Output size in percent of the captured area, also used by DesktopFrameSource
+    static final int SCALE_PERCENT = getIntProp("VIDEO_SCALE_PERCENT", 100);
+    // Colour depth of the video: 24, 16 or 8 bit, only with tscc; the frame based recorders write JPEG
+    private static final int COLOR_DEPTH = getIntProp("VIDEO_COLOR_DEPTH", 24);
+    // tscc: TechSmith lossless screen codec (small for static UIs), mjpg: Motion-JPEG, png: lossless per-frame PNG
+    private static final String ENCODING = getStrProp("VIDEO_ENCODING", "tscc").toLowerCase();
+    /** Frames per second of the desktop recording. */
+    public static final int FRAME_RATE = Math.max(1, getIntProp("VIDEO_FRAME_RATE", 15));
+    // Compression quality between 0 and 1, only used by mjpg
+    private static final float QUALITY = Float.parseFloat(getStrProp("VIDEO_QUALITY", "1.0"));
+    // Frames between key frames, defaults to one per minute
+    private static final int KEYFRAME_INTERVAL = getIntProp("VIDEO_KEYFRAME_INTERVAL", FRAME_RATE * 60);
+    // Monte's Registry singleton is created and filled lazily without a lock, so recorders and
+    // decoders are only set up under this one; the rest of a recorder's creation runs in parallel
+    static final Object MONTE_LOCK = new Object();
+
     private final String name;
+    // Monte rolls over to a new file when the time or size limit is reached
+    private int fileCount;
+    private volatile File currentFile;
+    private volatile long currentFileStartTime;
+    private RecordingStats stats;
+
     // Constructor remains mostly the same
     public TestRecorder(GraphicsConfiguration cfg, Rectangle captureArea, Format fileFormat,
                         Format screenFormat, Format mouseFormat, Format audioFormat, File movieFolder, String name)
@@ -32,33 +58,117 @@ public class TestRecorder extends ScreenRecorder {
         } else if (!movieFolder.isDirectory()) {
             throw new IOException("\"" + movieFolder + "\" is not a directory.");
         }
-        // This is the correct logic for creating the file path
-        return new File(movieFolder,
-                name + "." + Registry.getInstance().getExtension(fileFormat));
+        // This is the correct logic for creating the file path; later parts of a rolled over recording get a suffix
+        String fileName = fileCount++ == 0 ? name : name + "-part" + fileCount;
+        File file = new File(movieFolder,
+                fileName + "." + Registry.getInstance().getExtension(fileFormat));
+        currentFile = file;
+        currentFileStartTime = System.currentTimeMillis();
+        return file;
+    }
+
+    /** The file currently being written, null before the recorder was started. */
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    /** Wall clock time at which the current file was started, used to turn timestamps into video offsets. */
+    public long getCurrentFileStartTime() {
+        return currentFileStartTime;
+    }
+
+    @Override
+    public void start() throws IOException {
+        stats = new RecordingStats();
+        super.start();
+    }
+
+    @Override
+    public void stop() throws IOException {
+        super.stop();
+        if (!getCreatedMovieFiles().isEmpty()) {
+            RecordingRegistry.register(name, getCreatedMovieFiles().get(0));
+        }
+        if (stats != null) {
+            long bytes = getCreatedMovieFiles().stream().mapToLong(File::length).sum();
+            stats.print(name, ENCODING + " " + FRAME_RATE + " fps, quality " + QUALITY, bytes);
+        }
     }
 
     // 💡 NEW FACTORY METHOD: Creates and configures a new thread-safe recorder instance
+    // Always the whole screen, see isWindowCapture()
     public static TestRecorder createConfiguredRecorder(String recordedVideoName, String userPath)
             throws IOException, AWTException {
+        return createRecorder(recordedVideoName, userPath, KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Returns true when VIDEO_CAPTURE_AREA=window. A browser window can be resized during the test
+     * while Monte fixes the video size when it starts, so the window is recorded from a
+     * {@link DesktopFrameSource} that follows it instead of by this recorder.
+     */
+    public static boolean isWindowCapture() {
+        return CAPTURE_AREA.equals("window");
+    }
+
+    /**
+     * Creates a recorder for the whole screen, as used for one recording shared by all tests of a run.
+     *
+     * @param keyFrameInterval Frames between key frames; shorter intervals make cutting clips more precise.
+     */
+    public static TestRecorder createScreenRecorder(String recordedVideoName, String userPath, int keyFrameInterval)
+            throws IOException, AWTException {
+        return createRecorder(recordedVideoName, userPath, keyFrameInterval);
+    }
+
+    private static TestRecorder createRecorder(String recordedVideoName, String userPath, int keyFrameInterval)
+            throws IOException, AWTException {
 
         File file = new File(userPath);
-        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        Rectangle captureSize = new Rectangle(0, 0, screenSize.width, screenSize.height);
+        Rectangle captureSize = WindowTracker.screenBounds();
 
         GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
                 .getDefaultScreenDevice()
                 .getDefaultConfiguration();
 
-        return new TestRecorder(
-                gc, captureSize,
-                new Format(MediaTypeKey, FormatKeys.MediaType.FILE, MimeTypeKey, MIME_AVI),
-                new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
-                        CompressorNameKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE, DepthKey, 24, FrameRateKey,
-                        Rational.valueOf(15), QualityKey, 1.0f, KeyFrameIntervalKey, 15 * 60),
-                new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, "black", FrameRateKey, Rational.valueOf(30)),
-                null,
-                file,
-                recordedVideoName
-        );
+        String encoding = getEncoding();
+        // Only the TechSmith codec supports palette and 16 bit video
+        int depth = encoding.equals(ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE) && (COLOR_DEPTH == 8 || COLOR_DEPTH == 16) ? COLOR_DEPTH : 24;
+        Format screenFormat = new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, encoding,
+                CompressorNameKey, encoding, DepthKey, depth, FrameRateKey,
+                Rational.valueOf(FRAME_RATE), QualityKey, Math.max(0.05f, Math.min(1f, QUALITY)),
+                KeyFrameIntervalKey, Math.max(1, keyFrameInterval));
+        if (SCALE_PERCENT > 0 && SCALE_PERCENT < 100) {
+            // Monte inserts a scaling step when the output size differs from the capture area
+            int width = Math.max(2, (captureSize.width * SCALE_PERCENT / 100) & ~1);
+            int height = Math.max(2, (captureSize.height * SCALE_PERCENT / 100) & ~1);
+            screenFormat = screenFormat.append(WidthKey, width, HeightKey, height);
+        }
+
+        synchronized (MONTE_LOCK) {
+            return new TestRecorder(
+                    gc, captureSize,
+                    new Format(MediaTypeKey, FormatKeys.MediaType.FILE, MimeTypeKey, MIME_AVI),
+                    screenFormat,
+                    new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, "black", FrameRateKey, Rational.valueOf(30)),
+                    null,
+                    file,
+                    recordedVideoName
+            );
+        }
+    }
+
+    private static String getEncoding() {
+        switch (ENCODING) {
+            case "mjpg":
+                return ENCODING_AVI_MJPG;
+            case "png":
+                return ENCODING_AVI_PNG;
+            case "tscc":
+                return ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE;
+            default:
+                System.err.println("Unknown VIDEO_ENCODING '" + ENCODING + "', using tscc.");
+                return ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE;
+        }
     }
-}
\ No newline at end of file
+}
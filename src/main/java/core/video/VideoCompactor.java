@@ -0,0 +1,240 @@
+package core.video;
+
+import org.monte.media.Buffer;
+import org.monte.media.BufferFlag;
+import org.monte.media.Codec;
+import org.monte.media.Format;
+import org.monte.media.FormatKeys.MediaType;
+import org.monte.media.Registry;
+import org.monte.media.avi.AVIWriter;
+import org.monte.media.math.Rational;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static org.monte.media.FormatKeys.EncodingKey;
+import static org.monte.media.FormatKeys.FrameRateKey;
+import static org.monte.media.FormatKeys.MediaTypeKey;
+import static org.monte.media.VideoFormatKeys.*;
+
+/**
+ * Shrinks finished test videos in the background.
+ * Each video is decoded and written again with the TechSmith screen codec and a long key frame
+ * interval; frames that did not change become empty samples, and still periods longer than
+ * VIDEO_COMPACT_MAX_IDLE_SECONDS are cut down to that length. The result replaces the original
+ * (same path, so report links stay valid) only when it is smaller.
+ * <p>
+ * Work runs on one low priority thread with a bounded queue; when the queue is full the video is
+ * left as it is, so test threads never wait for compaction.
+ */
+public class VideoCompactor {
+    private static final boolean COMPACT = getBoolProp("VIDEO_COMPACT", false);
+    // 0 keeps the original timing
+    private static final int MAX_IDLE_SECONDS = getIntProp("VIDEO_COMPACT_MAX_IDLE_SECONDS", 2);
+    private static final int KEYFRAME_SECONDS = getIntProp("VIDEO_COMPACT_KEYFRAME_SECONDS", 60);
+    private static final int QUEUE_SIZE = getIntProp("VIDEO_COMPACT_QUEUE", 100);
+    private static final int SHUTDOWN_WAIT_SECONDS = getIntProp("VIDEO_COMPACT_SHUTDOWN_WAIT_SEC", 120);
+
+    private static final AtomicLong files = new AtomicLong();
+    private static final AtomicLong skipped = new AtomicLong();
+    private static final AtomicLong bytesBefore = new AtomicLong();
+    private static final AtomicLong bytesAfter = new AtomicLong();
+    private static final AtomicLong framesProcessed = new AtomicLong();
+    private static final AtomicLong busyNanos = new AtomicLong();
+
+    private static ThreadPoolExecutor executor;
+
+    private static synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, QUEUE_SIZE)), r -> {
+                Thread thread = new Thread(r, "video-compactor");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, (task, pool) -> skipped.incrementAndGet());
+            Runtime.getRuntime().addShutdownHook(new Thread(VideoCompactor::finish, "video-compactor-finish"));
+        }
+        return executor;
+    }
+
+    /**
+     * Queues the registered video of a test for compaction. Does nothing when VIDEO_COMPACT is off
+     * or no file was registered under the name.
+     *
+     * @param videoName The name the video was registered with in {@link RecordingRegistry}.
+     */
+    public static void submit(String videoName) {
+        if (!COMPACT) {
+            return;
+        }
+        File video = RecordingRegistry.lookup(videoName);
+        if (video == null) {
+            return;
+        }
+        getExecutor().execute(() -> compactInPlace(videoName, video));
+    }
+
+    private static void compactInPlace(String videoName, File video) {
+        long start = System.nanoTime();
+        File temp = new File(video.getParentFile(), video.getName() + ".compact.tmp");
+        try {
+            long before = video.length();
+            long frames = compact(video, temp);
+            framesProcessed.addAndGet(frames);
+            long after = temp.length();
+            if (frames > 0 && after < before) {
+                Files.move(temp.toPath(), video.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                RecordingRegistry.register(videoName, video);
+                after = video.length();
+            } else {
+                after = before;
+            }
+            files.incrementAndGet();
+            bytesBefore.addAndGet(before);
+            bytesAfter.addAndGet(after);
+        } catch (Exception e) {
+            System.err.println("Failed to compact video " + video.getName() + ": " + e.getMessage());
+        } finally {
+            temp.delete();
+            busyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes a compacted copy of an AVI video.
+     *
+     * @param video  The source video (TechSmith 24 bit, Motion-JPEG or PNG).
+     * @param target The file to write.
+     * @return The number of source frames processed, 0 when the video is left as it is.
+     */
+    public static long compact(File video, File target) throws IOException {
+        try (AviStreamReader reader = new AviStreamReader(video)) {
+            FrameDecoder decoder = createDecoder(reader);
+            if (decoder == null) {
+                return 0;
+            }
+            int frameRate = (int) Math.max(1, Math.round(reader.getFrameRate()));
+            long maxIdleFrames = MAX_IDLE_SECONDS > 0 ? (long) MAX_IDLE_SECONDS * frameRate : Long.MAX_VALUE;
+            AVIWriter writer = new AVIWriter(target);
+            try {
+                int track = writer.addTrack(new Format(MediaTypeKey, MediaType.VIDEO,
+                        EncodingKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE, CompressorNameKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
+                        WidthKey, reader.getWidth(), HeightKey, reader.getHeight(), DepthKey, 24,
+                        FrameRateKey, new Rational(reader.getRate(), Math.max(1, reader.getScale())),
+                        QualityKey, 1f, KeyFrameIntervalKey, frameRate * Math.max(1, KEYFRAME_SECONDS)));
+                long previousChecksum = 0;
+                long idleFrames = 0;
+                boolean first = true;
+                for (AviStreamReader.Sample sample : reader.getSamples()) {
+                    BufferedImage image = sample.size == 0 ? null : decoder.decode(reader.readSample(sample), sample.isKeyframe());
+                    long checksum = image == null ? previousChecksum : checksum(image);
+                    if (first && image == null) {
+                        continue;
+                    }
+                    if (!first && checksum == previousChecksum) {
+                        // An empty sample holds the previous frame
+                        if (idleFrames++ < maxIdleFrames) {
+                            writer.writeSample(track, new byte[0], 0, 0, false);
+                        }
+                        continue;
+                    }
+                    writer.write(track, toRgb(image), 1);
+                    previousChecksum = checksum;
+                    idleFrames = 0;
+                    first = false;
+                }
+            } finally {
+                writer.close();
+            }
+            return reader.getSamples().size();
+        }
+    }
+
+    private interface FrameDecoder {
+        BufferedImage decode(byte[] data, boolean keyframe) throws IOException;
+    }
+
+    private static FrameDecoder createDecoder(AviStreamReader reader) {
+        String compression = reader.getCompression().trim().toLowerCase();
+        if (compression.equals("mjpg") || compression.equals("png")) {
+            return (data, keyframe) -> ImageIO.read(new ByteArrayInputStream(data));
+        }
+        if (compression.equals("tscc") && reader.getDepth() == 24) {
+            Format input = new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
+                    WidthKey, reader.getWidth(), HeightKey, reader.getHeight(), DepthKey, 24);
+            Format output = new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, ENCODING_BUFFERED_IMAGE,
+                    WidthKey, reader.getWidth(), HeightKey, reader.getHeight(), DepthKey, 24);
+            Codec codec;
+            synchronized (TestRecorder.MONTE_LOCK) {
+                codec = Registry.getInstance().getCodec(input, output);
+            }
+            if (codec == null) {
+                return null;
+            }
+            codec.setInputFormat(input);
+            codec.setOutputFormat(output);
+            Buffer out = new Buffer();
+            return (data, keyframe) -> {
+                Buffer in = new Buffer();
+                in.format = input;
+                in.data = data;
+                in.length = data.length;
+                if (keyframe) {
+                    in.setFlag(BufferFlag.KEYFRAME);
+                }
+                if (codec.process(in, out) != Codec.CODEC_OK || out.isFlag(BufferFlag.DISCARD)) {
+                    throw new IOException("TechSmith frame could not be decoded");
+                }
+                return (BufferedImage) out.data;
+            };
+        }
+        // 8 and 16 bit videos are already small
+        return null;
+    }
+
+    // The encoder needs int RGB images; decoded JPEG and PNG frames are usually 3 byte BGR
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rgb.getGraphics().drawImage(image, 0, 0, null);
+        return rgb;
+    }
+
+    private static long checksum(BufferedImage image) {
+        if (image.getRaster().getDataBuffer() instanceof DataBufferInt) {
+            return Arrays.hashCode(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        }
+        return Arrays.hashCode(image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth()));
+    }
+
+    // Lets queued work finish at the end of the run and prints what compaction saved
+    private static void finish() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Video compaction did not finish within " + SHUTDOWN_WAIT_SECONDS + " s, remaining videos are left as they are.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long millis = Math.max(1, busyNanos.get() / 1_000_000);
+        System.out.println(String.format("INFO: Video compaction: %d file(s), %d KB -> %d KB (%d KB saved), %.1f MB/s, %.0f frames/s, %d skipped (queue full)",
+                files.get(), bytesBefore.get() / 1024, bytesAfter.get() / 1024, (bytesBefore.get() - bytesAfter.get()) / 1024,
+                bytesBefore.get() / 1024.0 / 1024.0 / (millis / 1000.0), framesProcessed.get() / (millis / 1000.0), skipped.get()));
+    }
+}
@@ -0,0 +1,43 @@
+package core.video;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A per-test recording backend managed by {@link managers.RecorderManager}.
+ * The listeners only start and stop it; where the frames come from and how they are
+ * encoded is up to the implementation.
+ */
+public interface VideoRecorder {
+    /** Starts recording. */
+    void start() throws IOException;
+
+    /** Stops recording and finishes the video file. */
+    void stop() throws IOException;
+
+    /** Tells the recorder the test failed. Only recorders that keep failures only act on it. */
+    default void markFailed() {
+    }
+
+    /** Returns false when {@link #stop()} intentionally produced no video (e.g. a passing test in failure-only mode). */
+    default boolean hasVideo() {
+        return true;
+    }
+
+    /**
+     * Returns the HTML link to this test's video for the report, or null when no video file was found.
+     *
+     * @param testName The test method name the recording was started with.
+     */
+    default String getReportLink(String testName) {
+        return GetVideoFilePath.toGetVideoFilePath(testName);
+    }
+
+    /**
+     * Registers where to add links to files written only after the test, like a clip cut from a
+     * continuous recording once it is finished. It is called only for files that were written;
+     * recorders that finish their video when the test stops have none.
+     */
+    default void whenLinkReady(Consumer<String> addLink) {
+    }
+}
@@ -0,0 +1,133 @@
+package core.video;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.lang.reflect.Method;
+
+import static core.config.ConfigReader.getIntProp;
+
+/**
+ * Follows the browser window of a driver for recorders that capture only the window.
+ * <p>
+ * A driver is not meant to be used by two threads at once, so the bounds are read on the test
+ * thread, like {@link DomEventRecorder} fetches its events: the driver is wrapped by
+ * {@link #decorate(WebDriver)} and the tracker of the thread reads them before the test's WebDriver
+ * calls, at most every VIDEO_WINDOW_POLL_MS. Calls starting with {@code switchTo()} are not
+ * preceded by a read. A driver that was not wrapped keeps the area it had when the recording started.
+ */
+class WindowTracker {
+    private static final int WINDOW_POLL_MS = getIntProp("VIDEO_WINDOW_POLL_MS", 1000);
+
+    // The tracker of the test running on this thread, polled by the decorated driver
+    private static final ThreadLocal<WindowTracker> active = new ThreadLocal<>();
+    private static final WebDriverListener pollBeforeCalls = new WebDriverListener() {
+        @Override
+        public void beforeAnyWebDriverCall(WebDriver driver, Method method, Object[] args) {
+            WindowTracker tracker = active.get();
+            if (tracker == null || method.getName().equals("switchTo")) {
+                return;
+            }
+            if (tracker.stopped) {
+                // Stopped from another thread, which cannot clear this thread's tracker
+                active.remove();
+                return;
+            }
+            tracker.poll();
+        }
+    };
+
+    private final WebDriver driver;
+    private volatile Rectangle bounds;
+    private volatile boolean stopped;
+    // Only touched on the test thread
+    private boolean polling;
+    private long lastPollAt;
+
+    private WindowTracker(WebDriver driver, Rectangle bounds) {
+        this.driver = driver;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Returns a tracker for the driver's window, or null when its bounds cannot be read or it is
+     * off screen; the caller then records the whole screen.
+     */
+    static WindowTracker of(WebDriver driver) {
+        try {
+            Rectangle window = readBounds(driver);
+            if (window != null) {
+                return new WindowTracker(driver, window);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not read the browser window bounds, recording the whole screen: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Wraps the driver so the window tracker of the calling thread reads the bounds before the
+     * driver's calls. Called once when the driver is created.
+     */
+    static WebDriver decorate(WebDriver driver) {
+        return new EventFiringDecorator<>(pollBeforeCalls).decorate(driver);
+    }
+
+    /** Follows the window from the calling thread's WebDriver calls; call on the test thread. */
+    void start() {
+        lastPollAt = System.currentTimeMillis();
+        active.set(this);
+    }
+
+    void stop() {
+        stopped = true;
+        if (active.get() == this) {
+            active.remove();
+        }
+    }
+
+    /** Returns the window bounds of the last poll, clipped to the screen. */
+    Rectangle getBounds() {
+        return bounds;
+    }
+
+    // The bounds are read through the decorated driver as well, so nested calls are skipped
+    private void poll() {
+        long now = System.currentTimeMillis();
+        if (polling || now - lastPollAt < WINDOW_POLL_MS) {
+            return;
+        }
+        polling = true;
+        lastPollAt = now;
+        try {
+            Rectangle window = readBounds(driver);
+            if (window != null) {
+                bounds = window;
+            }
+        } catch (Exception e) {
+            // The window is gone (driver quit), keep the last known area until the recorder stops
+        } finally {
+            polling = false;
+        }
+    }
+
+    // The window clipped to the screen with even sizes, which keep the codecs happy; null when off screen
+    private static Rectangle readBounds(WebDriver driver) {
+        org.openqa.selenium.Point position = driver.manage().window().getPosition();
+        org.openqa.selenium.Dimension size = driver.manage().window().getSize();
+        Rectangle window = new Rectangle(position.getX(), position.getY(), size.getWidth(), size.getHeight())
+                .intersection(screenBounds());
+        window.width &= ~1;
+        window.height &= ~1;
+        return window.isEmpty() ? null : window;
+    }
+
+    static Rectangle screenBounds() {
+        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        return new Rectangle(0, 0, screenSize.width, screenSize.height);
+    }
+}
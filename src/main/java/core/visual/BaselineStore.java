@@ -0,0 +1,55 @@
+package core.visual;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * File layout for visual baselines:
+ * <pre>
+ * {VISUAL_BASELINES}/{browser}/{TestClass}/{checkName}.png
+ * </pre>
+ * Baselines are kept per browser because font rendering differs between engines.
+ * The folder is meant to be committed with the tests, so it lives outside execution-output.
+ */
+public class BaselineStore {
+    private static final String BASELINE_FOLDER = getStrProp("VISUAL_BASELINES", "src/test/resources/visual-baselines/");
+    // When true every check overwrites its baseline with the current capture
+    private static final boolean UPDATE_BASELINES = getBoolProp("VISUAL_UPDATE_BASELINES", false);
+
+    /**
+     * Returns the path of the baseline image for a check.
+     *
+     * @param browser   The browser name, e.g. "chrome".
+     * @param className The simple name of the test class.
+     * @param checkName The name given to the visual check.
+     */
+    public static Path getBaselinePath(String browser, String className, String checkName) {
+        return Paths.get(BASELINE_FOLDER, sanitize(browser), sanitize(className), sanitize(checkName) + ".png");
+    }
+
+    /** Loads the baseline, or returns null if none was recorded yet (or update mode is on). */
+    public static BufferedImage load(Path baselinePath) throws IOException {
+        if (UPDATE_BASELINES || !Files.exists(baselinePath)) {
+            return null;
+        }
+        return ImageIO.read(baselinePath.toFile());
+    }
+
+    /** Writes the image as the new baseline. */
+    public static void save(Path baselinePath, byte[] png) throws IOException {
+        Files.createDirectories(baselinePath.getParent());
+        Files.write(baselinePath, png);
+    }
+
+    private static String sanitize(String name) {
+        String value = (name == null || name.trim().isEmpty()) ? "default" : name.trim();
+        return value.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,282 @@
+package core.visual;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static core.config.ConfigReader.getIntProp;
+
+/**
+ * Baseline versus actual image comparison.
+ * The images are split into square tiles that are compared in parallel on a {@link ForkJoinPool}.
+ * A pixel counts as a mismatch when any of its channels differs by more than the colour tolerance,
+ * unless it is anti-aliasing on a font or border edge. Like pixelmatch, a pixel is taken for
+ * anti-aliasing when it has both darker and brighter neighbours in one image and the darkest or the
+ * brightest of them sits inside a flat area in both images, so changed text and moved lines still count.
+ */
+public class ImageComparator {
+    private static final int DEFAULT_TILE_SIZE = getIntProp("VISUAL_TILE_SIZE", 128);
+    private static final int DEFAULT_COLOR_TOLERANCE = getIntProp("VISUAL_COLOR_TOLERANCE", 16);
+    private static final int DIFF_COLOR = 0xFFFF00FF;
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    private final int tileSize;
+    private final int colorTolerance;
+
+    /** Creates a comparator with the tile size and colour tolerance from the config. */
+    public ImageComparator() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_COLOR_TOLERANCE);
+    }
+
+    /**
+     * @param tileSize       Edge length in pixels of the tiles compared in parallel.
+     * @param colorTolerance Maximum per channel difference (0-255) still treated as equal.
+     */
+    public ImageComparator(int tileSize, int colorTolerance) {
+        this.tileSize = Math.max(16, tileSize);
+        this.colorTolerance = Math.max(0, colorTolerance);
+    }
+
+    /** Outcome of a comparison: mismatch counts and a diff image highlighting the changed pixels. */
+    public static class Result {
+        public final long mismatchedPixels;
+        public final long comparedPixels;
+        public final BufferedImage diffImage;
+        public final long elapsedMs;
+        public final int tiles;
+
+        Result(long mismatchedPixels, long comparedPixels, BufferedImage diffImage, long elapsedMs, int tiles) {
+            this.mismatchedPixels = mismatchedPixels;
+            this.comparedPixels = comparedPixels;
+            this.diffImage = diffImage;
+            this.elapsedMs = elapsedMs;
+            this.tiles = tiles;
+        }
+
+        /** Mismatch score in percent of the compared pixels. */
+        public double getMismatchPercent() {
+            return comparedPixels == 0 ? 0 : mismatchedPixels * 100.0 / comparedPixels;
+        }
+    }
+
+    /**
+     * Compares two images. When the sizes differ the area outside the common part counts as mismatched.
+     *
+     * @param baseline      The expected image.
+     * @param actual        The captured image.
+     * @param ignoreRegions Regions (in image pixels) excluded from the comparison, may be empty.
+     * @return The comparison result.
+     */
+    public Result compare(BufferedImage baseline, BufferedImage actual, List<Rectangle> ignoreRegions) {
+        long start = System.nanoTime();
+        List<Rectangle> ignored = ignoreRegions == null ? Collections.emptyList() : ignoreRegions;
+        int width = Math.max(baseline.getWidth(), actual.getWidth());
+        int height = Math.max(baseline.getHeight(), actual.getHeight());
+        int commonWidth = Math.min(baseline.getWidth(), actual.getWidth());
+        int commonHeight = Math.min(baseline.getHeight(), actual.getHeight());
+
+        int[] expectedPixels = baseline.getRGB(0, 0, baseline.getWidth(), baseline.getHeight(), null, 0, baseline.getWidth());
+        int[] actualPixels = actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth());
+        int[] diffPixels = new int[width * height];
+
+        List<Rectangle> tiles = new ArrayList<>();
+        for (int y = 0; y < height; y += tileSize) {
+            for (int x = 0; x < width; x += tileSize) {
+                tiles.add(new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        Context context = new Context(expectedPixels, baseline.getWidth(), actualPixels, actual.getWidth(),
+                commonWidth, commonHeight, width, diffPixels, ignored);
+        long[] counts = pool.invoke(new TileTask(context, tiles, 0, tiles.size()));
+
+        BufferedImage diffImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        diffImage.setRGB(0, 0, width, height, diffPixels, 0, width);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        return new Result(counts[0], counts[1], diffImage, elapsedMs, tiles.size());
+    }
+
+    private static class Context {
+        final int[] expected;
+        final int expectedWidth;
+        final int[] actual;
+        final int actualWidth;
+        final int commonWidth;
+        final int commonHeight;
+        final int diffWidth;
+        final int[] diff;
+        final List<Rectangle> ignored;
+
+        Context(int[] expected, int expectedWidth, int[] actual, int actualWidth, int commonWidth, int commonHeight,
+                int diffWidth, int[] diff, List<Rectangle> ignored) {
+            this.expected = expected;
+            this.expectedWidth = expectedWidth;
+            this.actual = actual;
+            this.actualWidth = actualWidth;
+            this.commonWidth = commonWidth;
+            this.commonHeight = commonHeight;
+            this.diffWidth = diffWidth;
+            this.diff = diff;
+            this.ignored = ignored;
+        }
+    }
+
+    // Splits the tile list in halves until a single tile is left; returns {mismatched, compared}
+    private class TileTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+        private final Context context;
+        private final List<Rectangle> tiles;
+        private final int from;
+        private final int to;
+
+        TileTask(Context context, List<Rectangle> tiles, int from, int to) {
+            this.context = context;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from == 1) {
+                return compareTile(context, tiles.get(from));
+            }
+            int middle = (from + to) >>> 1;
+            TileTask left = new TileTask(context, tiles, from, middle);
+            left.fork();
+            long[] right = new TileTask(context, tiles, middle, to).compute();
+            long[] leftResult = left.join();
+            return new long[]{leftResult[0] + right[0], leftResult[1] + right[1]};
+        }
+    }
+
+    private long[] compareTile(Context c, Rectangle tile) {
+        List<Rectangle> ignoredInTile = new ArrayList<>();
+        for (Rectangle region : c.ignored) {
+            if (region.intersects(tile)) {
+                ignoredInTile.add(region);
+            }
+        }
+        long mismatched = 0;
+        long compared = 0;
+        for (int y = tile.y; y < tile.y + tile.height; y++) {
+            for (int x = tile.x; x < tile.x + tile.width; x++) {
+                int index = y * c.diffWidth + x;
+                if (isIgnored(ignoredInTile, x, y)) {
+                    c.diff[index] = 0xFFE0E0E0;
+                    continue;
+                }
+                compared++;
+                if (x >= c.commonWidth || y >= c.commonHeight) {
+                    mismatched++;
+                    c.diff[index] = DIFF_COLOR;
+                    continue;
+                }
+                int expected = c.expected[y * c.expectedWidth + x];
+                int actual = c.actual[y * c.actualWidth + x];
+                if (isSimilar(expected, actual)
+                        || isAntiAliased(c.expected, c.expectedWidth, c.actual, c.actualWidth, c, x, y)
+                        || isAntiAliased(c.actual, c.actualWidth, c.expected, c.expectedWidth, c, x, y)) {
+                    c.diff[index] = fade(expected);
+                } else {
+                    mismatched++;
+                    c.diff[index] = DIFF_COLOR;
+                }
+            }
+        }
+        return new long[]{mismatched, compared};
+    }
+
+    private static boolean isIgnored(List<Rectangle> regions, int x, int y) {
+        for (Rectangle region : regions) {
+            if (region.contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSimilar(int first, int second) {
+        return Math.abs(((first >> 16) & 0xFF) - ((second >> 16) & 0xFF)) <= colorTolerance
+                && Math.abs(((first >> 8) & 0xFF) - ((second >> 8) & 0xFF)) <= colorTolerance
+                && Math.abs((first & 0xFF) - (second & 0xFF)) <= colorTolerance;
+    }
+
+    /*
+     * An anti-aliased pixel blends two colours: among its 3x3 neighbours in the image there are darker
+     * and brighter ones, at most two equal to it, and the darkest or the brightest neighbour lies in a
+     * flat area (3+ equal neighbours) of both images, i.e. the edge itself did not move.
+     */
+    private static boolean isAntiAliased(int[] pixels, int rowWidth, int[] other, int otherWidth, Context c, int x, int y) {
+        int x0 = Math.max(x - 1, 0);
+        int y0 = Math.max(y - 1, 0);
+        int x2 = Math.min(x + 1, c.commonWidth - 1);
+        int y2 = Math.min(y + 1, c.commonHeight - 1);
+        double brightness = brightness(pixels[y * rowWidth + x]);
+        int equal = x == x0 || x == x2 || y == y0 || y == y2 ? 1 : 0;
+        double min = 0;
+        double max = 0;
+        int minX = 0, minY = 0, maxX = 0, maxY = 0;
+        for (int ny = y0; ny <= y2; ny++) {
+            for (int nx = x0; nx <= x2; nx++) {
+                if (nx == x && ny == y) {
+                    continue;
+                }
+                double delta = brightness(pixels[ny * rowWidth + nx]) - brightness;
+                if (delta == 0) {
+                    if (++equal > 2) {
+                        return false;
+                    }
+                } else if (delta < min) {
+                    min = delta;
+                    minX = nx;
+                    minY = ny;
+                } else if (delta > max) {
+                    max = delta;
+                    maxX = nx;
+                    maxY = ny;
+                }
+            }
+        }
+        if (min == 0 || max == 0) {
+            return false;
+        }
+        return (isFlat(pixels, rowWidth, c, minX, minY) && isFlat(other, otherWidth, c, minX, minY))
+                || (isFlat(pixels, rowWidth, c, maxX, maxY) && isFlat(other, otherWidth, c, maxX, maxY));
+    }
+
+    // More than two of the 3x3 neighbours have exactly the pixel's colour, the image border counts as one
+    private static boolean isFlat(int[] pixels, int rowWidth, Context c, int x, int y) {
+        int x0 = Math.max(x - 1, 0);
+        int y0 = Math.max(y - 1, 0);
+        int x2 = Math.min(x + 1, c.commonWidth - 1);
+        int y2 = Math.min(y + 1, c.commonHeight - 1);
+        int rgb = pixels[y * rowWidth + x] & 0xFFFFFF;
+        int equal = x == x0 || x == x2 || y == y0 || y == y2 ? 1 : 0;
+        for (int ny = y0; ny <= y2; ny++) {
+            for (int nx = x0; nx <= x2; nx++) {
+                if ((nx != x || ny != y) && (pixels[ny * rowWidth + nx] & 0xFFFFFF) == rgb && ++equal > 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Luma (YIQ Y), as pixelmatch compares the neighbours
+    private static double brightness(int rgb) {
+        return ((rgb >> 16) & 0xFF) * 0.29889531 + ((rgb >> 8) & 0xFF) * 0.58662247 + (rgb & 0xFF) * 0.11448223;
+    }
+
+    // Unchanged pixels are drawn washed out so the magenta mismatches stand out
+    private static int fade(int rgb) {
+        int r = 192 + (((rgb >> 16) & 0xFF) >> 2);
+        int g = 192 + (((rgb >> 8) & 0xFF) >> 2);
+        int b = 192 + ((rgb & 0xFF) >> 2);
+        return 0xFF000000 | (Math.min(255, r) << 16) | (Math.min(255, g) << 8) | Math.min(255, b);
+    }
+}
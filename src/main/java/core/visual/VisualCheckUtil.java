@@ -0,0 +1,109 @@
+package core.visual;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import core.screenshot.ScreenshotUtil;
+import managers.DriverManager;
+import managers.ExtentManager;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Visual regression checks against stored baselines.
+ * The current page is captured with the thread-local driver, compared with the baseline from
+ * {@link BaselineStore} and the mismatch score plus diff image are logged on the current test node.
+ * When no baseline exists yet, the capture is saved as the baseline and the check passes.
+ */
+public class VisualCheckUtil {
+    // Mismatch in percent of compared pixels above which the check fails
+    private static final double MAX_MISMATCH_PERCENT = Double.parseDouble(getStrProp("VISUAL_MAX_MISMATCH_PERCENT", "0.1"));
+    private static final ImageComparator comparator = new ImageComparator();
+
+    /**
+     * Compares the current page with its baseline and logs the result in the Extent report.
+     *
+     * @param checkName     Unique name of the check within the test class.
+     * @param ignoreRegions Regions in screenshot pixels to leave out (dates, ads, carousels).
+     * @return true when the page matches the baseline within the configured threshold.
+     */
+    public static boolean checkPage(String checkName, Rectangle... ignoreRegions) {
+        WebDriver driver = DriverManager.getDriver();
+        ExtentTest test = ExtentManager.getTest();
+        if (test == null) {
+            System.err.println("ExtentTest is null. Did you call checkPage() before onTestStart?");
+            return false;
+        }
+        if (driver == null) {
+            test.log(Status.WARNING, "Visual check '" + checkName + "' skipped (No WebDriver instance available)");
+            return false;
+        }
+        try {
+            byte[] png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            Path baselinePath = BaselineStore.getBaselinePath(getBrowserName(driver), getTestClassName(), checkName);
+            BufferedImage baseline = BaselineStore.load(baselinePath);
+            if (baseline == null) {
+                BaselineStore.save(baselinePath, png);
+                ScreenshotUtil.attachImage(test, Status.INFO, "Visual check '" + checkName + "': baseline recorded at " + baselinePath, png, "png");
+                return true;
+            }
+            BufferedImage actual = ImageIO.read(new ByteArrayInputStream(png));
+            List<java.awt.Rectangle> ignored = new ArrayList<>();
+            for (Rectangle region : ignoreRegions) {
+                ignored.add(new java.awt.Rectangle(region.getX(), region.getY(), region.getWidth(), region.getHeight()));
+            }
+            ImageComparator.Result result = comparator.compare(baseline, actual, ignored);
+            boolean passed = result.getMismatchPercent() <= MAX_MISMATCH_PERCENT;
+            String summary = String.format("Visual check '%s': %.3f%% mismatch (%d of %d pixels, limit %.3f%%), compared in %d ms on %d tiles",
+                    checkName, result.getMismatchPercent(), result.mismatchedPixels, result.comparedPixels,
+                    MAX_MISMATCH_PERCENT, result.elapsedMs, result.tiles);
+            if (passed) {
+                test.log(Status.PASS, summary);
+            } else {
+                ScreenshotUtil.attachImage(test, Status.FAIL, summary + " - diff", toPng(result.diffImage), "png");
+                ScreenshotUtil.attachImage(test, Status.INFO, "Actual", png, "png");
+            }
+            return passed;
+        } catch (Exception e) {
+            test.log(Status.WARNING, "Visual check '" + checkName + "' failed to run: " + e.getMessage());
+            System.err.println("Failed to run visual check: " + checkName + ". Error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static String getBrowserName(WebDriver driver) {
+        if (driver instanceof HasCapabilities) {
+            return ((HasCapabilities) driver).getCapabilities().getBrowserName();
+        }
+        return "default";
+    }
+
+    private static String getTestClassName() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (result == null) {
+            return "default";
+        }
+        return result.getTestClass().getRealClass().getSimpleName();
+    }
+
+    private static byte[] toPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package listeners;
+
+import core.history.DurationHistory;
+import org.testng.IClassListener;
+import org.testng.ITestClass;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <b>Records the duration history</b> ({@link DurationHistory}) of every test and writes the trend
+ * when the TestNG test finishes. The size of a test's screenshots, logs and videos is known once
+ * the {@link ExtentPipelineListener} attached them, so the tests of a class are recorded when the
+ * class is done. Register it and set DURATION_HISTORY=true to build the history the
+ * {@link DurationOrderInterceptor} orders by; registered before the report listener, the report is
+ * written with the link to the trend.
+ */
+public class DurationHistoryListener implements ITestListener, IClassListener {
+    private final Map<Class<?>, List<ITestResult>> endedByClass = new ConcurrentHashMap<>();
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        DurationHistory.testStarted(result);
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onAfterClass(ITestClass testClass) {
+        record(endedByClass.remove(testClass.getRealClass()));
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        for (Class<?> testClass : new ArrayList<>(endedByClass.keySet())) {
+            record(endedByClass.remove(testClass));
+        }
+        DurationHistory.writeReport(context.getName());
+    }
+
+    private void onTestEnd(ITestResult result) {
+        endedByClass.computeIfAbsent(result.getTestClass().getRealClass(),
+                testClass -> Collections.synchronizedList(new ArrayList<>())).add(result);
+    }
+
+    private static void record(List<ITestResult> results) {
+        if (results == null) {
+            return;
+        }
+        synchronized (results) {
+            for (ITestResult result : results) {
+                ExtentPipelineListener.attachmentsOf(result).join();
+                DurationHistory.testFinished(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package listeners;
+
+import core.history.DurationHistory;
+import core.logging.LogStore;
+import managers.ExtentManager;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.xml.XmlSuite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static core.config.ConfigReader.getBoolProp;
+
+/**
+ * <b>Starts the longest test classes first.</b> With parallel="classes" every worker takes the next
+ * class when it is free, so a long class that comes last keeps one worker busy after all others
+ * are done. This interceptor orders the classes by their expected time from the
+ * {@link DurationHistory}, longest first (LPT), keeping the order of the methods within a class.
+ * <p>
+ * Without any history, or when the test does not run classes in parallel, the order is left as
+ * it is. Classes without history are expected to take the median time of the known classes.
+ * The predicted makespan (the time until the last worker is done) is printed when the test starts
+ * and compared with the actual makespan in the report's system info when it finishes. The history
+ * is recorded by the {@link DurationHistoryListener}. DURATION_ORDER=false turns the ordering off
+ * without removing the listener.
+ */
+public class DurationOrderInterceptor implements IMethodInterceptor, ITestListener {
+    private static final boolean DURATION_ORDER = getBoolProp("DURATION_ORDER", true);
+    private static final String FORECAST_ATTRIBUTE = "durationOrder.forecast";
+
+    /** What the ordering expected for one TestNG test. */
+    private static class Forecast {
+        int threads;
+        int classes;
+        int withoutHistory;
+        long predictedMillis;
+        long declaredOrderMillis;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (!DURATION_ORDER || methods.isEmpty()) {
+            return methods;
+        }
+        XmlSuite.ParallelMode parallel = context.getCurrentXmlTest().getParallel();
+        int threads = context.getCurrentXmlTest().getThreadCount();
+        if (threads <= 1 || (parallel != XmlSuite.ParallelMode.CLASSES && parallel != XmlSuite.ParallelMode.INSTANCES)) {
+            System.out.println("INFO: Test order: " + context.getName() + " does not run classes in parallel, keeping the order");
+            return methods;
+        }
+        Map<Class<?>, List<IMethodInstance>> byClass = new LinkedHashMap<>();
+        for (IMethodInstance method : methods) {
+            byClass.computeIfAbsent(method.getMethod().getRealClass(), testClass -> new ArrayList<>()).add(method);
+        }
+        Map<Class<?>, Long> expected = new LinkedHashMap<>();
+        for (Class<?> testClass : byClass.keySet()) {
+            expected.put(testClass, DurationHistory.expectedClassMillis(testClass.getName()));
+        }
+        int withoutHistory = estimateUnknown(expected);
+        if (withoutHistory == expected.size()) {
+            System.out.println("INFO: Test order: no duration history for the classes of " + context.getName()
+                    + " yet, keeping the order");
+            return methods;
+        }
+
+        List<Class<?>> ordered = longestFirst(expected);
+        List<IMethodInstance> result = new ArrayList<>(methods.size());
+        for (Class<?> testClass : ordered) {
+            result.addAll(byClass.get(testClass));
+        }
+
+        Forecast forecast = new Forecast();
+        forecast.threads = threads;
+        forecast.classes = byClass.size();
+        forecast.withoutHistory = withoutHistory;
+        forecast.predictedMillis = makespan(ordered, expected, threads);
+        forecast.declaredOrderMillis = makespan(new ArrayList<>(byClass.keySet()), expected, threads);
+        context.setAttribute(FORECAST_ATTRIBUTE, forecast);
+        System.out.printf("INFO: Test order: %d class(es) of %s longest first on %d thread(s), predicted makespan %.1f s "
+                        + "(%.1f s in the declared order), %d class(es) without history%n", forecast.classes,
+                context.getName(), threads, forecast.predictedMillis / 1000.0, forecast.declaredOrderMillis / 1000.0,
+                forecast.withoutHistory);
+        return result;
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        reportMakespan(context);
+    }
+
+    /**
+     * <b>Prints the predicted against the actual makespan</b> of a TestNG test that was ordered by
+     * this interceptor and adds it to the report's system info. Called when the test finishes.
+     */
+    public static void reportMakespan(ITestContext context) {
+        Object attribute = context.getAttribute(FORECAST_ATTRIBUTE);
+        if (!(attribute instanceof Forecast)) {
+            return;
+        }
+        Forecast forecast = (Forecast) attribute;
+        long actual = System.currentTimeMillis() - context.getStartDate().getTime();
+        String summary = String.format("predicted makespan %.1f s, actual %.1f s (%+.0f%%), declared order predicted %.1f s",
+                forecast.predictedMillis / 1000.0, actual / 1000.0,
+                forecast.predictedMillis == 0 ? 0 : (actual - forecast.predictedMillis) * 100.0 / forecast.predictedMillis,
+                forecast.declaredOrderMillis / 1000.0);
+        System.out.println("INFO: Test order: " + context.getName() + ": " + summary);
+        ExtentManager.getReportInstance().setSystemInfo("Test order: " + LogStore.escapeHtml(context.getName()),
+                forecast.classes + " class(es) longest first on " + forecast.threads + " thread(s), "
+                        + forecast.withoutHistory + " without history: " + summary);
+    }
+
+    /**
+     * Replaces the expected time of the classes without history (-1) with the median of the known
+     * classes.
+     *
+     * @return How many classes had no history; all of them are left at -1 when none had.
+     */
+    static int estimateUnknown(Map<Class<?>, Long> expected) {
+        List<Long> known = new ArrayList<>();
+        for (long millis : expected.values()) {
+            if (millis >= 0) {
+                known.add(millis);
+            }
+        }
+        if (known.isEmpty()) {
+            return expected.size();
+        }
+        known.sort(null);
+        long unknownEstimate = known.get(known.size() / 2);
+        expected.replaceAll((testClass, millis) -> millis >= 0 ? millis : unknownEstimate);
+        return expected.size() - known.size();
+    }
+
+    /** Returns the classes by their expected time, longest first. */
+    static List<Class<?>> longestFirst(Map<Class<?>, Long> expected) {
+        List<Class<?>> ordered = new ArrayList<>(expected.keySet());
+        // Stable, classes with the same expected time keep their order
+        ordered.sort(Comparator.comparingLong((Class<?> testClass) -> expected.get(testClass)).reversed());
+        return ordered;
+    }
+
+    // Each class goes to the worker that is free first, the makespan is when the last one is done
+    static long makespan(List<Class<?>> order, Map<Class<?>, Long> expected, int threads) {
+        long[] workers = new long[threads];
+        for (Class<?> testClass : order) {
+            int free = 0;
+            for (int i = 1; i < workers.length; i++) {
+                if (workers[i] < workers[free]) {
+                    free = i;
+                }
+            }
+            workers[free] += expected.get(testClass);
+        }
+        return Arrays.stream(workers).max().orElse(0);
+    }
+}
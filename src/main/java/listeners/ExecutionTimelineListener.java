@@ -0,0 +1,53 @@
+package listeners;
+
+import core.timeline.ExecutionTimeline;
+import org.testng.IClassListener;
+import org.testng.ITestClass;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+/**
+ * <b>Records the execution timeline</b> ({@link ExecutionTimeline}): the span of every test class
+ * and test, written out when the TestNG test finishes. Browser launches and quits and the
+ * attachment work of the {@link ExtentPipelineListener} are recorded where they happen, only while
+ * TIMELINE is on. Register it and set TIMELINE=true to get the timeline; registered before the
+ * report listener, the report is written with the link to it.
+ */
+public class ExecutionTimelineListener implements ITestListener, IClassListener {
+
+    @Override
+    public void onBeforeClass(ITestClass testClass) {
+        ExecutionTimeline.classStarted(testClass.getRealClass().getSimpleName());
+    }
+
+    @Override
+    public void onAfterClass(ITestClass testClass) {
+        ExecutionTimeline.classFinished(testClass.getRealClass().getSimpleName());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        ExecutionTimeline.writeReport(context.getName());
+    }
+
+    private static void onTestEnd(ITestResult result) {
+        ExecutionTimeline.record(ExecutionTimeline.TEST, result.getMethod().getMethodName(),
+                result.getStartMillis(), result.getEndMillis());
+    }
+}
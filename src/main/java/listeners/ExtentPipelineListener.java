@@ -0,0 +1,281 @@
+package listeners;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import core.logging.LogProfile;
+import core.report.PagedReport;
+import core.report.ResultExport;
+import core.timeline.ExecutionTimeline;
+import listeners.pipeline.Attachment;
+import listeners.pipeline.AttachmentStage;
+import listeners.pipeline.LogStage;
+import listeners.pipeline.MetricsStage;
+import listeners.pipeline.ScreenshotStage;
+import listeners.pipeline.VideoStage;
+import managers.ExtentManager;
+import org.testng.IClassListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestClass;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * <b>Extent listener built from attachment stages.</b>
+ * The test thread creates the report node, runs the quick part of each stage when the test ends and
+ * moves on; the attachments, the test's final status, the paged report entry and the exported result
+ * are added on one of LISTENER_THREADS pipeline threads, one task per test so its entries keep the
+ * order of the stages.
+ * When LISTENER_QUEUE tests are waiting, the test thread runs its own task, which bounds the memory
+ * held by pending attachments. LISTENER_THREADS=0 runs everything on the test thread.
+ * <p>
+ * Used directly, the stages come from LISTENER_STAGES (screenshot, logs, video, metrics); the
+ * Extent*Listeners classes are this listener with a fixed set of stages.
+ * A class's node is only moved out of memory and the report only written once the tasks of the
+ * class, or of the whole run, are done. Listeners that need a test's attachments wait for
+ * {@link #attachmentsOf(ITestResult)}. When the suite finished, stages that left work running in the
+ * background (clips of the continuous recording) are waited for and the report is written again,
+ * and the exported results get their run_end event.
+ */
+public class ExtentPipelineListener implements ITestListener, IClassListener, ISuiteListener {
+    private static final ExtentReports extent = ExtentManager.getReportInstance();
+    private static final int THREADS = getIntProp("LISTENER_THREADS", 2);
+    private static final int QUEUE = getIntProp("LISTENER_QUEUE", 100);
+    private static final String ATTACHMENTS_ATTRIBUTE = "extentPipeline.attachments";
+
+    private static ExecutorService executor;
+    private static final Map<String, CompletableFuture<Void>> pendingByClass = new ConcurrentHashMap<>();
+    private static final AtomicLong testCount = new AtomicLong();
+    private static final AtomicLong testThreadNanos = new AtomicLong();
+    private static final AtomicLong pipelineNanos = new AtomicLong();
+    private static final AtomicInteger maxPending = new AtomicInteger();
+    private static final AtomicInteger pending = new AtomicInteger();
+
+    private final List<AttachmentStage> stages;
+
+    /** Creates the listener with the stages named in LISTENER_STAGES. */
+    public ExtentPipelineListener() {
+        this(stagesFromConfig());
+    }
+
+    /** Creates the listener with the given stages, their attachments are added in this order. */
+    protected ExtentPipelineListener(AttachmentStage... stages) {
+        this.stages = List.of(stages);
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        String className = result.getTestClass().getRealClass().getSimpleName();
+        ExtentTest classNode = ExtentManager.getOrCreateClassNode(className);
+
+        String methodName = result.getMethod().getMethodName();
+        ExtentTest methodNode = classNode.createNode(methodName);
+        ExtentManager.setTest(methodNode);
+
+        Object[] params = result.getParameters();
+        if (params.length > 0) {
+            methodNode.info("Parameters: " + Arrays.toString(params));
+        }
+        Object[] groups = result.getMethod().getGroups();
+        if (groups.length > 0) {
+            methodNode.info("groups: " + Arrays.toString(groups));
+        }
+        for (AttachmentStage stage : stages) {
+            stage.onTestStart(result);
+        }
+        ResultExport.testStarted(result);
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        onTestEnd(result);
+    }
+
+    @Override
+    public void onStart(ITestContext context) {
+        LogProfile.apply();
+    }
+
+    @Override
+    public void onAfterClass(ITestClass testClass) {
+        String className = testClass.getRealClass().getSimpleName();
+        CompletableFuture<Void> classTasks = pendingByClass.remove(className);
+        if (classTasks != null) {
+            classTasks.join();
+        }
+        ExtentManager.finishClassNode(className);
+        PagedReport.classFinished(testClass.getRealClass());
+        ResultExport.classFinished(testClass.getRealClass());
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        CompletableFuture.allOf(pendingByClass.values().toArray(new CompletableFuture<?>[0])).join();
+        for (AttachmentStage stage : stages) {
+            stage.onFinish(context);
+        }
+        ExtentManager.flushReport();
+        PagedReport.flushReport();
+        ResultExport.flushResults();
+        long tests = testCount.get();
+        if (tests > 0) {
+            System.out.printf("INFO: Listener pipeline: %d test(s), %.2f ms per test on the test thread, "
+                            + "%.2f ms per test on %d pipeline thread(s), at most %d test(s) waiting%n",
+                    tests, testThreadNanos.get() / 1e6 / tests, pipelineNanos.get() / 1e6 / tests, THREADS, maxPending.get());
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        boolean added = false;
+        for (AttachmentStage stage : stages) {
+            added |= stage.onSuiteFinish(suite);
+        }
+        if (added) {
+            ExtentManager.flushReport();
+        }
+        ResultExport.suiteFinished(suite.getName());
+    }
+
+    /**
+     * Returns what completes once the test's attachments were added to its report node. Completed
+     * when this listener is not registered or the attachments are done.
+     */
+    public static CompletableFuture<?> attachmentsOf(ITestResult result) {
+        Object task = result.getAttribute(ATTACHMENTS_ATTRIBUTE);
+        return task instanceof CompletableFuture ? (CompletableFuture<?>) task : CompletableFuture.completedFuture(null);
+    }
+
+    private void onTestEnd(ITestResult result) {
+        long start = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        String methodName = result.getMethod().getMethodName();
+        ExtentTest test = ExtentManager.getTest();
+        List<Attachment> attachments = new ArrayList<>();
+        for (AttachmentStage stage : stages) {
+            try {
+                Attachment attachment = stage.onTestEnd(result);
+                if (attachment != null) {
+                    attachments.add(attachment);
+                }
+            } catch (RuntimeException e) {
+                attachments.add(node -> node.log(Status.WARNING, stage.getClass().getSimpleName() + " failed: " + e));
+            }
+        }
+        ExtentManager.removeTest();
+        String thread = Thread.currentThread().getName();
+        CompletableFuture<Void> task = submit(() -> attach(test, result, thread, attachments));
+        // Removed again once done, so the finished results do not carry it into TestNG's reports
+        result.setAttribute(ATTACHMENTS_ATTRIBUTE, task);
+        task.whenComplete((done, error) -> result.removeAttribute(ATTACHMENTS_ATTRIBUTE));
+        // Includes the attachments when the test thread ran its own task
+        ExecutionTimeline.record(ExecutionTimeline.ATTACHMENTS, methodName, startMillis, System.currentTimeMillis());
+        pendingByClass.merge(result.getTestClass().getRealClass().getSimpleName(), task,
+                (earlier, later) -> CompletableFuture.allOf(earlier, later));
+        testCount.incrementAndGet();
+        testThreadNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    // Runs on a pipeline thread: the stages' attachments in order, then the status the old listeners logged last
+    private static void attach(ExtentTest test, ITestResult result, String thread, List<Attachment> attachments) {
+        long start = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        for (Attachment attachment : attachments) {
+            try {
+                attachment.attachTo(test);
+            } catch (Exception e) {
+                System.err.println("Failed to attach to " + result.getMethod().getMethodName() + ": " + e.getMessage());
+                test.log(Status.WARNING, "Failed to attach: " + e.getMessage());
+            }
+        }
+        if (result.getStatus() == ITestResult.FAILURE) {
+            test.fail(result.getThrowable());
+        } else if (result.getStatus() == ITestResult.SKIP) {
+            test.skip("Test Skipped: " + result.getThrowable());
+        }
+        PagedReport.testFinished(result, thread);
+        ResultExport.testFinished(result, thread);
+        if (!Thread.currentThread().getName().equals(thread)) {
+            ExecutionTimeline.record(Thread.currentThread().getName(), ExecutionTimeline.ATTACHMENTS,
+                    result.getMethod().getMethodName(), result.getTestClass().getRealClass().getSimpleName(),
+                    startMillis, System.currentTimeMillis());
+        }
+        pipelineNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private static CompletableFuture<Void> submit(Runnable task) {
+        ExecutorService pipeline = getExecutor();
+        if (pipeline == null) {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } finally {
+                pending.decrementAndGet();
+            }
+        }, pipeline);
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (THREADS <= 0) {
+            return null;
+        }
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, QUEUE)), r -> {
+                Thread thread = new Thread(r, "extent-listener-pipeline-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor = pool;
+        }
+        return executor;
+    }
+
+    private static AttachmentStage[] stagesFromConfig() {
+        List<AttachmentStage> configured = new ArrayList<>();
+        for (String name : getStrProp("LISTENER_STAGES", "screenshot,logs").split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "screenshot": configured.add(new ScreenshotStage()); break;
+                case "logs": configured.add(new LogStage()); break;
+                case "video": configured.add(new VideoStage()); break;
+                case "metrics": configured.add(new MetricsStage()); break;
+                case "": break;
+                default: System.err.println("Unknown listener stage in LISTENER_STAGES: " + name.trim());
+            }
+        }
+        return configured.toArray(new AttachmentStage[0]);
+    }
+}
@@ -0,0 +1,18 @@
+package listeners.pipeline;
+
+import com.aventstack.extentreports.ExtentTest;
+
+/**
+ * The part of an {@link AttachmentStage} that runs on a pipeline thread. The attachments of a test
+ * run one after the other, in the order of the stages.
+ */
+@FunctionalInterface
+public interface Attachment {
+
+    /**
+     * Adds the attachment to the test's report node.
+     *
+     * @param test The method node of the test.
+     */
+    void attachTo(ExtentTest test) throws Exception;
+}
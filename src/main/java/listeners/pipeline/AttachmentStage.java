@@ -0,0 +1,42 @@
+package listeners.pipeline;
+
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+
+/**
+ * One kind of attachment the {@link listeners.ExtentPipelineListener} adds to a test's report node.
+ * A stage does on the test thread only what needs the test's thread state or browser (stopping a
+ * recorder, taking a screenshot, detaching the captured logs) and hands the rest, writing files and
+ * adding report entries, to the pipeline thread as an {@link Attachment}.
+ */
+public interface AttachmentStage {
+
+    /** Runs on the test thread when the test starts. */
+    default void onTestStart(ITestResult result) {
+    }
+
+    /**
+     * Runs on the test thread when the test ended, passed, failed or skipped.
+     *
+     * @return The work left for the pipeline thread, or null when there is nothing to attach.
+     */
+    Attachment onTestEnd(ITestResult result);
+
+    /**
+     * Runs when the TestNG test finished, after the attachments of all its tests were added and
+     * before the report is written.
+     */
+    default void onFinish(ITestContext context) {
+    }
+
+    /**
+     * Runs when the suite finished, after all its TestNG tests, for work that was left running in
+     * the background.
+     *
+     * @return true when report entries were added, the report is then written again.
+     */
+    default boolean onSuiteFinish(ISuite suite) {
+        return false;
+    }
+}
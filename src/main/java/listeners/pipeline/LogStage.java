@@ -0,0 +1,38 @@
+package listeners.pipeline;
+
+import core.history.DurationHistory;
+import core.logging.LogStore;
+import core.logging.TestLogCapture;
+import org.apache.logging.log4j.ThreadContext;
+import org.testng.ITestResult;
+
+import java.util.function.Supplier;
+
+/**
+ * Attaches the test's log lines to passed and failed tests. Capturing stops on the test thread;
+ * draining the buffer, or reading the log file when capture is off, and storing the logs next to
+ * the report run on the pipeline thread.
+ */
+public class LogStage implements AttachmentStage {
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        TestLogCapture.start(result.getMethod().getMethodName());
+    }
+
+    @Override
+    public Attachment onTestEnd(ITestResult result) {
+        if (result.getStatus() == ITestResult.SKIP) {
+            TestLogCapture.discard();
+            return null;
+        }
+        String methodName = result.getMethod().getMethodName();
+        Supplier<String> testLogs = TestLogCapture.detach(methodName, ThreadContext.get("driverId"));
+        // Stored next to the report and loaded when the entry is opened (LOG_STORE)
+        return test -> {
+            String logs = testLogs.get();
+            test.info(LogStore.toReportHtml(methodName, logs));
+            DurationHistory.addArtifactBytes(result, logs == null ? 0 : logs.length());
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package listeners.pipeline;
+
+import org.testng.ITestResult;
+
+/**
+ * Attaches the test's duration, thread and the JVM heap in use when it ended.
+ */
+public class MetricsStage implements AttachmentStage {
+
+    @Override
+    public Attachment onTestEnd(ITestResult result) {
+        long durationMs = result.getEndMillis() - result.getStartMillis();
+        String thread = Thread.currentThread().getName();
+        Runtime runtime = Runtime.getRuntime();
+        long heapMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        return test -> test.info("Duration: " + durationMs + " ms, thread: " + thread + ", heap in use: " + heapMb + " MB");
+    }
+}
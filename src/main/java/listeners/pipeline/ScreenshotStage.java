@@ -0,0 +1,32 @@
+package listeners.pipeline;
+
+import core.history.DurationHistory;
+import managers.DriverManager;
+import org.openqa.selenium.WebDriver;
+import org.testng.ITestResult;
+
+import static core.screenshot.ScreenshotUtil.getBase64Screenshot;
+
+/**
+ * Attaches a screenshot of the thread's browser to failed tests. The screenshot is taken on the
+ * test thread, before the driver is quit.
+ */
+public class ScreenshotStage implements AttachmentStage {
+
+    @Override
+    public Attachment onTestEnd(ITestResult result) {
+        if (result.getStatus() != ITestResult.FAILURE) {
+            return null;
+        }
+        WebDriver driver = DriverManager.getDriver();
+        if (driver == null) {
+            System.err.println("Driver is null. failed to attached screenshot");
+            return null;
+        }
+        String base64Screenshot = getBase64Screenshot(driver);
+        return test -> {
+            test.addScreenCaptureFromBase64String(base64Screenshot);
+            DurationHistory.addArtifactBytes(result, base64Screenshot.length() * 3L / 4);
+        };
+    }
+}
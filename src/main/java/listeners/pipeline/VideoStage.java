@@ -0,0 +1,78 @@
+package listeners.pipeline;
+
+import com.aventstack.extentreports.Status;
+import core.history.DurationHistory;
+import core.video.ContinuousRecording;
+import core.video.RecordingRegistry;
+import core.video.VideoCompactor;
+import core.video.VideoRecorder;
+import managers.RecorderManager;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+
+import java.io.File;
+
+/**
+ * Records each test with the configured recorder and attaches the video link. The recorder is
+ * started and stopped on the test thread, as it belongs to it; the link and the background
+ * compaction are added on the pipeline thread. When the TestNG test finishes the continuous
+ * recording is finished and the clips of its tests are queued; the suite end waits for them.
+ */
+public class VideoStage implements AttachmentStage {
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        try {
+            RecorderManager.initializeRecorder(RecordingRegistry.newVideoName(result));
+            RecorderManager.getVideoRecorder().start();
+        } catch (Exception e) {
+            System.err.println("Video recording failed to start: " + result.getMethod().getMethodName());
+        }
+    }
+
+    @Override
+    public Attachment onTestEnd(ITestResult result) {
+        String videoName = RecordingRegistry.getVideoName(result);
+        try {
+            if (result.getStatus() == ITestResult.FAILURE) {
+                RecorderManager.markTestFailed();
+            }
+            VideoRecorder recorder = RecorderManager.getVideoRecorder();
+            recorder.stop();
+            if (!recorder.hasVideo()) {
+                // Failure-only mode discards the recording of tests that did not fail
+                return null;
+            }
+            return test -> {
+                String videoLinkHtml = recorder.getReportLink(videoName);
+                if (videoLinkHtml != null) {
+                    test.info(videoLinkHtml + " : " + videoName);
+                    recorder.whenLinkReady(link -> test.info(link + " : " + videoName));
+                    File videoFile = RecordingRegistry.lookup(videoName);
+                    DurationHistory.addArtifactBytes(result, videoFile == null ? 0 : videoFile.length());
+                    // Shrinks the file in place on a background thread, the link stays valid
+                    VideoCompactor.submit(videoName);
+                } else {
+                    test.log(Status.INFO, "Video recording file was not found after test completion.");
+                }
+            };
+        } catch (IllegalStateException e) {
+            return test -> test.log(Status.WARNING, "Video recorder was not running for this test.");
+        } catch (Exception e) {
+            return test -> test.log(Status.WARNING, "Failed to stop or attach video: " + e.getMessage());
+        } finally {
+            RecorderManager.removeInstance();
+        }
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        ContinuousRecording.finish();
+    }
+
+    @Override
+    public boolean onSuiteFinish(ISuite suite) {
+        return ContinuousRecording.awaitClips();
+    }
+}
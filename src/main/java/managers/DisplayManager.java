@@ -0,0 +1,179 @@
+package managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
+import static core.config.ConfigReader.getStrProp;
+
+/**
+ * Gives every worker thread its own Xvfb display on Linux, so parallel browsers do not share a
+ * screen and each desktop recording only contains its own browser.
+ * The display is started when the thread first launches a browser and reused by its following
+ * browsers, so Xvfb starts once per worker instead of once per driver; all displays are stopped
+ * when the JVM exits.
+ */
+public class DisplayManager {
+    private static final boolean VIRTUAL_DISPLAY = getBoolProp("VIRTUAL_DISPLAY", false);
+    private static final String XVFB_PATH = getStrProp("XVFB_PATH", "Xvfb");
+    // WIDTHxHEIGHTxDEPTH of the virtual screen
+    private static final String SCREEN = getStrProp("VIRTUAL_DISPLAY_SCREEN", "1920x1080x24");
+    private static final int FIRST_NUMBER = getIntProp("VIRTUAL_DISPLAY_FIRST_NUMBER", 99);
+    private static final int START_TIMEOUT_MS = getIntProp("VIRTUAL_DISPLAY_START_TIMEOUT_MS", 10000);
+
+    private static final ThreadLocal<VirtualDisplay> threadDisplay = new ThreadLocal<>();
+    private static final Set<VirtualDisplay> displays = ConcurrentHashMap.newKeySet();
+    private static final AtomicInteger nextNumber = new AtomicInteger(FIRST_NUMBER);
+    private static final AtomicLong totalStartMillis = new AtomicLong();
+    private static final AtomicLong totalStopMillis = new AtomicLong();
+    private static final AtomicInteger startedCount = new AtomicInteger();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DisplayManager::releaseAll, "virtual-display-shutdown"));
+    }
+
+    /** A running Xvfb server. */
+    public static class VirtualDisplay {
+        private final int number;
+        private final Process process;
+        private final long startedAt = System.currentTimeMillis();
+
+        VirtualDisplay(int number, Process process) {
+            this.number = number;
+            this.process = process;
+        }
+
+        /** The DISPLAY value, e.g. ":99". */
+        public String getName() {
+            return ":" + number;
+        }
+
+        public int getWidth() {
+            return Integer.parseInt(SCREEN.split("x")[0]);
+        }
+
+        public int getHeight() {
+            return Integer.parseInt(SCREEN.split("x")[1]);
+        }
+    }
+
+    /** Returns true when VIRTUAL_DISPLAY is on and the OS can run Xvfb. */
+    public static boolean isEnabled() {
+        return VIRTUAL_DISPLAY && System.getProperty("os.name", "").toLowerCase().contains("linux");
+    }
+
+    /** Returns the current thread's display, or null when it has none. */
+    public static VirtualDisplay getDisplay() {
+        return threadDisplay.get();
+    }
+
+    /**
+     * Returns the current thread's display, starting one on first use.
+     *
+     * @return The display, or null when virtual displays are disabled.
+     */
+    public static VirtualDisplay getOrStartDisplay() throws IOException {
+        if (!isEnabled()) {
+            return null;
+        }
+        VirtualDisplay display = threadDisplay.get();
+        if (display == null || !display.process.isAlive()) {
+            display = start();
+            threadDisplay.set(display);
+        }
+        return display;
+    }
+
+    /** Stops the current thread's display. Call it when the worker thread is done with browsers. */
+    public static void releaseDisplay() {
+        VirtualDisplay display = threadDisplay.get();
+        threadDisplay.remove();
+        if (display != null) {
+            stop(display);
+        }
+    }
+
+    private static VirtualDisplay start() throws IOException {
+        long start = System.nanoTime();
+        // Numbers already taken by other servers (or other JVMs) are skipped
+        for (int attempt = 0; attempt < 20; attempt++) {
+            int number = nextNumber.getAndIncrement();
+            if (new File("/tmp/.X" + number + "-lock").exists()) {
+                continue;
+            }
+            Process process = new ProcessBuilder(XVFB_PATH, ":" + number, "-screen", "0", SCREEN, "-nolisten", "tcp")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            if (waitForSocket(number, process)) {
+                VirtualDisplay display = new VirtualDisplay(number, process);
+                displays.add(display);
+                long elapsed = (System.nanoTime() - start) / 1_000_000;
+                totalStartMillis.addAndGet(elapsed);
+                startedCount.incrementAndGet();
+                System.out.println("INFO: Virtual display " + display.getName() + " started in " + elapsed + " ms for thread "
+                        + Thread.currentThread().getName());
+                return display;
+            }
+            process.destroyForcibly();
+        }
+        throw new IOException("Could not start Xvfb with \"" + XVFB_PATH + "\" on any display from :" + FIRST_NUMBER);
+    }
+
+    // Xvfb creates the socket once it accepts clients; an early exit means the number is in use
+    private static boolean waitForSocket(int number, Process process) {
+        File socket = new File("/tmp/.X11-unix/X" + number);
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                return false;
+            }
+            if (socket.exists()) {
+                return true;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static void stop(VirtualDisplay display) {
+        if (!displays.remove(display)) {
+            return;
+        }
+        long start = System.nanoTime();
+        display.process.destroy();
+        try {
+            if (!display.process.waitFor(5, TimeUnit.SECONDS)) {
+                display.process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        totalStopMillis.addAndGet(elapsed);
+        System.out.println("INFO: Virtual display " + display.getName() + " stopped in " + elapsed + " ms after "
+                + (System.currentTimeMillis() - display.startedAt) / 1000 + " s of use");
+    }
+
+    private static void releaseAll() {
+        for (VirtualDisplay display : displays) {
+            stop(display);
+        }
+        int count = startedCount.get();
+        if (count > 0) {
+            System.out.println("INFO: " + count + " virtual display(s): start " + totalStartMillis.get() / count
+                    + " ms average, stop " + totalStopMillis.get() / count + " ms average.");
+        }
+    }
+}
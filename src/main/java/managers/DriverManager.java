@@ -1,5 +1,6 @@
 package managers;
 
+import core.timeline.ExecutionTimeline;
 import org.openqa.selenium.WebDriver;
 
 public class DriverManager {
@@ -23,7 +24,9 @@ public class DriverManager {
         WebDriver driver = threadLocalDriver.get();
         if (driver != null)
         {
+            long quitStart = System.currentTimeMillis();
             driver.quit();
+            ExecutionTimeline.record(ExecutionTimeline.QUIT, "driver quit", quitStart, System.currentTimeMillis());
             // Important: Remove the driver from ThreadLocal to prevent memory leaks
             threadLocalDriver.remove();
         }
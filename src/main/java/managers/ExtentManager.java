@@ -6,36 +6,77 @@ import com.aventstack.extentreports.MediaEntityBuilder;
 import com.aventstack.extentreports.Status;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
+import core.logging.LogStore;
+import core.report.ReportNodeStore;
+import core.screenshot.ScreenshotStore;
 
+import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
 import static core.config.ConfigReader.getStrProp;
 
 // Removed all imports related to Map and ConcurrentHashMap
 
 public class ExtentManager {
-    private static ExtentReports extent;
+    private static volatile ExtentReports extent;
     private static final String DEFAULT_REPORT_PATH = getStrProp("EXTENT_REPORT","execution-output/test-reports/ExtentReport.html");
+    // Path the report was actually created with, screenshots and other artifacts are stored relative to it
+    private static String reportPath = DEFAULT_REPORT_PATH;
     // NEW: ThreadLocal to store the current running test's ExtentTest instance
     private static final ThreadLocal<ExtentTest> currentTest = new ThreadLocal<>();
     private static final Map<String,ExtentTest> classNodeMap = new ConcurrentHashMap<>();
+    // Background flushes during the run, so the report can be opened mid-run and survives a crash (0 disables)
+    private static final int FLUSH_INTERVAL_SEC = getIntProp("REPORT_FLUSH_INTERVAL_SEC", 30);
+    private static final int FLUSH_EVERY_N_TESTS = getIntProp("REPORT_FLUSH_EVERY_N_TESTS", 0);
+    // Extent writes the whole report on every flush, two flushes must not write the file at the same time
+    private static final Object flushLock = new Object();
+    private static final int FLUSH_ATTEMPTS = 3;
+    private static final AtomicInteger testsSinceFlush = new AtomicInteger();
+    private static final AtomicBoolean flushQueued = new AtomicBoolean();
+    private static ScheduledExecutorService flusher;
+    // Finished class nodes are kept on disk until the report is written (REPORT_SPILL)
+    private static final boolean SPILL = getBoolProp("REPORT_SPILL", false);
+    private static final String SPILL_DIR = getStrProp("REPORT_SPILL_DIR", "");
+    private static ReportNodeStore nodeStore;
 
     /**
      * <b>Initializes ExtentReports using a custom path</b>
      */
     public static ExtentReports getReportInstance(String reportFilePath) {
-        if (extent == null) {
-            ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportFilePath);
-            sparkReporter.config().setTheme(Theme.STANDARD);
-            sparkReporter.config().setDocumentTitle("Test Automation Report");
-            sparkReporter.config().setReportName("Test Results");
-            extent = new ExtentReports();
-            extent.attachReporter(sparkReporter);
-            extent.setSystemInfo("OS", System.getProperty("os.name"));
-            extent.setSystemInfo("Java Version", System.getProperty("java.version"));
+        ExtentReports instance = extent;
+        if (instance != null) {
+            return instance;
+        }
+        // Listeners of parallel test classes can get here at the same time
+        synchronized (ExtentManager.class) {
+            if (extent == null) {
+                reportPath = reportFilePath;
+                ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportFilePath);
+                sparkReporter.config().setTheme(Theme.STANDARD);
+                sparkReporter.config().setDocumentTitle("Test Automation Report");
+                sparkReporter.config().setReportName("Test Results");
+                ExtentReports created = new ExtentReports();
+                created.attachReporter(sparkReporter);
+                created.setSystemInfo("OS", System.getProperty("os.name"));
+                created.setSystemInfo("Java Version", System.getProperty("java.version"));
+                if (SPILL) {
+                    File reportDir = new File(reportFilePath).getAbsoluteFile().getParentFile();
+                    nodeStore = new ReportNodeStore(SPILL_DIR.isEmpty() ? new File(reportDir, "report-store") : new File(SPILL_DIR));
+                }
+                extent = created;
+                startBackgroundFlushes();
+            }
+            return extent;
         }
-        return extent;
     }
 
     /**
@@ -44,6 +85,122 @@ public class ExtentManager {
     public static ExtentReports getReportInstance() {
         return getReportInstance(DEFAULT_REPORT_PATH);
     }
+    /**
+     * Returns the file path of the report, used to resolve artifacts that are linked relatively.
+     */
+    public static String getReportFilePath() {
+        return reportPath;
+    }
+
+    /**
+     * <b>Writes the report to disk and prints how long the write took and how big the report is.</b>
+     * Waits for background screenshot thumbnails first so the report never links a missing file.
+     */
+    public static void flushReport() {
+        ScreenshotStore.awaitThumbnails();
+        long start = System.nanoTime();
+        synchronized (flushLock) {
+            testsSinceFlush.set(0);
+            writeReport(getReportInstance());
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long sizeKb = new File(reportPath).length() / 1024;
+        System.out.println("INFO: Extent report flushed in " + elapsedMs + " ms, size " + sizeKb + " KB. "
+                + ScreenshotStore.getStats() + ". " + LogStore.getStats()
+                + (nodeStore == null ? "" : ". " + nodeStore.getStats()));
+    }
+
+    /**
+     * <b>Moves a finished test class's node with its method nodes out of the heap (REPORT_SPILL).</b>
+     * Called by the listeners when TestNG finished the class; does nothing when REPORT_SPILL is off.
+     *
+     * @param className The class name the node was created with in {@link #getOrCreateClassNode}.
+     */
+    public static void finishClassNode(String className) {
+        if (nodeStore == null) {
+            return;
+        }
+        ExtentTest classNode = classNodeMap.remove(className);
+        if (classNode != null && !nodeStore.spill(extent, classNode)) {
+            classNodeMap.putIfAbsent(className, classNode);
+        }
+    }
+
+    // Spilled nodes are only brought back for the time it takes to write the report
+    private static void writeReport(ExtentReports report) {
+        if (nodeStore == null) {
+            report.flush();
+            return;
+        }
+        List<ExtentTest> restored = nodeStore.restore(report);
+        try {
+            report.flush();
+        } finally {
+            nodeStore.release(report, restored);
+        }
+    }
+
+    /**
+     * <b>Flushes the report on a background thread every REPORT_FLUSH_INTERVAL_SEC and after every
+     * REPORT_FLUSH_EVERY_N_TESTS finished tests</b>, skipping intervals in which no test finished.
+     * A shutdown hook writes what is pending when the JVM exits without reaching the final flush.
+     * With REPORT_SPILL only the shutdown hook is used, every flush would read all stored nodes back.
+     */
+    private static void startBackgroundFlushes() {
+        if (FLUSH_INTERVAL_SEC <= 0 && FLUSH_EVERY_N_TESTS <= 0 && nodeStore == null) {
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(ExtentManager::flushPending, "extent-report-shutdown-flush"));
+        if (nodeStore != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "extent-report-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (FLUSH_INTERVAL_SEC > 0) {
+            flusher.scheduleWithFixedDelay(ExtentManager::flushPending, FLUSH_INTERVAL_SEC, FLUSH_INTERVAL_SEC, TimeUnit.SECONDS);
+        }
+    }
+
+    // Called for every finished test; at most one count triggered flush is queued at a time
+    private static void testFinished() {
+        int finished = testsSinceFlush.incrementAndGet();
+        if (flusher != null && FLUSH_EVERY_N_TESTS > 0 && finished >= FLUSH_EVERY_N_TESTS
+                && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flushPending();
+            });
+        }
+    }
+
+    private static void flushPending() {
+        synchronized (flushLock) {
+            int pending = testsSinceFlush.getAndSet(0);
+            if (pending == 0 || extent == null) {
+                return;
+            }
+            // Extent walks its test lists without locking them, a test of another thread changing them
+            // makes the flush fail (a ConcurrentModificationException, or an NPE or index error of a list
+            // changed underneath it); it is retried right away and otherwise with the next flush. Nothing
+            // may escape, an exception would cancel all later runs of the scheduled flush.
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    writeReport(extent);
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt == FLUSH_ATTEMPTS) {
+                        testsSinceFlush.addAndGet(pending);
+                        System.err.println("Background report flush failed, retrying with the next flush: " + e);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
     public static ExtentTest getOrCreateClassNode(String clasName)
     {
         return classNodeMap.computeIfAbsent(clasName,k->getReportInstance().createTest(k));
@@ -63,8 +220,10 @@ public class ExtentManager {
     }
     /**
      * Removes the ExtentTest instance from the current thread's storage. Called by the Listener (onTestSuccess/Failure/Skip).
+     * Also counts the test as finished for the background flushes.
      */
     public static void removeTest() {
         currentTest.remove();
+        testFinished();
     }
 }
\ No newline at end of file
@@ -1,40 +1,164 @@
 package managers;
 
+import core.video.ContinuousRecording;
+import core.video.DesktopFrameSource;
+import core.video.DomEventRecorder;
+import core.video.FfmpegRecorder;
+import core.video.FrameRecorder;
+import core.video.FrameSource;
+import core.video.RingBufferRecorder;
+import core.video.ScreencastFrameSource;
 import core.video.TestRecorder;
+import core.video.VideoRecorder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.HasDevTools;
+
 import java.awt.*;
+import java.io.File;
 import java.io.IOException;
 
+import static core.config.ConfigReader.getBoolProp;
+import static core.config.ConfigReader.getIntProp;
 import static core.config.ConfigReader.getStrProp;
 
 public class RecorderManager {
-    private static final ThreadLocal<TestRecorder> recorderThread = new ThreadLocal<>();
+    private static final ThreadLocal<VideoRecorder> recorderThread = new ThreadLocal<>();
     // Default video folder (kept for the factory method)
     private static final String DEFAULT_VIDEO_FOLDER = getStrProp("TEST_RECORDINGS","execution-output/test-recordings/");
+    // desktop: Monte screen capture of the whole display, screencast: DevTools page frames of the thread's own browser,
+    // dom: DOM event log of the thread's own page with an HTML replay instead of a video
+    private static final String VIDEO_BACKEND = getStrProp("VIDEO_BACKEND", "desktop").toLowerCase();
+    // always: every test gets a video, failure-only: frames are kept in memory and written only for failed tests,
+    // continuous: one desktop recording for the whole run with a segment per test
+    private static final String VIDEO_MODE = getStrProp("VIDEO_MODE", "always").toLowerCase();
+    private static final int RING_QUALITY = getIntProp("VIDEO_RING_QUALITY", 60);
+    // Desktop capture that drops unchanged frames and slows down while the screen is still
+    private static final boolean ADAPTIVE = getBoolProp("VIDEO_ADAPTIVE", false);
+    private static final int ADAPTIVE_IDLE_FRAME_RATE = getIntProp("VIDEO_ADAPTIVE_IDLE_FRAME_RATE", 2);
+    private static final int ADAPTIVE_QUALITY = getIntProp("VIDEO_ADAPTIVE_QUALITY", 70);
     /**
      * Initializes the thread-local recorder with a custom name and path.
      */
-    public static synchronized void initializeRecorder(String recordedVideoName, String userPath) throws IOException, AWTException {
-        // Ensures only one instance creation happens safely
+    public static void initializeRecorder(String recordedVideoName, String userPath) throws IOException, AWTException {
+        // The recorder is thread-local, so parallel workers create theirs without a shared lock; the shared
+        // parts lock themselves (Monte's registry in TestRecorder, the run's recording in ContinuousRecording)
         if (recorderThread.get() == null) {
-            TestRecorder recorder = TestRecorder.createConfiguredRecorder(recordedVideoName, userPath);
-            recorderThread.set(recorder);
+            recorderThread.set(createRecorder(recordedVideoName, userPath));
         }
     }
     /**
      * Initializes the thread-local recorder using the default path: ${user.dir}/execution-output//test-recordings/
      * Uses Method Overloading for convenience.
      */
-    public static synchronized void initializeRecorder(String recordedVideoName) throws IOException, AWTException {
+    public static void initializeRecorder(String recordedVideoName) throws IOException, AWTException {
         initializeRecorder(recordedVideoName, DEFAULT_VIDEO_FOLDER);
     }
-    /** Retrieves the instance for the current thread. */
+    /**
+     * Creates the recorder for the configured backend. The screencast backend needs a Chromium
+     * driver on the current thread; otherwise the desktop recorder is used.
+     */
+    private static VideoRecorder createRecorder(String recordedVideoName, String userPath) throws IOException, AWTException {
+        if (VIDEO_BACKEND.equals("dom")) {
+            WebDriver driver = DriverManager.getDriver();
+            if (DomEventRecorder.isSupported(driver)) {
+                return new DomEventRecorder((JavascriptExecutor) driver, recordedVideoName, new File(userPath),
+                        VIDEO_MODE.equals("failure-only"));
+            }
+            System.err.println("Session replay needs a driver on this thread that runs JavaScript, falling back to desktop recording.");
+        }
+        // Continuous mode records the JVM's own display; workers on their own display are recorded per test below
+        if (VIDEO_MODE.equals("continuous") && DisplayManager.getDisplay() == null) {
+            return ContinuousRecording.createSegmentRecorder(recordedVideoName, userPath);
+        }
+        FrameSource screencast = createScreencastSource();
+        DisplayManager.VirtualDisplay display = DisplayManager.getDisplay();
+        if (screencast == null && display != null) {
+            // The browser runs on the worker's own display, which only ffmpeg can record
+            return new FfmpegRecorder(display.getName(), display.getWidth(), display.getHeight(), recordedVideoName,
+                    new File(userPath), VIDEO_MODE.equals("failure-only"));
+        }
+        if (VIDEO_MODE.equals("failure-only")) {
+            FrameSource source = screencast != null ? screencast
+                    : createDesktopSource(RingBufferRecorder.getFrameRate(), RING_QUALITY / 100f,
+                    ADAPTIVE ? ADAPTIVE_IDLE_FRAME_RATE : RingBufferRecorder.getFrameRate());
+            return new RingBufferRecorder(source, recordedVideoName, new File(userPath));
+        }
+        if (screencast != null) {
+            return new FrameRecorder(screencast, recordedVideoName, new File(userPath));
+        }
+        // Monte fixes the video size when it starts, a window that may be resized is recorded from frames
+        if (ADAPTIVE || TestRecorder.isWindowCapture()) {
+            FrameSource desktop = createDesktopSource(TestRecorder.FRAME_RATE, ADAPTIVE_QUALITY / 100f,
+                    ADAPTIVE ? ADAPTIVE_IDLE_FRAME_RATE : TestRecorder.FRAME_RATE);
+            return new FrameRecorder(desktop, recordedVideoName, new File(userPath), TestRecorder.FRAME_RATE);
+        }
+        return TestRecorder.createConfiguredRecorder(recordedVideoName, userPath);
+    }
+    /** Grabs the thread's browser window with VIDEO_CAPTURE_AREA=window, otherwise the whole screen. */
+    private static DesktopFrameSource createDesktopSource(int frameRate, float quality, int idleFrameRate) {
+        WebDriver driver = TestRecorder.isWindowCapture() ? DriverManager.getDriver() : null;
+        if (driver != null) {
+            return DesktopFrameSource.forWindow(driver, frameRate, quality, idleFrameRate);
+        }
+        return new DesktopFrameSource(null, frameRate, quality, idleFrameRate);
+    }
+    /**
+     * Returns the driver the configured recorder needs. With VIDEO_BACKEND=dom it is wrapped so the
+     * session replay fetches its events before the test's WebDriver calls, on the test thread; with
+     * VIDEO_CAPTURE_AREA=window so the window recording reads the window bounds there.
+     */
+    public static WebDriver prepareDriver(WebDriver driver) {
+        if (VIDEO_BACKEND.equals("dom") && DomEventRecorder.isSupported(driver)) {
+            return DomEventRecorder.decorate(driver);
+        }
+        if (TestRecorder.isWindowCapture()) {
+            return DesktopFrameSource.decorate(driver);
+        }
+        return driver;
+    }
+    private static FrameSource createScreencastSource() {
+        if (!VIDEO_BACKEND.equals("screencast")) {
+            return null;
+        }
+        WebDriver driver = DriverManager.getDriver();
+        if (ScreencastFrameSource.isSupported(driver)) {
+            return new ScreencastFrameSource((HasDevTools) driver);
+        }
+        System.err.println("Screencast recording needs a Chrome or Edge driver on this thread, falling back to desktop recording.");
+        return null;
+    }
+    /**
+     * Retrieves the desktop recorder of the current thread.
+     * Only the desktop backend records with a {@link TestRecorder}, use {@link #getVideoRecorder()} for any backend.
+     */
     public static TestRecorder getRecorder() {
-        TestRecorder recorder = recorderThread.get();
+        VideoRecorder recorder = getVideoRecorder();
+        if (!(recorder instanceof TestRecorder)) {
+            throw new IllegalStateException("The recorder of this thread is a " + recorder.getClass().getSimpleName()
+                    + ", not a TestRecorder. Use getVideoRecorder() with VIDEO_BACKEND=" + VIDEO_BACKEND
+                    + " and VIDEO_MODE=" + VIDEO_MODE + ".");
+        }
+        return (TestRecorder) recorder;
+    }
+    /** Retrieves the recorder of the current thread, whichever backend created it. */
+    public static VideoRecorder getVideoRecorder() {
+        VideoRecorder recorder = recorderThread.get();
         if (recorder == null) {
             throw new IllegalStateException("Recorder not initialized for this thread. Call initializeRecorder() first.");
         }
         return recorder;
     }
+    /**
+     * Marks the current thread's recording as belonging to a failed test.
+     * In failure-only mode this is what makes the buffered frames get written.
+     */
+    public static void markTestFailed() {
+        VideoRecorder recorder = recorderThread.get();
+        if (recorder != null) {
+            recorder.markFailed();
+        }
+    }
     /** Crucial for cleaning up the thread state after the test finishes */
     public static void removeInstance() {
         recorderThread.remove();
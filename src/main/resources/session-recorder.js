@@ -0,0 +1,101 @@
+// Injected by core.video.DomEventRecorder on every poll. Installs the recorder once per page and
+// returns the events collected since the previous poll as a JSON string. Runs as the body of
+// the function WebDriver's executeScript creates, hence the top-level return.
+var r = window.__replay;
+if (!r) {
+  r = window.__replay = { events: [] };
+  var pending = null;
+  try {
+    pending = sessionStorage.getItem('__replay_pending');
+    sessionStorage.removeItem('__replay_pending');
+  } catch (e) {
+    // Storage is not available on every page (e.g. data: URLs)
+  }
+  if (pending) {
+    r.events = JSON.parse(pending);
+  }
+  var pathOf = function (node) {
+    var steps = [];
+    while (node && node !== document.documentElement && node.parentNode) {
+      steps.unshift(Array.prototype.indexOf.call(node.parentNode.childNodes, node));
+      node = node.parentNode;
+    }
+    return node === document.documentElement ? steps.join('/') : null;
+  };
+  // A password field's value attribute would be copied with the markup
+  var MASK = '********';
+  var PASSWORD_VALUES = 'input[type="password" i][value]';
+  var isPassword = function (node) {
+    return node.tagName === 'INPUT' && (node.getAttribute('type') || '').toLowerCase() === 'password';
+  };
+  var markupOf = function (element, outer) {
+    if (!element.querySelector(PASSWORD_VALUES)) {
+      return outer ? element.outerHTML : element.innerHTML;
+    }
+    var copy = element.cloneNode(true);
+    Array.prototype.forEach.call(copy.querySelectorAll(PASSWORD_VALUES), function (field) {
+      field.setAttribute('value', MASK);
+    });
+    return outer ? copy.outerHTML : copy.innerHTML;
+  };
+  var push = function (event) {
+    event.t = Date.now();
+    r.events.push(event);
+  };
+  push({ type: 'snapshot', url: location.href, html: markupOf(document.documentElement, true),
+         w: window.innerWidth, h: window.innerHeight });
+  new MutationObserver(function (mutations) {
+    // Several changes to the same element in one callback are sent as one html event
+    var changed = {};
+    mutations.forEach(function (m) {
+      if (m.type === 'attributes') {
+        var attrPath = pathOf(m.target);
+        if (attrPath !== null) {
+          var value = m.target.getAttribute(m.attributeName);
+          if (value !== null && m.attributeName === 'value' && isPassword(m.target)) {
+            value = MASK;
+          }
+          push({ type: 'attr', path: attrPath, name: m.attributeName, value: value });
+        }
+        return;
+      }
+      var target = m.type === 'characterData' ? m.target.parentNode : m.target;
+      if (target && target.nodeType === 1) {
+        var path = pathOf(target);
+        if (path !== null) {
+          changed[path] = target;
+        }
+      }
+    });
+    Object.keys(changed).forEach(function (path) {
+      push({ type: 'html', path: path, html: markupOf(changed[path], false) });
+    });
+  }).observe(document.documentElement, { childList: true, subtree: true, attributes: true, characterData: true });
+  document.addEventListener('input', function (e) {
+    var field = e.target;
+    var value = field.type === 'password' ? '********'
+        : (field.type === 'checkbox' || field.type === 'radio') ? String(field.checked) : field.value;
+    push({ type: 'input', path: pathOf(field), value: value });
+  }, true);
+  document.addEventListener('click', function (e) {
+    push({ type: 'click', path: pathOf(e.target), x: e.clientX, y: e.clientY });
+  }, true);
+  var lastScroll = 0;
+  window.addEventListener('scroll', function () {
+    if (Date.now() - lastScroll > 200) {
+      lastScroll = Date.now();
+      push({ type: 'scroll', x: window.scrollX, y: window.scrollY });
+    }
+  }, true);
+  // Events of a page that is left before the next poll are picked up by the next page
+  window.addEventListener('pagehide', function () {
+    try {
+      sessionStorage.setItem('__replay_pending', JSON.stringify(r.events));
+    } catch (e) {
+      // Lost with the page
+    }
+  });
+}
+var drained = r.events;
+r.events = [];
+return JSON.stringify(drained);
@@ -0,0 +1,113 @@
+package core.history;
+
+import core.history.DurationStore.Invocation;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class DurationStoreTest {
+    private static final long NOW = System.currentTimeMillis();
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private Path folder;
+    private File file;
+
+    @BeforeMethod
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("duration-store-test");
+        file = folder.resolve("history/durations.jsonl").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteFolder() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void appendedInvocationsAreLoadedBack() throws IOException {
+        DurationStore store = new DurationStore(file, 20, 90);
+        store.append(new Invocation(1, NOW, "tests.LoginTest", "login", null, "pass", 1200, 3000, 4096));
+        store.append(new Invocation(1, NOW, "tests.LoginTest", "search", "[admin, \"quoted\"]", "fail", 800, 0, 0));
+
+        Map<String, Deque<Invocation>> loaded = new DurationStore(file, 20, 90).load();
+        Assert.assertEquals(loaded.size(), 2);
+        Invocation login = loaded.get(DurationStore.key("tests.LoginTest", "login", null)).getFirst();
+        Assert.assertEquals(login.run, 1);
+        Assert.assertEquals(login.time, NOW);
+        Assert.assertNull(login.parameters);
+        Assert.assertEquals(login.status, "pass");
+        Assert.assertEquals(login.millis, 1200);
+        Assert.assertEquals(login.launchMillis, 3000);
+        Assert.assertEquals(login.artifactBytes, 4096);
+        Invocation search = loaded.get(DurationStore.key("tests.LoginTest", "search", "[admin, \"quoted\"]")).getFirst();
+        Assert.assertEquals(search.parameters, "[admin, \"quoted\"]");
+        Assert.assertEquals(search.status, "fail");
+    }
+
+    @Test
+    public void onlyTheLatestInvocationsAreKeptAndTheFileCompacted() throws IOException {
+        DurationStore store = new DurationStore(file, 3, 90);
+        for (int run = 1; run <= 10; run++) {
+            store.append(new Invocation(run, NOW, "tests.LoginTest", "login", null, "pass", run * 100L, 0, 0));
+        }
+        Deque<Invocation> kept = new DurationStore(file, 3, 90).load().values().iterator().next();
+        Assert.assertEquals(kept.size(), 3);
+        Assert.assertEquals(kept.getFirst().run, 8);
+        Assert.assertEquals(kept.getLast().run, 10);
+        Assert.assertEquals(Files.readAllLines(file.toPath()).size(), 3);
+    }
+
+    @Test
+    public void expiredAndUnreadableLinesAreDropped() throws IOException {
+        DurationStore store = new DurationStore(file, 20, 90);
+        store.append(new Invocation(1, NOW - 100 * DAY, "tests.LoginTest", "login", null, "pass", 100, 0, 0));
+        store.append(new Invocation(2, NOW, "tests.LoginTest", "login", null, "pass", 200, 0, 0));
+        // The last line of a killed run
+        Files.write(file.toPath(), "{\"run\":3,\"time\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        DurationStore reloaded = new DurationStore(file, 20, 90);
+        Deque<Invocation> kept = reloaded.load().values().iterator().next();
+        Assert.assertEquals(kept.size(), 1);
+        Assert.assertEquals(kept.getFirst().run, 2);
+        reloaded.append(new Invocation(4, NOW, "tests.LoginTest", "login", null, "pass", 300, 0, 0));
+        Assert.assertEquals(new DurationStore(file, 20, 90).load().values().iterator().next().getLast().run, 4);
+    }
+
+    @Test
+    public void statsOfTheLoadedHistory() throws IOException {
+        DurationStore store = new DurationStore(file, 20, 90);
+        store.append(new Invocation(1, NOW, "tests.SearchTest", "find", null, "pass", 100, 2000, 10));
+        store.append(new Invocation(1, NOW, "tests.SearchTest", "find", null, "pass", 300, 0, 30));
+        store.append(new Invocation(2, NOW, "tests.SearchTest", "find", null, "fail", 5000, 1000, 20));
+        store.append(new Invocation(3, NOW, "tests.SearchTest", "find", null, "pass", 200, 0, 40));
+
+        DurationStats stats = new DurationStats(new DurationStore(file, 20, 90).load().values().iterator().next());
+        Assert.assertEquals(stats.getClassName(), "tests.SearchTest");
+        Assert.assertEquals(stats.getInvocations(), 4);
+        Assert.assertEquals(stats.getPassed(), 3);
+        Assert.assertEquals(stats.getPassedRuns(), 2);
+        Assert.assertEquals(stats.getRuns(), 3);
+        Assert.assertEquals(stats.getMedianMillis(), 200);
+        Assert.assertEquals(stats.getMedianAllMillis(), 250);
+        Assert.assertEquals(stats.getP90Millis(), 300);
+        Assert.assertEquals(stats.getRecentMillis(), new long[]{100, 300, 200});
+        Assert.assertEquals(stats.getInvocationsPerRun(), 4 / 3.0, 1e-9);
+        Assert.assertEquals(stats.getLaunchMillisPerRun(), 1000);
+        Assert.assertEquals(stats.getMedianArtifactBytes(), 25);
+        Assert.assertEquals(stats.getLastStatus(), "pass");
+    }
+}
@@ -0,0 +1,114 @@
+package core.logging;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LogIndexTest {
+    private Path folder;
+    private Path log;
+
+    @BeforeMethod
+    public void createLog() throws IOException {
+        folder = Files.createTempDirectory("log-index-test");
+        log = folder.resolve("test.log");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteLog() throws IOException {
+        LogIndex.forget(log);
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void extractsTheTestFromStartToEndMarker() throws IOException {
+        append("10:00 INFO [11] login Test case started",
+                "10:01 INFO [22] search Test case started",
+                "10:02 INFO [11] typing the user",
+                "10:03 INFO [22] typing the query",
+                "10:04 INFO [11] login Test case pass",
+                "10:05 INFO [11] after the end");
+        Assert.assertEquals(LogIndex.forFile(log).extract("login", "11"),
+                "10:00 INFO [11] login Test case started\n10:02 INFO [11] typing the user\n10:04 INFO [11] login Test case pass");
+    }
+
+    @Test
+    public void latestStartOfTheSameDriverWins() throws IOException {
+        append("[11] login Test case started", "[11] first run", "[11] login Test case fail",
+                "[11] login Test case started", "[11] second run", "[11] login Test case pass");
+        Assert.assertEquals(LogIndex.forFile(log).extract("login", "11"),
+                "[11] login Test case started\n[11] second run\n[11] login Test case pass");
+    }
+
+    @Test
+    public void exactNameWinsOverALongerName() throws IOException {
+        append("[11] login Test case started", "[11] login Test case pass",
+                "[11] loginAdmin Test case started", "[11] loginAdmin Test case pass");
+        LogIndex index = LogIndex.forFile(log);
+        Assert.assertTrue(index.find("login", "11").namesTest("login"));
+        Assert.assertTrue(index.extract("login", "11").startsWith("[11] login Test case started"));
+        Assert.assertTrue(index.extract("loginAdmin", "11").startsWith("[11] loginAdmin Test case started"));
+    }
+
+    @Test
+    public void unknownTestOrDriverIsEmpty() throws IOException {
+        append("[11] login Test case started", "[11] login Test case pass");
+        LogIndex index = LogIndex.forFile(log);
+        Assert.assertEquals(index.extract("logout", "11"), "");
+        Assert.assertEquals(index.extract("login", "99"), "");
+    }
+
+    @Test
+    public void indexesOnlyTheLinesAppendedSinceTheLastLookup() throws IOException {
+        append("[11] login Test case started", "[11] login Test case pass");
+        LogIndex index = LogIndex.forFile(log);
+        Assert.assertNull(index.find("search", "22"));
+        Assert.assertEquals(index.getLinesIndexed(), 2);
+        append("[22] search Test case started", "[22] search Test case pass");
+        Assert.assertNotNull(index.find("search", "22"));
+        Assert.assertEquals(index.getLinesIndexed(), 4);
+    }
+
+    @Test
+    public void startsAgainWhenTheFileIsTruncated() throws IOException {
+        append("[11] login Test case started", "[11] login Test case pass", "[11] padding to make the file longer");
+        LogIndex index = LogIndex.forFile(log);
+        Assert.assertNotNull(index.find("login", "11"));
+        Files.write(log, List.of("[22] search Test case started"), StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+        Assert.assertNull(index.find("login", "11"));
+        Assert.assertNotNull(index.find("search", "22"));
+    }
+
+    @Test
+    public void savedIndexIsRestoredOnlyForTheSameFile() throws IOException {
+        append("[11] login Test case started", "[11] step", "[11] login Test case pass");
+        Path indexFile = folder.resolve("test.log.idx");
+        LogIndex.forFile(log).save(indexFile);
+        LogIndex.forget(log);
+
+        LogIndex restored = LogIndex.forFile(log);
+        Assert.assertTrue(restored.load(indexFile));
+        Assert.assertEquals(restored.extract("login", "11"), "[11] login Test case started\n[11] step\n[11] login Test case pass");
+        Assert.assertEquals(restored.getLinesIndexed(), 0);
+
+        LogIndex.forget(log);
+        append("[22] search Test case started");
+        Assert.assertFalse(LogIndex.forFile(log).load(indexFile));
+    }
+
+    private void append(String... lines) throws IOException {
+        Files.write(log, List.of(lines), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,112 @@
+package core.report;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+public class JUnitXmlWriterTest {
+    private Path folder;
+    private File result;
+
+    @BeforeMethod
+    public void createFolder() throws IOException {
+        folder = Files.createTempDirectory("junit-xml-test");
+        result = folder.resolve("junit.xml").toFile();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteFolder() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void assertionsAreFailuresAndOtherExceptionsErrors() throws Exception {
+        JUnitXmlWriter writer = new JUnitXmlWriter(result, folder.resolve(".spool").toFile());
+        writer.addResult("tests.LoginTest", "passes", "pass", 0, 1500, null, null);
+        writer.addResult("tests.LoginTest", "asserts", "fail", 0, 10, null, new AssertionError("expected true"));
+        writer.addResult("tests.LoginTest", "throws", "fail", 0, 10, null, new IllegalStateException("no session"));
+        writer.addResult("tests.LoginTest", "skips", "skip", 0, 0, "[admin]", null);
+        writer.finishClass("tests.LoginTest");
+
+        Element suite = (Element) parse().getElementsByTagName("testsuite").item(0);
+        Assert.assertEquals(suite.getAttribute("name"), "tests.LoginTest");
+        Assert.assertEquals(suite.getAttribute("tests"), "4");
+        Assert.assertEquals(suite.getAttribute("failures"), "1");
+        Assert.assertEquals(suite.getAttribute("errors"), "1");
+        Assert.assertEquals(suite.getAttribute("skipped"), "1");
+        NodeList cases = suite.getElementsByTagName("testcase");
+        Assert.assertEquals(((Element) cases.item(1)).getElementsByTagName("failure").getLength(), 1);
+        Element error = (Element) ((Element) cases.item(2)).getElementsByTagName("error").item(0);
+        Assert.assertEquals(error.getAttribute("type"), IllegalStateException.class.getName());
+        Assert.assertEquals(error.getAttribute("message"), "no session");
+        Assert.assertTrue(error.getTextContent().contains("at core.report.JUnitXmlWriterTest"));
+    }
+
+    @Test
+    public void timesUseADotInEveryLocale() throws Exception {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            JUnitXmlWriter writer = new JUnitXmlWriter(result, folder.resolve(".spool").toFile());
+            writer.addResult("tests.SearchTest", "finds", "pass", 1000, 2250, null, null);
+            writer.finishClass("tests.SearchTest");
+        } finally {
+            Locale.setDefault(locale);
+        }
+        Document document = parse();
+        Assert.assertEquals(((Element) document.getElementsByTagName("testsuite").item(0)).getAttribute("time"), "1.250");
+        Assert.assertEquals(((Element) document.getElementsByTagName("testcase").item(0)).getAttribute("time"), "1.250");
+    }
+
+    @Test
+    public void controlCharactersAreLeftOut() throws Exception {
+        JUnitXmlWriter writer = new JUnitXmlWriter(result, folder.resolve(".spool").toFile());
+        writer.addResult("tests.LogTest", "colors", "fail", 0, 10, "line\u0000one",
+                new AssertionError("\u001B[31mred\u001B[0m text\u0007"));
+        writer.finishClass("tests.LogTest");
+
+        Document document = parse();
+        Element failure = (Element) document.getElementsByTagName("failure").item(0);
+        Assert.assertEquals(failure.getAttribute("message"), "[31mred[0m text");
+        Assert.assertFalse(failure.getTextContent().contains("\u001B"));
+        Assert.assertEquals(((Element) document.getElementsByTagName("property").item(0)).getAttribute("value"), "lineone");
+    }
+
+    @Test
+    public void fileIsCompleteAfterEveryClass() throws Exception {
+        JUnitXmlWriter writer = new JUnitXmlWriter(result, folder.resolve(".spool").toFile());
+        Assert.assertEquals(parse().getElementsByTagName("testsuite").getLength(), 0);
+        writer.addResult("tests.ATest", "a", "pass", 0, 1, null, null);
+        writer.addResult("tests.BTest", "b", "pass", 0, 1, null, null);
+        writer.finishClass("tests.ATest");
+        Assert.assertEquals(parse().getElementsByTagName("testsuite").getLength(), 1);
+        writer.flush();
+        Assert.assertEquals(parse().getElementsByTagName("testsuite").getLength(), 2);
+    }
+
+    @Test
+    public void safeTextIsReturnedAsItIs() {
+        String text = "plain é 😀 text\r\n";
+        Assert.assertSame(JUnitXmlWriter.xmlSafe(text), text);
+        Assert.assertEquals(JUnitXmlWriter.xmlSafe("a\uD800b￾c"), "abc");
+    }
+
+    private Document parse() throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(result);
+    }
+}
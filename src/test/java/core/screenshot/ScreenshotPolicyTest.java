@@ -0,0 +1,129 @@
+package core.screenshot;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ScreenshotPolicyTest {
+
+    @Test
+    public void identicalPagesAreUnchanged() {
+        byte[] first = ScreenshotPolicy.perceptualHash(page());
+        byte[] second = ScreenshotPolicy.perceptualHash(page());
+        Assert.assertEquals(ScreenshotPolicy.changedCells(first, second), 0);
+    }
+
+    @Test
+    public void renderingNoiseIsUnchanged() {
+        BufferedImage noisy = page();
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            int x = random.nextInt(noisy.getWidth());
+            int y = random.nextInt(noisy.getHeight());
+            int grey = Math.max(0, Math.min(255, (noisy.getRGB(x, y) & 0xFF) + random.nextInt(7) - 3));
+            noisy.setRGB(x, y, (grey << 16) | (grey << 8) | grey);
+        }
+        // A blinking caret
+        fill(noisy, Color.BLACK, 900, 500, 2, 20);
+        Assert.assertEquals(ScreenshotPolicy.changedCells(ScreenshotPolicy.perceptualHash(page()),
+                ScreenshotPolicy.perceptualHash(noisy)), 0);
+    }
+
+    @Test
+    public void visibleChangesAreDetected() {
+        byte[] before = ScreenshotPolicy.perceptualHash(page());
+        int[][] boxes = {{760, 465, 400, 150}, {560, 20, 800, 40}, {700, 440, 500, 200}, {0, 0, 400, 150}, {1500, 1000, 200, 40}};
+        for (int[] box : boxes) {
+            BufferedImage after = page();
+            fill(after, Color.RED, box[0], box[1], box[2], box[3]);
+            int changed = ScreenshotPolicy.changedCells(before, ScreenshotPolicy.perceptualHash(after));
+            Assert.assertTrue(changed > 0, box[2] + "x" + box[3] + " box at " + box[0] + "," + box[1] + " changed no cell");
+        }
+    }
+
+    @Test
+    public void boxesAnywhereOnBlankPageAreDetected() {
+        BufferedImage blank = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        fill(blank, Color.WHITE, 0, 0, 1920, 1080);
+        byte[] before = ScreenshotPolicy.perceptualHash(blank);
+        Random random = new Random(3);
+        for (int i = 0; i < 20; i++) {
+            BufferedImage after = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+            fill(after, Color.WHITE, 0, 0, 1920, 1080);
+            int x = random.nextInt(1920 - 800);
+            int y = random.nextInt(1080 - 40);
+            fill(after, Color.RED, x, y, 800, 40);
+            Assert.assertTrue(ScreenshotPolicy.changedCells(before, ScreenshotPolicy.perceptualHash(after)) > 0,
+                    "800x40 banner at " + x + "," + y + " changed no cell");
+        }
+    }
+
+    @Test
+    public void slowDriftIsStoredOnceItAddsUp() throws IOException {
+        Object test = new Object();
+        List<Integer> stored = new ArrayList<>();
+        // Every step colours one more cell: one changed cell against the step before, more against older ones
+        for (int step = 0; step <= 6; step++) {
+            BufferedImage image = new BufferedImage(320, 160, BufferedImage.TYPE_INT_RGB);
+            fill(image, Color.WHITE, 0, 0, 320, 160);
+            fill(image, Color.RED, 0, 0, 20 * step, 10);
+            if (ScreenshotPolicy.apply(png(image), null, test, true, 2) != null) {
+                stored.add(step);
+            }
+        }
+        Assert.assertEquals(stored, List.of(0, 3, 6));
+    }
+
+    @Test
+    public void changeDetectionRestartsForTheNextTest() throws IOException {
+        BufferedImage image = page();
+        Object first = new Object();
+        Assert.assertNotNull(ScreenshotPolicy.apply(png(image), null, first, true, 0));
+        Assert.assertNull(ScreenshotPolicy.apply(png(image), null, first, true, 0));
+        Assert.assertNotNull(ScreenshotPolicy.apply(png(image), null, new Object(), true, 0));
+    }
+
+    @Test
+    public void smallImagesCanBeHashed() {
+        BufferedImage tiny = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        Assert.assertEquals(ScreenshotPolicy.perceptualHash(tiny).length, 256);
+    }
+
+    // A 1920x1080 page with a dark header and lines of text-like blocks
+    private static BufferedImage page() {
+        BufferedImage image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        fill(image, Color.WHITE, 0, 0, 1920, 1080);
+        fill(image, new Color(40, 40, 40), 0, 0, 1920, 80);
+        Random random = new Random(1);
+        for (int y = 120; y < 1060; y += 24) {
+            for (int x = 60; x < 1860; ) {
+                int length = 20 + random.nextInt(80);
+                fill(image, Color.DARK_GRAY, x, y, Math.min(length, 1860 - x), 12);
+                x += length + 10;
+            }
+        }
+        return image;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void fill(BufferedImage image, Color color, int x, int y, int width, int height) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(x, y, width, height);
+        graphics.dispose();
+    }
+}
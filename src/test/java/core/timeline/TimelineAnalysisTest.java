@@ -0,0 +1,60 @@
+package core.timeline;
+
+import core.timeline.ExecutionTimeline.Span;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class TimelineAnalysisTest {
+
+    @Test
+    public void overlappingAndTouchingSpansAreMerged() {
+        List<Span> lane = List.of(span("test", 0, 100), span("test", 50, 150), span("test", 150, 200),
+                span("test", 300, 400), span("test", 320, 350));
+        List<long[]> merged = TimelineAnalysis.merge(lane, span -> true);
+        Assert.assertEquals(merged.size(), 2);
+        Assert.assertEquals(merged.get(0), new long[]{0, 200});
+        Assert.assertEquals(merged.get(1), new long[]{300, 400});
+        Assert.assertEquals(TimelineAnalysis.covered(lane, span -> true), 300);
+    }
+
+    @Test
+    public void mergeKeepsOnlyTheFilteredKind() {
+        List<Span> lane = List.of(span("launch", 0, 100), span("test", 100, 200), span("quit", 200, 250));
+        Assert.assertEquals(TimelineAnalysis.covered(lane, span -> span.kind.equals("test")), 100);
+        Assert.assertTrue(TimelineAnalysis.merge(lane, span -> span.kind.equals("class")).isEmpty());
+    }
+
+    @Test
+    public void overlapCountsTheTimeBothCover() {
+        List<long[]> first = List.of(new long[]{0, 100}, new long[]{200, 300});
+        List<long[]> second = List.of(new long[]{50, 250}, new long[]{280, 290}, new long[]{400, 500});
+        Assert.assertEquals(TimelineAnalysis.overlap(first, second), 50 + 50 + 10);
+        Assert.assertEquals(TimelineAnalysis.overlap(first, List.of()), 0);
+        Assert.assertEquals(TimelineAnalysis.overlap(List.of(new long[]{0, 100}), List.of(new long[]{100, 200})), 0);
+    }
+
+    @Test
+    public void workersAreTheThreadsRunningTests() {
+        List<Span> spans = List.of(
+                new Span("worker-1", ExecutionTimeline.LAUNCH, "chrome", "LoginTest", 0, 100),
+                new Span("worker-1", ExecutionTimeline.TEST, "login", "LoginTest", 100, 600),
+                new Span("worker-2", ExecutionTimeline.TEST, "search", "SearchTest", 0, 1000),
+                new Span("pipeline-1", ExecutionTimeline.ATTACHMENTS, "login", "LoginTest", 600, 1200));
+        TimelineAnalysis analysis = new TimelineAnalysis(spans);
+        Assert.assertTrue(analysis.isWorker("worker-1"));
+        Assert.assertFalse(analysis.isWorker("pipeline-1"));
+        Assert.assertEquals(analysis.getCriticalWorker(), "worker-2");
+        // 1500 ms in tests of 2 workers x 1200 ms
+        Assert.assertEquals(analysis.getUtilization(), 1500 / 2400.0, 1e-9);
+        Map.Entry<String, Long> topCause = analysis.getIdleCauses().get(0);
+        Assert.assertEquals(topCause.getKey(), "finished early, waiting for the other workers");
+        Assert.assertEquals((long) topCause.getValue(), 600 + 200);
+    }
+
+    private static Span span(String kind, long start, long end) {
+        return new Span("worker-1", kind, kind, null, start, end);
+    }
+}
@@ -0,0 +1,79 @@
+package core.video;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+public class FrameRingBufferTest {
+
+    @Test
+    public void framesOlderThanTheMaxAgeAreDropped() {
+        FrameRingBuffer buffer = new FrameRingBuffer(1000, 1 << 20);
+        for (long t = 0; t <= 3000; t += 500) {
+            buffer.add(new byte[10], t);
+        }
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        Assert.assertEquals(frames.size(), 3);
+        Assert.assertEquals(frames.get(0).capturedAt, 2000);
+        Assert.assertEquals(frames.get(2).capturedAt, 3000);
+        Assert.assertEquals(buffer.getDroppedFrames(), 4);
+    }
+
+    @Test
+    public void oldestFramesAreDroppedAboveTheMemoryCap() {
+        FrameRingBuffer buffer = new FrameRingBuffer(60_000, 100);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(new byte[30], i);
+        }
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        Assert.assertEquals(frames.size(), 3);
+        Assert.assertEquals(frames.get(0).capturedAt, 7);
+        Assert.assertEquals(buffer.getDroppedFrames(), 7);
+        Assert.assertEquals(buffer.getPeakBytes(), 90);
+    }
+
+    @Test
+    public void newestFrameIsKeptWhenItAloneExceedsTheCap() {
+        FrameRingBuffer buffer = new FrameRingBuffer(60_000, 100);
+        buffer.add(new byte[50], 0);
+        buffer.add(new byte[500], 1);
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        Assert.assertEquals(frames.size(), 1);
+        Assert.assertEquals(frames.get(0).jpeg.length, 500);
+        Assert.assertEquals(buffer.getPeakBytes(), 500);
+    }
+
+    @Test
+    public void drainReturnsFramesInOrderAndEmptiesTheBuffer() {
+        FrameRingBuffer buffer = new FrameRingBuffer(60_000, 1 << 20);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(new byte[]{(byte) i}, i * 100L);
+        }
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(frames.get(i).jpeg[0], i);
+        }
+        Assert.assertTrue(buffer.drain().isEmpty());
+        buffer.add(new byte[1], 1000);
+        buffer.clear();
+        Assert.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void unencodedFramesCountFourBytesPerPixel() throws IOException {
+        FrameRingBuffer buffer = new FrameRingBuffer(60_000, 2 * 4 * 100 * 50);
+        for (int i = 0; i < 4; i++) {
+            buffer.addImage(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB), 0.6f, i);
+        }
+        List<FrameRecorder.Frame> frames = buffer.drain();
+        Assert.assertEquals(frames.size(), 2);
+        Assert.assertEquals(buffer.getPeakBytes(), 2 * 4 * 100 * 50);
+        FrameRecorder.Frame frame = frames.get(0);
+        Assert.assertNull(frame.jpeg);
+        Assert.assertEquals(frame.dimensions(), new int[]{100, 50});
+        Assert.assertEquals(FrameRecorder.readSize(frame.encoded()), new int[]{100, 50});
+    }
+}
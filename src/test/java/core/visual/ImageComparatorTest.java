@@ -0,0 +1,140 @@
+package core.visual;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+
+public class ImageComparatorTest {
+    private static final int WHITE = 0xFFFFFF;
+
+    @Test
+    public void identicalImagesMatch() {
+        ImageComparator.Result result = new ImageComparator(128, 16).compare(image(300, 200, WHITE), image(300, 200, WHITE), null);
+        Assert.assertEquals(result.mismatchedPixels, 0);
+        Assert.assertEquals(result.comparedPixels, 300 * 200);
+        Assert.assertEquals(result.tiles, 3 * 2);
+        Assert.assertEquals(result.diffImage.getWidth(), 300);
+    }
+
+    @Test
+    public void differencesWithinToleranceMatch() {
+        ImageComparator.Result result = new ImageComparator(64, 16)
+                .compare(image(100, 100, 0x808080), image(100, 100, 0x909070), null);
+        Assert.assertEquals(result.mismatchedPixels, 0);
+    }
+
+    @Test
+    public void oneChannelAboveToleranceIsMismatch() {
+        ImageComparator.Result result = new ImageComparator(64, 16)
+                .compare(image(100, 100, 0x808080), image(100, 100, 0x8080A0), null);
+        Assert.assertEquals(result.mismatchedPixels, 100 * 100);
+        Assert.assertEquals(result.getMismatchPercent(), 100.0);
+    }
+
+    @Test
+    public void changedBoxIsCountedWithItsBorder() {
+        BufferedImage actual = image(400, 300, WHITE);
+        fill(actual, Color.RED, new Rectangle(50, 60, 100, 50));
+        ImageComparator.Result result = new ImageComparator(32, 16).compare(image(400, 300, WHITE), actual, null);
+        // A hard edge has no blended colour between its sides, so it is not anti-aliasing
+        Assert.assertEquals(result.mismatchedPixels, 100 * 50);
+        Assert.assertEquals(result.diffImage.getRGB(100, 80), 0xFFFF00FF);
+        Assert.assertNotEquals(result.diffImage.getRGB(10, 10), 0xFFFF00FF);
+    }
+
+    @Test
+    public void antiAliasedEdgeIsTolerated() {
+        BufferedImage baseline = image(200, 100, WHITE);
+        BufferedImage actual = image(200, 100, WHITE);
+        fill(baseline, Color.BLACK, new Rectangle(20, 20, 100, 40));
+        fill(actual, Color.BLACK, new Rectangle(20, 20, 100, 40));
+        // The blended column right of the box, rendered a little differently
+        fill(baseline, new Color(128, 128, 128), new Rectangle(120, 20, 1, 40));
+        fill(actual, new Color(90, 90, 90), new Rectangle(120, 20, 1, 40));
+        Assert.assertEquals(new ImageComparator(16, 16).compare(baseline, actual, null).mismatchedPixels, 0);
+    }
+
+    @Test
+    public void changedTextAndMovedLinesAreReported() {
+        BufferedImage baseline = image(400, 200, WHITE);
+        BufferedImage actual = image(400, 200, WHITE);
+        text(baseline, "Total: 1,234.56 USD");
+        text(actual, "Total: 9,870.12 EUR");
+        fill(baseline, Color.DARK_GRAY, new Rectangle(300, 100, 2, 80));
+        fill(actual, Color.DARK_GRAY, new Rectangle(350, 100, 2, 80));
+        ImageComparator.Result result = new ImageComparator(64, 16).compare(baseline, actual, null);
+        Assert.assertTrue(result.mismatchedPixels > 2 * 2 * 80, "mismatched " + result.mismatchedPixels);
+        Assert.assertEquals(result.diffImage.getRGB(300, 140), 0xFFFF00FF);
+        Assert.assertEquals(result.diffImage.getRGB(351, 140), 0xFFFF00FF);
+        long inText = 0;
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 400; x++) {
+                inText += result.diffImage.getRGB(x, y) == 0xFFFF00FF ? 1 : 0;
+            }
+        }
+        Assert.assertTrue(inText > 50, "mismatched in the text " + inText);
+    }
+
+    @Test
+    public void ignoredRegionsAreNotCompared() {
+        BufferedImage actual = image(300, 200, WHITE);
+        Rectangle box = new Rectangle(10, 10, 50, 40);
+        fill(actual, Color.BLUE, box);
+        ImageComparator.Result result = new ImageComparator(64, 16)
+                .compare(image(300, 200, WHITE), actual, List.of(box));
+        Assert.assertEquals(result.mismatchedPixels, 0);
+        Assert.assertEquals(result.comparedPixels, 300 * 200 - 50 * 40);
+    }
+
+    @Test
+    public void tileSizeDoesNotChangeTheResult() {
+        BufferedImage baseline = image(500, 333, WHITE);
+        BufferedImage actual = image(500, 333, WHITE);
+        for (int i = 0; i < 20; i++) {
+            fill(actual, new Color(i * 12, 255 - i * 12, 90), new Rectangle(i * 23, i * 15, 40 + i, 17));
+        }
+        long single = new ImageComparator(1024, 16).compare(baseline, actual, Collections.emptyList()).mismatchedPixels;
+        Assert.assertTrue(single > 0);
+        for (int tileSize : new int[]{16, 33, 128}) {
+            ImageComparator.Result tiled = new ImageComparator(tileSize, 16).compare(baseline, actual, Collections.emptyList());
+            Assert.assertEquals(tiled.mismatchedPixels, single, "tile size " + tileSize);
+        }
+    }
+
+    @Test
+    public void areaOutsideTheSmallerImageIsMismatch() {
+        ImageComparator.Result result = new ImageComparator(64, 16).compare(image(100, 100, WHITE), image(120, 100, WHITE), null);
+        Assert.assertEquals(result.comparedPixels, 120 * 100);
+        Assert.assertEquals(result.mismatchedPixels, 20 * 100);
+    }
+
+    private static BufferedImage image(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        fill(image, new Color(rgb), new Rectangle(0, 0, width, height));
+        return image;
+    }
+
+    private static void text(BufferedImage image, String text) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 24));
+        graphics.drawString(text, 10, 50);
+        graphics.dispose();
+    }
+
+    private static void fill(BufferedImage image, Color color, Rectangle area) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fill(area);
+        graphics.dispose();
+    }
+}
@@ -0,0 +1,69 @@
+package listeners;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DurationOrderInterceptorTest {
+
+    @Test
+    public void longestClassesComeFirst() {
+        Map<Class<?>, Long> expected = expected(String.class, 1000L, Integer.class, 5000L, Long.class, 3000L);
+        Assert.assertEquals(DurationOrderInterceptor.longestFirst(expected),
+                List.of(Integer.class, Long.class, String.class));
+    }
+
+    @Test
+    public void classesWithTheSameTimeKeepTheirOrder() {
+        Map<Class<?>, Long> expected = expected(String.class, 2000L, Integer.class, 4000L, Long.class, 2000L,
+                Double.class, 2000L);
+        Assert.assertEquals(DurationOrderInterceptor.longestFirst(expected),
+                List.of(Integer.class, String.class, Long.class, Double.class));
+    }
+
+    @Test
+    public void longestFirstShortensTheMakespan() {
+        // Declared short to long, the longest class starts last and runs alone
+        Map<Class<?>, Long> expected = expected(String.class, 1000L, Integer.class, 1000L, Long.class, 2000L,
+                Double.class, 2000L, Float.class, 6000L);
+        long declared = DurationOrderInterceptor.makespan(List.copyOf(expected.keySet()), expected, 2);
+        long ordered = DurationOrderInterceptor.makespan(DurationOrderInterceptor.longestFirst(expected), expected, 2);
+        Assert.assertEquals(declared, 9000);
+        Assert.assertEquals(ordered, 6000);
+    }
+
+    @Test
+    public void makespanOfOneThreadIsTheSum() {
+        Map<Class<?>, Long> expected = expected(String.class, 1000L, Integer.class, 2500L, Long.class, 500L);
+        Assert.assertEquals(DurationOrderInterceptor.makespan(List.copyOf(expected.keySet()), expected, 1), 4000);
+        Assert.assertEquals(DurationOrderInterceptor.makespan(List.copyOf(expected.keySet()), expected, 8), 2500);
+    }
+
+    @Test
+    public void classesWithoutHistoryTakeTheMedianOfTheKnown() {
+        Map<Class<?>, Long> expected = expected(String.class, 1000L, Integer.class, -1L, Long.class, 5000L,
+                Double.class, 3000L);
+        Assert.assertEquals(DurationOrderInterceptor.estimateUnknown(expected), 1);
+        Assert.assertEquals((long) expected.get(Integer.class), 3000);
+        Assert.assertEquals(DurationOrderInterceptor.longestFirst(expected),
+                List.of(Long.class, Integer.class, Double.class, String.class));
+    }
+
+    @Test
+    public void withoutAnyHistoryNothingIsEstimated() {
+        Map<Class<?>, Long> expected = expected(String.class, -1L, Integer.class, -1L);
+        Assert.assertEquals(DurationOrderInterceptor.estimateUnknown(expected), 2);
+        Assert.assertEquals((long) expected.get(String.class), -1);
+    }
+
+    private static Map<Class<?>, Long> expected(Object... classesAndMillis) {
+        Map<Class<?>, Long> expected = new LinkedHashMap<>();
+        for (int i = 0; i < classesAndMillis.length; i += 2) {
+            expected.put((Class<?>) classesAndMillis[i], (Long) classesAndMillis[i + 1]);
+        }
+        return expected;
+    }
+}